@@ -59,6 +59,16 @@ subprojects {
         targetCompatibility = JavaVersion.VERSION_1_8
     }
 
+    dependencies {
+        "testImplementation"(platform("org.junit:junit-bom:5.10.2"))
+        "testImplementation"("org.junit.jupiter:junit-jupiter")
+        "testRuntimeOnly"("org.junit.platform:junit-platform-launcher")
+    }
+
+    tasks.withType<Test> {
+        useJUnitPlatform()
+    }
+
 
     publishing {
         publications {
@@ -3,8 +3,10 @@ package me.caseload.knockbacksync;
 import com.github.retrooper.packetevents.PacketEvents;
 import com.github.retrooper.packetevents.manager.server.ServerVersion;
 import io.github.retrooper.packetevents.factory.spigot.SpigotPacketEventsBuilder;
-import me.caseload.knockbacksync.event.events.ConfigReloadEvent;
 import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.EntityTickIntervalsChangedEvent;
+import me.caseload.knockbacksync.handoff.BukkitHandoffTransport;
+import me.caseload.knockbacksync.handoff.HandoffTransport;
 import me.caseload.knockbacksync.listener.bukkit.*;
 import me.caseload.knockbacksync.manager.ConfigManager;
 import me.caseload.knockbacksync.permission.PermissionChecker;
@@ -17,12 +19,12 @@ import me.caseload.knockbacksync.sender.Sender;
 import me.caseload.knockbacksync.stats.custom.BukkitStatsManager;
 import me.caseload.knockbacksync.stats.custom.PluginJarHashProvider;
 import me.caseload.knockbacksync.world.BukkitServer;
+import me.caseload.knockbacksync.world.CombatUpdateIntervalController;
+import me.caseload.knockbacksync.world.EntityUpdateIntervalPatcher;
 import org.bukkit.Bukkit;
 import org.bukkit.Server;
-import org.bukkit.World;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.entity.Player;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -36,12 +38,12 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.net.URL;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 public class BukkitBase extends Base {
@@ -50,9 +52,12 @@ public class BukkitBase extends Base {
     private final BukkitSenderFactory bukkitSenderFactory = new BukkitSenderFactory(this);
     private final PluginPermissionChecker permissionChecker = new PluginPermissionChecker();
 
-    private int playerUpdateInterval;
-
     private final MethodHandle tickRateMethodHandle;
+    private final MethodHandle averageTickTimeMethodHandle;
+    private final MethodHandle tickTimesMethodHandle;
+    private boolean warnedNoTickTime;
+    private EntityUpdateIntervalPatcher updateIntervalPatcher;
+    private CombatUpdateIntervalController combatUpdateIntervalController;
 
     public BukkitBase(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -61,27 +66,65 @@ public class BukkitBase extends Base {
         super.statsManager = new BukkitStatsManager(plugin);
         super.platformServer = new BukkitServer();
         super.pluginJarHashProvider = new PluginJarHashProvider(this.getClass().getProtectionDomain().getCodeSource().getLocation());
-        this.playerUpdateInterval = this.getConfigManager().getConfigWrapper().getInt("entity_tick_intervals.player", 2);
 
         MethodHandle handle = null;
         try {
-            Server craftServer = Bukkit.getServer();
-            MethodHandles.Lookup lookup = MethodHandles.lookup();
-
-            // Get handle for getServerTickManager
-            MethodHandle getServerTickManager = lookup.findVirtual(craftServer.getClass(),
-                    "getServerTickManager", MethodType.methodType(Object.class));
+            // ServerTickManager only exists since 1.20.3
+            Class<?> tickManagerClass = Class.forName("org.bukkit.ServerTickManager");
+            Object serverTickManager = Server.class.getMethod("getServerTickManager").invoke(Bukkit.getServer());
+            handle = MethodHandles.publicLookup()
+                    .findVirtual(tickManagerClass, "getTickRate", MethodType.methodType(float.class))
+                    .bindTo(serverTickManager);
+        } catch (Throwable t) {
+            // If anything fails, handle will remain null and the tick rate stays at 20
+        }
+        this.tickRateMethodHandle = handle;
 
-            Object serverTickManager = getServerTickManager.invoke(craftServer);
+        handle = null;
+        try {
+            // Only Paper reports how long ticks actually take
+            handle = MethodHandles.publicLookup()
+                    .findVirtual(Server.class, "getAverageTickTime", MethodType.methodType(double.class))
+                    .bindTo(Bukkit.getServer());
+        } catch (Throwable t) {
+            // Fall back to the tick times vanilla keeps for /debug
+        }
+        this.averageTickTimeMethodHandle = handle;
+        this.tickTimesMethodHandle = handle == null ? findTickTimes() : null;
+    }
 
-            // Get handle for getTickRate
-            handle = lookup.findVirtual(serverTickManager.getClass(),
-                    "getTickRate", MethodType.methodType(float.class));
+    /**
+     * Finds the ring buffer of the last 100 tick durations in nanoseconds that every MinecraftServer keeps,
+     * bound to this server. Its name differs between versions and mappings, so it is found by its shape: the only
+     * {@code long[100]} field of its class, or the one with a known name if there are several.
+     *
+     * @return A {@code () -> long[]} handle, or null if there is no such field.
+     */
+    private static MethodHandle findTickTimes() {
+        List<String> knownNames = Arrays.asList("tickTimesNanos", "tickTimes", "h");
+        try {
+            Object minecraftServer = Bukkit.getServer().getClass().getMethod("getServer").invoke(Bukkit.getServer());
+            for (Class<?> clazz = minecraftServer.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+                List<Field> candidates = new ArrayList<>();
+                for (Field field : clazz.getDeclaredFields()) {
+                    if (field.getType() != long[].class || Modifier.isStatic(field.getModifiers()))
+                        continue;
 
+                    field.setAccessible(true);
+                    long[] value = (long[]) field.get(minecraftServer);
+                    if (value != null && value.length == 100)
+                        candidates.add(field);
+                }
+                if (candidates.size() > 1)
+                    candidates.removeIf(field -> !knownNames.contains(field.getName()));
+                if (candidates.size() == 1)
+                    return MethodHandles.lookup().unreflectGetter(candidates.get(0)).bindTo(minecraftServer)
+                            .asType(MethodType.methodType(long[].class));
+            }
         } catch (Throwable t) {
-            // If anything fails, handle will remain null
+            // No way to measure tick time, the load governor stays at NORMAL
         }
-        this.tickRateMethodHandle = handle;
+        return null;
     }
 
     @Override
@@ -108,12 +151,26 @@ public class BukkitBase extends Base {
     @Override
     public void enable() {
         super.enable();
-        super.eventBus.registerListeners(this);
+        scheduler.runTaskTimer(this::tick, 1L, 1L);
         if (PacketEvents.getAPI().getServerManager().getVersion().isNewerThanOrEquals(ServerVersion.V_1_20_5) && this.getPlatform() == Platform.BUKKIT) {
-            scheduler.runTaskTimerAsynchronously(this::setUpdateIntervals, 1, 1);
+            updateIntervalPatcher = new EntityUpdateIntervalPatcher();
+            BukkitEntityTrackListener trackListener = new BukkitEntityTrackListener(updateIntervalPatcher);
+            registerPluginListeners(trackListener);
+            trackListener.registerEntitiesLoadEvent(this.plugin);
+            combatUpdateIntervalController = new CombatUpdateIntervalController(updateIntervalPatcher);
+            eventBus.registerListeners(this);
+            eventBus.registerListeners(combatUpdateIntervalController);
+            // Entities that were already tracked before we were enabled, e.g. after a plugin reload
+            scheduler.runTask(updateIntervalPatcher::applyAll);
         }
     }
 
+    @KBSyncEventHandler
+    public void onEntityTickIntervalsChanged(EntityTickIntervalsChangedEvent event) {
+        updateIntervalPatcher.applyAll();
+        combatUpdateIntervalController.update();
+    }
+
     @Override
     public void initializeScheduler() {
         switch (getPlatform()) {
@@ -135,6 +192,13 @@ public class BukkitBase extends Base {
         );
     }
 
+    @Override
+    public HandoffTransport createHandoffTransport(String type) {
+        if (type.equals("BUNGEECORD"))
+            return new BukkitHandoffTransport(this.plugin, latencyHandoff);
+        return super.createHandoffTransport(type);
+    }
+
     @Override
     protected void registerCommands() {
         super.commandManager = new LegacyPaperCommandManager<>(
@@ -168,16 +232,34 @@ public class BukkitBase extends Base {
         return permissionChecker;
     }
 
-    @Override
-    public float getTickRate() {
+    private void tick() {
         if (tickRateMethodHandle != null) {
             try {
-                return (float) tickRateMethodHandle.invoke();
+                updateTickRate((float) tickRateMethodHandle.invokeExact());
             } catch (Throwable t) {
-                return 20.0f;
+                // Keep the last known tick rate
+            }
+        }
+
+        double mspt = 0;
+        try {
+            if (averageTickTimeMethodHandle != null) {
+                mspt = (double) averageTickTimeMethodHandle.invokeExact();
+            } else if (tickTimesMethodHandle != null) {
+                long[] tickTimes = (long[]) tickTimesMethodHandle.invokeExact();
+                long sum = 0;
+                for (long tickTime : tickTimes)
+                    sum += tickTime;
+                mspt = sum / (double) tickTimes.length / 1_000_000.0;
+            } else if (!warnedNoTickTime && configManager.getSettings().isLoadGovernorEnabled()) {
+                warnedNoTickTime = true;
+                LOGGER.warning("This server does not report how long its ticks take, the load governor stays at NORMAL");
             }
+        } catch (Throwable t) {
+            // Count the tick as idle
         }
-        return 20.0f;
+        // Recorded even without a measurement, the governor's tick count ages per-tick caches
+        loadGovernor.recordTick(mspt);
     }
 
     public URL getJarURL() {
@@ -202,47 +284,6 @@ public class BukkitBase extends Base {
         return this.bukkitSenderFactory;
     }
 
-    public void setUpdateIntervals() {
-        try {
-            for (World world : Bukkit.getWorlds()) {
-                Method getWorldHandleMethod = world.getClass().getMethod("getHandle");
-                Object serverLevel = getWorldHandleMethod.invoke(world);
-
-                // Get ChunkMap
-                Method getChunkSource = serverLevel.getClass().getMethod("getChunkSource");
-                Object chunkSource = getChunkSource.invoke(serverLevel);
-                Field chunkMapField = chunkSource.getClass().getDeclaredField("chunkMap");
-                chunkMapField.setAccessible(true);
-                Object chunkMap = chunkMapField.get(chunkSource);
-
-                // Get entityMap from ChunkMap
-                Field entityMapField = chunkMap.getClass().getDeclaredField("entityMap");
-                entityMapField.setAccessible(true);
-                Map<Integer, ?> entityMap = (Map<Integer, ?>) entityMapField.get(chunkMap);
-                for (Player player : Bukkit.getOnlinePlayers()) {
-                    Object trackedEntity = entityMap.get(player.getEntityId());
-                    if (trackedEntity == null)
-                        continue;
-
-                    Field serverEntityField = trackedEntity.getClass().getDeclaredField("serverEntity");
-                    serverEntityField.setAccessible(true);
-                    Object serverEntity = serverEntityField.get(trackedEntity);
-
-                    Field updateIntervalField = serverEntity.getClass().getDeclaredField("updateInterval");
-                    updateIntervalField.setAccessible(true);
-                    updateIntervalField.set(serverEntity, playerUpdateInterval);
-                }
-            }
-        } catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | NoSuchFieldException e) {
-            throw new IllegalStateException("Unable to use reflection to modify updateIntervals" + e);
-        }
-    }
-
-    @KBSyncEventHandler
-    public void onConfigReload(ConfigReloadEvent event) {
-        playerUpdateInterval = event.getConfigManager().getConfigWrapper().getInt("entity_tick_intervals.player", 2);
-    }
-
     public void restartServer() {
         Bukkit.dispatchCommand(Bukkit.getConsoleSender(), "restart");
     }
@@ -0,0 +1,75 @@
+package me.caseload.knockbacksync.handoff;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.util.UUID;
+
+/**
+ * Forwards hand-off payloads to every other backend through the proxy's BungeeCord plugin messaging channel,
+ * which Velocity also understands when {@code bungee-plugin-message-channel} is enabled.
+ * <p>
+ * Plugin messages travel over a player's connection, so a payload can only be sent while some player other
+ * than the one leaving is still online. It is dropped otherwise.
+ */
+public class BukkitHandoffTransport implements HandoffTransport, PluginMessageListener {
+
+    private static final String BUNGEE_CHANNEL = "BungeeCord";
+
+    private final JavaPlugin plugin;
+    private final LatencyHandoff handoff;
+
+    public BukkitHandoffTransport(JavaPlugin plugin, LatencyHandoff handoff) {
+        this.plugin = plugin;
+        this.handoff = handoff;
+        Bukkit.getMessenger().registerOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+        Bukkit.getMessenger().registerIncomingPluginChannel(plugin, BUNGEE_CHANNEL, this);
+    }
+
+    @Override
+    public void send(UUID departing, byte[] payload) {
+        // The player leaving is still listed during their quit event, but their connection is already closing
+        Player carrier = null;
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (!player.getUniqueId().equals(departing)) {
+                carrier = player;
+                break;
+            }
+        }
+        if (carrier == null)
+            return;
+
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        out.writeUTF("Forward");
+        out.writeUTF("ALL");
+        out.writeUTF(LatencyHandoff.CHANNEL);
+        out.writeShort(payload.length);
+        out.write(payload);
+        carrier.sendPluginMessage(plugin, BUNGEE_CHANNEL, out.toByteArray());
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!channel.equals(BUNGEE_CHANNEL))
+            return;
+
+        ByteArrayDataInput in = ByteStreams.newDataInput(message);
+        if (!in.readUTF().equals(LatencyHandoff.CHANNEL))
+            return;
+
+        byte[] payload = new byte[in.readUnsignedShort()];
+        in.readFully(payload);
+        handoff.receive(payload);
+    }
+
+    @Override
+    public void close() {
+        Bukkit.getMessenger().unregisterOutgoingPluginChannel(plugin, BUNGEE_CHANNEL);
+        Bukkit.getMessenger().unregisterIncomingPluginChannel(plugin, BUNGEE_CHANNEL, this);
+    }
+}
@@ -0,0 +1,102 @@
+package me.caseload.knockbacksync.listener.bukkit;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.world.EntityUpdateIntervalPatcher;
+import org.bukkit.entity.Entity;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntitySpawnEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Applies {@code entity_tick_intervals} whenever an entity starts being tracked.
+ * The server creates the tracker after these events fire, so the interval is applied one tick later.
+ */
+public class BukkitEntityTrackListener implements Listener {
+
+    private final EntityUpdateIntervalPatcher patcher;
+
+    public BukkitEntityTrackListener(EntityUpdateIntervalPatcher patcher) {
+        this.patcher = patcher;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        applyLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        applyLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        applyLater(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntitySpawn(EntitySpawnEvent event) {
+        applyLater(event.getEntity());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        applyLater(Arrays.asList(event.getChunk().getEntities()));
+    }
+
+    /**
+     * Since 1.17 entities are loaded separately from chunks, through an event the 1.8.8 API doesn't have.
+     * Registers for it by name when the server provides it.
+     */
+    public void registerEntitiesLoadEvent(Plugin plugin) {
+        Class<? extends Event> eventClass;
+        MethodHandle getEntities;
+        try {
+            eventClass = Class.forName("org.bukkit.event.world.EntitiesLoadEvent").asSubclass(Event.class);
+            getEntities = MethodHandles.publicLookup().findVirtual(eventClass, "getEntities", MethodType.methodType(List.class));
+        } catch (ReflectiveOperationException e) {
+            return;
+        }
+
+        plugin.getServer().getPluginManager().registerEvent(eventClass, this, EventPriority.MONITOR, (listener, event) -> {
+            if (!eventClass.isInstance(event))
+                return;
+            try {
+                applyLater((List<Entity>) getEntities.invoke(event));
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }, plugin);
+    }
+
+    private void applyLater(Entity entity) {
+        Base.INSTANCE.getScheduler().runTaskLater(() -> {
+            if (entity.isValid())
+                patcher.apply(entity);
+        }, 1L);
+    }
+
+    private void applyLater(List<Entity> entities) {
+        if (entities.isEmpty())
+            return;
+        Base.INSTANCE.getScheduler().runTaskLater(() -> {
+            for (Entity entity : entities) {
+                if (entity.isValid())
+                    patcher.apply(entity);
+            }
+        }, 1L);
+    }
+}
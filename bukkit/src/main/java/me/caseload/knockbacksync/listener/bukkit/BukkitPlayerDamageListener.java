@@ -6,8 +6,10 @@ import me.caseload.knockbacksync.util.MultiLibUtil;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
+import org.bukkit.event.entity.EntityDamageEvent;
 
 public class BukkitPlayerDamageListener extends PlayerDamageListener implements Listener {
 
@@ -23,4 +25,22 @@ public class BukkitPlayerDamageListener extends PlayerDamageListener implements
 
         onPlayerDamage(new BukkitPlayer((Player) victim), new BukkitPlayer((Player) attacker));
     }
-}
\ No newline at end of file
+
+    // After every other plugin could cancel the hit, so a cancelled one never leaves its knockback behind
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerDamageMonitor(EntityDamageByEntityEvent event) {
+        Entity victim = event.getEntity();
+        if (!(victim instanceof Player) || !(event.getDamager() instanceof Player))
+            return;
+
+        if (MultiLibUtil.isExternalPlayer((Player) victim))
+            return;
+
+        BukkitPlayer player = new BukkitPlayer((Player) victim);
+        // The same hits BukkitPlayerKnockbackListener adjusts, sweeps and thorns are left alone by both pipelines
+        if (event.isCancelled() || event.getCause() != EntityDamageEvent.DamageCause.ENTITY_ATTACK)
+            onPlayerHitDiscarded(player);
+        else
+            onPlayerHitConfirmed(player);
+    }
+}
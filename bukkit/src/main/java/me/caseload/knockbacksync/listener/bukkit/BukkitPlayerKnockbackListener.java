@@ -1,6 +1,8 @@
 package me.caseload.knockbacksync.listener.bukkit;
 
 import com.github.retrooper.packetevents.util.Vector3d;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.listener.KnockbackPipeline;
 import me.caseload.knockbacksync.listener.PlayerKnockbackListener;
 import me.caseload.knockbacksync.player.BukkitPlayer;
 import me.caseload.knockbacksync.util.MultiLibUtil;
@@ -18,6 +20,10 @@ public class BukkitPlayerKnockbackListener extends PlayerKnockbackListener imple
 
     @EventHandler(priority = EventPriority.NORMAL, ignoreCancelled = true)
     public void onPlayerVelocity(PlayerVelocityEvent event) {
+        // The velocity packet is adjusted instead
+        if (Base.INSTANCE.getConfigManager().getSettings().getKnockbackPipeline() == KnockbackPipeline.PACKET)
+            return;
+
         Player victim = event.getPlayer();
         EntityDamageEvent entityDamageEvent = victim.getLastDamageCause();
         if (entityDamageEvent == null)
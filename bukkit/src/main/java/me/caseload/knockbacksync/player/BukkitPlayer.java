@@ -24,7 +24,6 @@ import java.util.concurrent.atomic.AtomicReference;
 
 public class BukkitPlayer implements PlatformPlayer {
     public final Player bukkitPlayer;
-    private String clientBrand = "vanilla";
 
     // Reflection variables
     private static Class<?> craftPlayerClass;
@@ -204,14 +203,4 @@ public class BukkitPlayer implements PlatformPlayer {
     public User getUser() {
         return PacketEvents.getAPI().getPlayerManager().getUser(bukkitPlayer);
     }
-
-    @Override
-    public void setClientBrand(String brand) {
-        this.clientBrand = brand;
-    }
-
-    @Override
-    public String getClientBrand() {
-        return this.clientBrand;
-    }
 }
\ No newline at end of file
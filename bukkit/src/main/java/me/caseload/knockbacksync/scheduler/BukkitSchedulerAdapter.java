@@ -6,6 +6,7 @@ import org.bukkit.scheduler.BukkitScheduler;
 
 public class BukkitSchedulerAdapter implements SchedulerAdapter {
     private final Plugin plugin;
+    private final PingClock pingClock = new PingClock();
     private final BukkitScheduler scheduler;
 
     public BukkitSchedulerAdapter(Plugin plugin) {
@@ -43,9 +44,14 @@ public class BukkitSchedulerAdapter implements SchedulerAdapter {
         return new BukkitTaskHandle(scheduler.runTaskTimerAsynchronously(plugin, task, delay, period));
     }
 
-    // Bukkit should take care of this for us automatically
     @Override
-    public void shutdown() {
+    public AbstractTaskHandle runTaskTimerMillis(Runnable task, long delayMillis, long periodMillis, long jitterMillis) {
+        return pingClock.schedule(task, delayMillis, periodMillis, jitterMillis);
+    }
 
+    // Bukkit takes care of its own tasks, we only need to stop our ping clock
+    @Override
+    public void shutdown() {
+        pingClock.shutdown();
     }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import java.util.concurrent.TimeUnit;
 
 public class FoliaSchedulerAdapter implements SchedulerAdapter {
     private final Plugin plugin;
+    private final PingClock pingClock = new PingClock();
 
     public FoliaSchedulerAdapter(Plugin plugin) {
         this.plugin = plugin;
@@ -43,9 +44,14 @@ public class FoliaSchedulerAdapter implements SchedulerAdapter {
         return new FoliaTaskHandle(FoliaScheduler.getAsyncScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(), delay, period));
     }
 
-    // Folia takes care of this
     @Override
-    public void shutdown() {
+    public AbstractTaskHandle runTaskTimerMillis(Runnable task, long delayMillis, long periodMillis, long jitterMillis) {
+        return pingClock.schedule(task, delayMillis, periodMillis, jitterMillis);
+    }
 
+    // Folia takes care of its own tasks, we only need to stop our ping clock
+    @Override
+    public void shutdown() {
+        pingClock.shutdown();
     }
 }
\ No newline at end of file
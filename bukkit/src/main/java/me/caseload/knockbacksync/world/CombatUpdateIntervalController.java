@@ -0,0 +1,89 @@
+package me.caseload.knockbacksync.world;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.CombatStateChangeEvent;
+import me.caseload.knockbacksync.manager.CombatManager;
+import me.caseload.knockbacksync.scheduler.AbstractTaskHandle;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Switches player tracker update intervals between {@code combat_tick_interval.interval} and
+ * {@code entity_tick_intervals.player} depending on who is fighting.
+ * <p>
+ * Players in combat, and players tracked by someone in combat, get the combat interval. Since who tracks whom
+ * changes as players move, the intervals are re-evaluated every few ticks while at least one fight is going on.
+ */
+public class CombatUpdateIntervalController {
+
+    private static final long SWEEP_INTERVAL_TICKS = 5L;
+
+    private final EntityUpdateIntervalPatcher patcher;
+    // Only touched on the main thread
+    private AbstractTaskHandle sweepTask;
+
+    public CombatUpdateIntervalController(EntityUpdateIntervalPatcher patcher) {
+        this.patcher = patcher;
+    }
+
+    @KBSyncEventHandler
+    public void onCombatStateChange(CombatStateChangeEvent event) {
+        // Combat ends on an async task
+        Base.INSTANCE.getScheduler().runTask(this::update);
+    }
+
+    /**
+     * Starts or stops the periodic sweep and applies the current intervals right away.
+     * Must be called on the main thread.
+     */
+    public void update() {
+        boolean active = Base.INSTANCE.getConfigManager().getSettings().isCombatTickIntervalEnabled()
+                && !CombatManager.getPlayers().isEmpty();
+
+        if (active && sweepTask == null) {
+            sweepTask = Base.INSTANCE.getScheduler().runTaskTimer(this::sweep, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+        } else if (!active) {
+            if (sweepTask == null)
+                return; // Already idle
+
+            sweepTask.cancel();
+            sweepTask = null;
+        }
+
+        sweep(); // When no longer active this puts everyone back on the idle interval
+    }
+
+    private void sweep() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        int idleInterval = settings.getPlayerTickInterval();
+        int combatInterval = settings.getCombatTickInterval();
+        Set<UUID> inCombat = CombatManager.getPlayers();
+
+        List<Player> combatants = new ArrayList<>();
+        if (settings.isCombatTickIntervalEnabled()) {
+            for (UUID uuid : inCombat) {
+                Player player = Bukkit.getPlayer(uuid);
+                if (player != null)
+                    combatants.add(player);
+            }
+        }
+
+        // Resolved once per sweep, every player's tracker is checked against the same set
+        Set<Object> combatantConnections = patcher.getConnections(combatants);
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (combatantConnections.isEmpty())
+                patcher.setUpdateInterval(player, idleInterval);
+            else if (inCombat.contains(player.getUniqueId()))
+                patcher.setUpdateInterval(player, combatInterval);
+            else
+                patcher.setUpdateInterval(player, combatantConnections, combatInterval, idleInterval);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package me.caseload.knockbacksync.world;
+
+import me.caseload.knockbacksync.Base;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Overrides the update interval of an entity's server side tracker ({@code ServerEntity.updateInterval}),
+ * which decides how often movement and velocity of that entity are sent to the players tracking it.
+ * <p>
+ * The reflective lookups are resolved once on first use and cached as {@link MethodHandle}s.
+ * Must be used from the main thread. Only supports Mojang-mapped servers (1.20.5+).
+ */
+public class EntityUpdateIntervalPatcher {
+
+    private MethodHandle getWorldHandle;   // CraftWorld -> ServerLevel
+    private MethodHandle getChunkSource;   // ServerLevel -> ServerChunkCache
+    private MethodHandle getChunkMap;      // ServerChunkCache -> ChunkMap
+    private MethodHandle getEntityMap;     // ChunkMap -> Int2ObjectMap<TrackedEntity>
+    private MethodHandle getServerEntity;  // TrackedEntity -> ServerEntity
+    private MethodHandle getSeenBy;        // TrackedEntity -> Set<ServerPlayerConnection>
+    private MethodHandle setUpdateInterval; // ServerEntity.updateInterval = int
+    private MethodHandle getPlayerHandle;  // CraftPlayer -> ServerPlayer
+    private MethodHandle getConnection;    // ServerPlayer -> ServerGamePacketListenerImpl
+
+    // ServerEntity -> interval last written to it. Trackers are recreated when an entity changes worlds or
+    // respawns, the new ServerEntity starts without an entry and the old one is dropped once collected
+    private final Map<Object, Integer> appliedIntervals = new WeakHashMap<>();
+
+    private boolean resolved;
+    private boolean unsupported;
+
+    /**
+     * Applies the configured interval for the entity's type, if one is configured.
+     */
+    public void apply(Entity entity) {
+        String type = entity.getType().getName();
+        if (type == null)
+            return;
+
+        Integer interval = Base.INSTANCE.getConfigManager().getSettings().getEntityTickIntervals()
+                .get(type.toLowerCase(Locale.ROOT));
+        if (interval != null)
+            setUpdateInterval(entity, interval);
+    }
+
+    /**
+     * Applies the configured intervals to every entity in every world.
+     * Meant for startup and config changes, entities tracked later are handled as they appear.
+     */
+    public void applyAll() {
+        for (World world : Bukkit.getWorlds()) {
+            for (Entity entity : world.getEntities())
+                apply(entity);
+        }
+    }
+
+    /**
+     * @return Whether the interval was set, false if the entity is not currently tracked.
+     */
+    public boolean setUpdateInterval(Entity entity, int interval) {
+        Object trackedEntity = getTrackedEntity(entity);
+        if (trackedEntity == null)
+            return false;
+
+        write(trackedEntity, interval);
+        return true;
+    }
+
+    /**
+     * Sets {@code viewedInterval} if any of the viewers currently receives updates about the entity and
+     * {@code interval} otherwise, looking the entity's tracker up only once.
+     *
+     * @param viewers Connections from {@link #getConnections(Collection)}.
+     * @return Whether the interval was set, false if the entity is not currently tracked.
+     */
+    public boolean setUpdateInterval(Entity entity, Set<?> viewers, int viewedInterval, int interval) {
+        Object trackedEntity = getTrackedEntity(entity);
+        if (trackedEntity == null)
+            return false;
+
+        boolean viewed = false;
+        try {
+            Set<?> seenBy = (Set<?>) getSeenBy.invoke(trackedEntity);
+            for (Object viewer : viewers) {
+                if (seenBy.contains(viewer)) {
+                    viewed = true;
+                    break;
+                }
+            }
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to read the viewers of " + entity, t);
+        }
+
+        write(trackedEntity, viewed ? viewedInterval : interval);
+        return true;
+    }
+
+    /**
+     * Resolves the network connections of the players, to be checked against trackers by
+     * {@link #setUpdateInterval(Entity, Set, int, int)}.
+     */
+    public Set<Object> getConnections(Collection<? extends Player> players) {
+        Set<Object> connections = new HashSet<>();
+        for (Player player : players) {
+            if (!resolve(player))
+                break;
+
+            try {
+                connections.add(getConnection.invoke(getPlayerHandle.invoke(player)));
+            } catch (Throwable t) {
+                throw new IllegalStateException("Unable to look up the connection of " + player, t);
+            }
+        }
+        return connections;
+    }
+
+    private void write(Object trackedEntity, int interval) {
+        try {
+            Object serverEntity = getServerEntity.invoke(trackedEntity);
+            Integer applied = appliedIntervals.get(serverEntity);
+            if (applied != null && applied == interval)
+                return;
+
+            setUpdateInterval.invoke(serverEntity, interval);
+            appliedIntervals.put(serverEntity, interval);
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to modify updateInterval", t);
+        }
+    }
+
+    private Object getTrackedEntity(Entity entity) {
+        if (!resolve(entity))
+            return null;
+
+        try {
+            Object serverLevel = getWorldHandle.invoke(entity.getWorld());
+            Object chunkMap = getChunkMap.invoke(getChunkSource.invoke(serverLevel));
+            return ((Map<?, ?>) getEntityMap.invoke(chunkMap)).get(entity.getEntityId());
+        } catch (Throwable t) {
+            throw new IllegalStateException("Unable to look up the tracker of " + entity, t);
+        }
+    }
+
+    private boolean resolve(Entity entity) {
+        if (resolved)
+            return true;
+        if (unsupported)
+            return false;
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            World world = entity.getWorld();
+
+            Method getHandleMethod = world.getClass().getMethod("getHandle");
+            Object serverLevel = getHandleMethod.invoke(world);
+            Method getChunkSourceMethod = serverLevel.getClass().getMethod("getChunkSource");
+            Object chunkSource = getChunkSourceMethod.invoke(serverLevel);
+            Field chunkMapField = findField(chunkSource.getClass(), "chunkMap");
+            Field entityMapField = findField(chunkMapField.getType(), "entityMap");
+
+            // TrackedEntity is a non-public inner class of ChunkMap, find it through its serverEntity field
+            Field serverEntityField = null;
+            for (Class<?> inner : chunkMapField.getType().getDeclaredClasses()) {
+                try {
+                    serverEntityField = findField(inner, "serverEntity");
+                    break;
+                } catch (NoSuchFieldException ignored) {
+                }
+            }
+            if (serverEntityField == null)
+                throw new NoSuchFieldException("serverEntity");
+            Field seenByField = findField(serverEntityField.getDeclaringClass(), "seenBy");
+            Field updateIntervalField = findField(serverEntityField.getType(), "updateInterval");
+
+            // CraftPlayer lives next to CraftWorld, resolved by name so this works before anyone is online
+            Class<?> craftWorldClass = world.getClass();
+            Class<?> craftPlayerClass = Class.forName(craftWorldClass.getPackage().getName() + ".entity.CraftPlayer",
+                    false, craftWorldClass.getClassLoader());
+            Method getPlayerHandleMethod = craftPlayerClass.getMethod("getHandle");
+            Field connectionField = getPlayerHandleMethod.getReturnType().getField("connection");
+
+            getWorldHandle = lookup.unreflect(getHandleMethod);
+            getChunkSource = lookup.unreflect(getChunkSourceMethod);
+            getChunkMap = lookup.unreflectGetter(chunkMapField);
+            getEntityMap = lookup.unreflectGetter(entityMapField);
+            getServerEntity = lookup.unreflectGetter(serverEntityField);
+            getSeenBy = lookup.unreflectGetter(seenByField);
+            getPlayerHandle = lookup.unreflect(getPlayerHandleMethod);
+            getConnection = lookup.unreflectGetter(connectionField);
+            // The field is final, writing it is only allowed through an accessible Field
+            setUpdateInterval = lookup.unreflectSetter(updateIntervalField);
+            resolved = true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsupported = true;
+            Base.LOGGER.warning("Unable to resolve entity tracker internals, entity_tick_intervals will be ignored: " + e);
+        }
+        return resolved;
+    }
+
+    private static Field findField(Class<?> clazz, String name) throws NoSuchFieldException {
+        Field field = clazz.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
@@ -6,24 +6,45 @@ import me.caseload.knockbacksync.command.MainCommand;
 import me.caseload.knockbacksync.command.generic.AbstractPlayerSelectorParser;
 import me.caseload.knockbacksync.command.generic.BuilderCommand;
 import me.caseload.knockbacksync.command.subcommand.PingCommand;
+import me.caseload.knockbacksync.command.subcommand.ProfileCommand;
 import me.caseload.knockbacksync.command.subcommand.ReloadCommand;
+import me.caseload.knockbacksync.command.subcommand.StatsCommand;
 import me.caseload.knockbacksync.command.subcommand.StatusCommand;
 import me.caseload.knockbacksync.command.subcommand.ToggleCommand;
 import me.caseload.knockbacksync.command.subcommand.ToggleOffGroundSubcommand;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.event.Event;
 import me.caseload.knockbacksync.event.EventBus;
 import me.caseload.knockbacksync.event.OptimizedEventBus;
+import me.caseload.knockbacksync.event.events.TickRateChangedEvent;
+import me.caseload.knockbacksync.handoff.HandoffTransport;
+import me.caseload.knockbacksync.handoff.LatencyHandoff;
+import me.caseload.knockbacksync.handoff.RelayHandoffTransport;
+import me.caseload.knockbacksync.latency.LatencyProfile;
+import me.caseload.knockbacksync.latency.LatencyProfileStore;
 import me.caseload.knockbacksync.listener.packetevents.AttributeChangeListener;
 import me.caseload.knockbacksync.listener.packetevents.ClientBrandListener;
+import me.caseload.knockbacksync.listener.packetevents.EntityMovementPacketListener;
+import me.caseload.knockbacksync.listener.packetevents.ExemptionListener;
+import me.caseload.knockbacksync.listener.packetevents.KnockbackPacketListener;
 import me.caseload.knockbacksync.listener.packetevents.PingReceiveListener;
 import me.caseload.knockbacksync.listener.packetevents.PingSendListener;
+import me.caseload.knockbacksync.listener.packetevents.VelocityAckListener;
+import me.caseload.knockbacksync.load.LoadGovernor;
 import me.caseload.knockbacksync.manager.ConfigManager;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.metrics.MetricsExporter;
 import me.caseload.knockbacksync.permission.PermissionChecker;
+import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.recorder.SessionRecorder;
+import me.caseload.knockbacksync.runnable.ProbeTimeoutRunnable;
 import me.caseload.knockbacksync.scheduler.SchedulerAdapter;
 import me.caseload.knockbacksync.sender.Sender;
 import me.caseload.knockbacksync.stats.custom.ClientBrandsPie;
 import me.caseload.knockbacksync.stats.custom.PluginJarHashProvider;
 import me.caseload.knockbacksync.stats.custom.StatsManager;
+import me.caseload.knockbacksync.util.FloodgateUtil;
+import me.caseload.knockbacksync.util.GeyserUtil;
 import me.caseload.knockbacksync.world.PlatformServer;
 import org.incendo.cloud.CommandManager;
 import org.kohsuke.github.GitHub;
@@ -51,15 +72,29 @@ public abstract class Base {
     @Getter protected ConfigManager configManager;
     @Getter protected CommandManager<Sender> commandManager;
     @Getter protected final EventBus eventBus = new OptimizedEventBus();
+    @Getter protected final EntityMovementPacketListener entityMovementPacketListener = new EntityMovementPacketListener();
+    @Getter protected final MetricsExporter metricsExporter = new MetricsExporter();
+    @Getter protected final SessionRecorder sessionRecorder = new SessionRecorder();
+    @Getter protected final LatencyProfileStore latencyProfileStore = new LatencyProfileStore();
+    @Getter protected final LatencyHandoff latencyHandoff = new LatencyHandoff();
+    @Getter protected final LoadGovernor loadGovernor = new LoadGovernor();
 
     @Getter
     protected AbstractPlayerSelectorParser<Sender> playerSelectorParser;
 
+    // Sampled by the platform once per tick, read from any thread
+    private volatile TickRate tickRate = new TickRate(20.0f);
+
     protected Base() {
         this.platform = detectPlatform();
         INSTANCE = this;
     }
 
+    protected Base(Platform platform) {
+        this.platform = platform;
+        INSTANCE = this;
+    }
+
     private Platform detectPlatform() {
         final Map<String, Platform> platforms = Collections.unmodifiableMap(new HashMap<String, Platform>() {{
             put("io.papermc.paper.threadedregions.RegionizedServer", Platform.FOLIA);
@@ -94,16 +129,46 @@ public abstract class Base {
     public void enable() {
         LOGGER = getLogger();
         saveDefaultConfig();
+        initializeScheduler();
+        // Loaded before any listener is registered so they never observe missing settings
+        configManager.loadConfig(false);
         initializePacketEvents();
+        GeyserUtil.init();
+        FloodgateUtil.init();
         registerCommonListeners();
         registerPlatformListeners();
         registerCommands();
-        initializeScheduler();
-        configManager.loadConfig(false);
+        eventBus.registerListeners(metricsExporter);
+        metricsExporter.start();
+        eventBus.registerListeners(sessionRecorder);
+        sessionRecorder.start();
+        eventBus.registerListeners(latencyProfileStore);
+        latencyProfileStore.start();
+        eventBus.registerListeners(latencyHandoff);
+        latencyHandoff.start();
         statsManager.init();
         checkForUpdates();
     }
 
+    public void disable() {
+        metricsExporter.stop();
+        sessionRecorder.stop();
+        // Players still online are kicked after plugins are disabled, their quit would come too late
+        for (PlayerData playerData : PlayerDataManager.getAllPlayerData()) {
+            LatencyProfile profile = playerData.createLatencyProfile();
+            if (profile != null)
+                latencyProfileStore.save(playerData.getUuid(), profile);
+        }
+        latencyProfileStore.stop();
+        latencyHandoff.stop();
+        if (configManager != null) {
+            configManager.stopConfigWatcher();
+            configManager.flushConfig();
+        }
+        if (scheduler != null)
+            scheduler.shutdown();
+    }
+
     public abstract void initializeScheduler();
 
     public void initializePacketEvents() {
@@ -116,22 +181,41 @@ public abstract class Base {
 
     protected void registerCommonListeners() {
         PacketEvents.getAPI().getEventManager().registerListeners(
+                new ExemptionListener(),
                 new AttributeChangeListener(),
                 new PingSendListener(),
                 new PingReceiveListener(),
-                new ClientBrandListener()
+                new ClientBrandListener(),
+                new KnockbackPacketListener(),
+                new VelocityAckListener(),
+                entityMovementPacketListener
         );
         Event.setEventBus(eventBus);
+        scheduler.runTaskTimerAsynchronously(entityMovementPacketListener::tick, 1L, 1L);
+        scheduler.runTaskTimerAsynchronously(new ProbeTimeoutRunnable(), 20L, 20L);
     }
 
     protected abstract void registerPlatformListeners();
 
+    /**
+     * @return The transport for the proxy latency hand-off, or null if the type is not supported on this platform.
+     */
+    public HandoffTransport createHandoffTransport(String type) {
+        if (!type.equals("RELAY"))
+            return null;
+
+        KbSyncSettings settings = configManager.getSettings();
+        return new RelayHandoffTransport(settings.getProxyHandoffRelayHost(), settings.getProxyHandoffRelayPort(), latencyHandoff);
+    }
+
     protected void registerCommands() {
         List<BuilderCommand> list = Arrays.asList(
                 new MainCommand(),
                 new ReloadCommand(),
                 new PingCommand(),
                 new StatusCommand(),
+                new StatsCommand(),
+                new ProfileCommand(),
                 new ToggleOffGroundSubcommand(),
                 new ToggleCommand()
         );
@@ -167,7 +251,7 @@ public abstract class Base {
                     LOGGER.info("You are running the latest release.");
                 }
 
-                if (configManager.isUpdateAvailable() && configManager.isAutoUpdate()) {
+                if (configManager.isUpdateAvailable() && configManager.getSettings().isAutoUpdate()) {
                     LOGGER.info("Updating...");
                     byte[] bytes = downloadLatestRelease(github);
                     updatePlugin(bytes);
@@ -277,7 +361,40 @@ public abstract class Base {
 
     public abstract PermissionChecker getPermissionChecker();
 
-    public abstract float getTickRate();
+    public float getTickRate() {
+        return tickRate.rate;
+    }
+
+    public double getMillisPerTick() {
+        return tickRate.millisPerTick;
+    }
+
+    /**
+     * Publishes the server's current tick rate, posting a {@link TickRateChangedEvent} if it changed.
+     * Platforms call this once per tick from the main thread.
+     */
+    protected void updateTickRate(float newTickRate) {
+        float oldTickRate = tickRate.rate;
+        // Skip the volatile store and the event when nothing changed, which is almost every tick
+        if (newTickRate == oldTickRate)
+            return;
+
+        tickRate = new TickRate(newTickRate);
+        new TickRateChangedEvent(oldTickRate, newTickRate).post();
+    }
+
+    /**
+     * The tick rate and its milliseconds per tick, published together so readers never see one without the other.
+     */
+    private static final class TickRate {
+        final float rate;
+        final double millisPerTick;
+
+        TickRate(float rate) {
+            this.rate = rate;
+            this.millisPerTick = 1000.0 / rate;
+        }
+    }
 
     public abstract URL getJarURL();
 
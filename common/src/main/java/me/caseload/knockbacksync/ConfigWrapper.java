@@ -34,6 +34,11 @@ public class ConfigWrapper {
         return NumberConversions.toLong(value, def);
     }
 
+    public double getDouble(String path, double def) {
+        Object value = getValue(path);
+        return NumberConversions.toDouble(value, def);
+    }
+
     public void set(String path, Object value) {
         setValue(path, value);
     }
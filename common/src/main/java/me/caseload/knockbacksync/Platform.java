@@ -3,5 +3,6 @@ package me.caseload.knockbacksync;
 public enum Platform {
     FABRIC,
     BUKKIT,
-    FOLIA
+    FOLIA,
+    HEADLESS // No server, the offline replay tool
 }
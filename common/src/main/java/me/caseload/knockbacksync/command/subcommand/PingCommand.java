@@ -1,15 +1,13 @@
 package me.caseload.knockbacksync.command.subcommand;
 
 import me.caseload.knockbacksync.Base;
-import me.caseload.knockbacksync.ConfigWrapper;
 import me.caseload.knockbacksync.command.generic.BuilderCommand;
 import me.caseload.knockbacksync.command.generic.PlayerSelector;
-import me.caseload.knockbacksync.event.KBSyncEventHandler;
-import me.caseload.knockbacksync.event.events.ConfigReloadEvent;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.LatencyState;
 import me.caseload.knockbacksync.player.PlayerData;
 import me.caseload.knockbacksync.sender.Sender;
-import me.caseload.knockbacksync.util.ChatUtil;
 import org.incendo.cloud.CommandManager;
 import org.incendo.cloud.permission.PredicatePermission;
 
@@ -18,19 +16,6 @@ import java.util.function.Predicate;
 
 public class PingCommand implements BuilderCommand {
 
-    private String pingSelfAvailableMessage;
-    private String pingSelfUnavailableMessage;
-    private String pingOtherAvailableMessage;
-    private String pingOtherUnavailableMessage;
-
-    private String mustSpecifyPlayerFromConsoleMessage;
-    private String knockbacksyncDisabledForYouMessage;
-    private String knockbacksyncDisabledForTargetMessage;
-
-    public PingCommand() {
-        loadConfig();
-    }
-
     public void register(CommandManager<Sender> manager) {
         manager.command(
             manager.commandBuilder("knockbacksync", "kbsync", "kbs")
@@ -49,7 +34,7 @@ public class PingCommand implements BuilderCommand {
 
                     if (targetSelector == null) {
                         if (context.sender().isConsole()) {
-                            context.sender().sendMessage(ChatUtil.translateAlternateColorCodes('&', mustSpecifyPlayerFromConsoleMessage));
+                            context.sender().sendMessage(Base.INSTANCE.getConfigManager().getSettings().getMustSpecifyPlayerFromConsoleMessage());
                         } else {
                             context.sender().sendMessage(getPingMessage(context.sender().getUniqueId(), null));
                         }
@@ -58,27 +43,10 @@ public class PingCommand implements BuilderCommand {
                     }
                 })
         );
-        Base.INSTANCE.getEventBus().registerListeners(this);
-    }
-    private void loadConfig() {
-        ConfigWrapper configWrapper = Base.INSTANCE.getConfigManager().getConfigWrapper();
-        pingSelfAvailableMessage = configWrapper.getString("messages.ping.self.available",
-                "Your real ping is &b%ping%&rms. Jitter: &b%jitter%&rms. Spike: &b%spike%&r. Compensated ping: &b%compensated%&rms.");
-        pingSelfUnavailableMessage = configWrapper.getString("messages.ping.self.unavailable",
-                "Accurate ping unavailable. Your estimated ping is &b%ping%&rms.");
-        pingOtherAvailableMessage = configWrapper.getString("messages.ping.other.available",
-                "%player%'s real ping is &b%ping%&rms. Jitter: &b%jitter%&rms. Spike: &b%spike%&r. Compensated ping: &b%compensated%&rms.");
-        pingOtherUnavailableMessage = configWrapper.getString("messages.ping.other.unavailable",
-                "Accurate ping unavailable. %player%'s estimated ping is &b%ping%&rms.");
-        mustSpecifyPlayerFromConsoleMessage = configWrapper.getString("messages.console.must_specify_player",
-                "&cYou must specify a player to use the knockbacksync ping command from the console.");
-        knockbacksyncDisabledForYouMessage = configWrapper.getString("messages.disabled.self",
-                "&cKnockback synchronization is currently disabled for you!");
-        knockbacksyncDisabledForTargetMessage = configWrapper.getString("messages.disabled.target",
-                "&cKnockback synchronization is currently disabled for the target player.");
     }
 
     private String getPingMessage(UUID senderUUID, UUID targetUUID) {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
         PlayerData playerData = null;
         boolean isSelf = senderUUID.equals(targetUUID) || targetUUID == null;
 
@@ -89,36 +57,39 @@ public class PingCommand implements BuilderCommand {
         if (isSelf) {
             playerData = PlayerDataManager.getPlayerData(senderUUID);
             if (playerData == null) {
-                return ChatUtil.translateAlternateColorCodes('&', knockbacksyncDisabledForYouMessage);
+                return settings.getDisabledForYouMessage();
             }
         } else {
             playerData = PlayerDataManager.getPlayerData(targetUUID);
             if (playerData == null) {
-                return ChatUtil.translateAlternateColorCodes('&', knockbacksyncDisabledForTargetMessage);
+                return settings.getDisabledForTargetMessage();
             }
         }
 
-        String rawReturnString;
+        String returnString;
         if (playerData.getPing() == null) {
-            rawReturnString = isSelf ? pingSelfUnavailableMessage : pingOtherUnavailableMessage;
+            returnString = isSelf ? settings.getPingSelfUnavailableMessage() : settings.getPingOtherUnavailableMessage();
         } else {
-            rawReturnString = isSelf ? pingSelfAvailableMessage : pingOtherAvailableMessage;
+            returnString = isSelf ? settings.getPingSelfAvailableMessage() : settings.getPingOtherAvailableMessage();
         }
 
-        rawReturnString = rawReturnString
+        LatencyState latencyState = playerData.getLatencyState();
+        returnString = returnString
                 .replace("%player%", playerData.getPlatformPlayer().getName())
                 .replace("%ping%", playerData.getPing() == null ?
                         String.valueOf(playerData.getPlatformPlayer().getPing()) :
                         String.format("%.3f", playerData.getPing()))
                 .replace("%jitter%", String.format("%.3f", playerData.getJitter()))
                 .replace("%spike%", String.valueOf(playerData.isSpike()))
-                .replace("%compensated%", String.format("%.3f", playerData.getCompensatedPing()));
+                .replace("%compensated%", String.format("%.3f", playerData.getCompensatedPing()))
+                .replace("%estimator%", settings.getLatencyEstimatorType().name())
+                .replace("%estimate%", formatEstimate(latencyState.getEstimatedPing()))
+                .replace("%deviation%", formatEstimate(latencyState.getEstimatedDeviation()));
 
-        return ChatUtil.translateAlternateColorCodes('&', rawReturnString);
+        return returnString;
     }
 
-    @KBSyncEventHandler
-    public void onConfigReload(ConfigReloadEvent event) {
-        loadConfig();
+    private static String formatEstimate(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.3f", value);
     }
 }
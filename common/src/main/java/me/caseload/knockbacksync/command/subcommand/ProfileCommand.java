@@ -0,0 +1,81 @@
+package me.caseload.knockbacksync.command.subcommand;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.command.generic.BuilderCommand;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.latency.LatencyHistogram;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
+import me.caseload.knockbacksync.sender.Sender;
+import org.incendo.cloud.CommandManager;
+import org.incendo.cloud.permission.PredicatePermission;
+
+import java.util.Locale;
+import java.util.function.Predicate;
+
+public class ProfileCommand implements BuilderCommand {
+
+    private static final String PROFILE_PERMISSION = "knockbacksync.profile";
+    private static final Predicate<Sender> senderPredicate = (s) -> s.hasPermission(PROFILE_PERMISSION, false);
+
+    public void register(CommandManager<Sender> manager) {
+        manager.command(
+            manager.commandBuilder("knockbacksync", "kbsync", "kbs")
+                .literal("profile")
+                .literal("start")
+                .permission((sender -> PredicatePermission.of(senderPredicate).testPermission(sender)))
+                .handler(context -> {
+                    KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+                    HotPathProfiler.begin(settings.getProfilerSampleRate());
+                    context.sender().sendMessage(settings.getProfileStartedMessage()
+                            .replace("%rate%", String.valueOf(HotPathProfiler.getSampleRate())));
+                })
+        );
+
+        manager.command(
+            manager.commandBuilder("knockbacksync", "kbsync", "kbs")
+                .literal("profile")
+                .literal("stop")
+                .permission((sender -> PredicatePermission.of(senderPredicate).testPermission(sender)))
+                .handler(context -> {
+                    HotPathProfiler.end();
+                    context.sender().sendMessage(Base.INSTANCE.getConfigManager().getSettings().getProfileStoppedMessage());
+                })
+        );
+
+        manager.command(
+            manager.commandBuilder("knockbacksync", "kbsync", "kbs")
+                .literal("profile")
+                .literal("dump")
+                .permission((sender -> PredicatePermission.of(senderPredicate).testPermission(sender)))
+                .handler(context -> context.sender().sendMessage(dump()))
+        );
+    }
+
+    private String dump() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        StringBuilder message = new StringBuilder(settings.getProfileHeaderMessage()
+                .replace("%rate%", String.valueOf(HotPathProfiler.getSampleRate())));
+
+        boolean any = false;
+        for (HotPathProfiler.Section section : HotPathProfiler.Section.values()) {
+            LatencyHistogram histogram = HotPathProfiler.getHistogram(section);
+            long samples = histogram.getTotalCount();
+            if (samples == 0)
+                continue;
+
+            any = true;
+            message.append('\n').append(settings.getProfileSectionMessage()
+                    .replace("%section%", section.name().toLowerCase(Locale.ROOT))
+                    .replace("%samples%", String.valueOf(samples))
+                    .replace("%p50%", formatMicros(histogram.getValueAtPercentile(50)))
+                    .replace("%p99%", formatMicros(histogram.getValueAtPercentile(99)))
+                    .replace("%max%", formatMicros(histogram.getMax())));
+        }
+
+        return any ? message.toString() : settings.getProfileEmptyMessage();
+    }
+
+    private static String formatMicros(long nanos) {
+        return String.format("%.1f", nanos / 1000.0);
+    }
+}
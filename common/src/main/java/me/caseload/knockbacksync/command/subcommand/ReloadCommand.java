@@ -2,11 +2,8 @@ package me.caseload.knockbacksync.command.subcommand;
 
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.command.generic.BuilderCommand;
-import me.caseload.knockbacksync.event.events.ConfigReloadEvent;
-import me.caseload.knockbacksync.event.KBSyncEventHandler;
 import me.caseload.knockbacksync.manager.ConfigManager;
 import me.caseload.knockbacksync.sender.Sender;
-import me.caseload.knockbacksync.util.ChatUtil;
 import org.incendo.cloud.CommandManager;
 import org.incendo.cloud.permission.PredicatePermission;
 
@@ -15,7 +12,6 @@ import java.util.function.Predicate;
 public class ReloadCommand implements BuilderCommand {
 
     private final ConfigManager configManager = Base.INSTANCE.getConfigManager();
-    private String rawReloadMessage = configManager.getConfigWrapper().getString("messages.reload.success", "&aSuccessfully reloaded KnockbackSync.");
 
     public void register(CommandManager<Sender> manager) {
         manager.command(
@@ -30,21 +26,11 @@ public class ReloadCommand implements BuilderCommand {
                             return PredicatePermission.of(senderPredicate).testPermission(sender);
                         }))
                         .handler(context -> {
-                            configManager.loadConfig(true);
+                            // Only the settings that actually changed are re-applied
+                            configManager.reloadChanges();
 
-                            // Fire the ConfigReloadEvent
-                            new ConfigReloadEvent(configManager).post();
-
-                            String reloadMessage = ChatUtil.translateAlternateColorCodes('&', rawReloadMessage);
-
-                            context.sender().sendMessage(reloadMessage);
+                            context.sender().sendMessage(configManager.getSettings().getReloadMessage());
                         })
         );
-        Base.INSTANCE.getEventBus().registerListeners(this);
-    }
-
-    @KBSyncEventHandler
-    public void onConfigReload(ConfigReloadEvent event) {
-        rawReloadMessage = event.getConfigManager().getConfigWrapper().getString("messages.reload.success", "&aSuccessfully reloaded KnockbackSync.");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package me.caseload.knockbacksync.command.subcommand;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.command.generic.BuilderCommand;
+import me.caseload.knockbacksync.command.generic.PlayerSelector;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.latency.LatencyStats;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlatformPlayer;
+import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.sender.Sender;
+import org.incendo.cloud.CommandManager;
+import org.incendo.cloud.permission.PredicatePermission;
+
+import java.util.function.Predicate;
+
+public class StatsCommand implements BuilderCommand {
+
+    public void register(CommandManager<Sender> manager) {
+        manager.command(
+            manager.commandBuilder("knockbacksync", "kbsync", "kbs")
+                .literal("stats")
+                .optional("target", Base.INSTANCE.getPlayerSelectorParser().descriptor())
+                .permission((sender -> {
+                    final String permission = "knockbacksync.stats";
+                    Predicate<Sender> senderPredicate = (s) -> {
+                        return s.hasPermission(permission, false);
+                    };
+
+                    return PredicatePermission.of(senderPredicate).testPermission(sender);
+                }))
+                .handler(context -> {
+                    KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+                    PlayerSelector targetSelector = context.getOrDefault("target", null);
+
+                    if (targetSelector == null) {
+                        context.sender().sendMessage(formatStats(settings.getStatsServerMessage(), LatencyStats.SERVER, "", settings));
+                        return;
+                    }
+
+                    PlatformPlayer target = targetSelector.getSinglePlayer();
+                    PlayerData playerData = PlayerDataManager.getPlayerData(target.getUUID());
+                    if (playerData == null) {
+                        context.sender().sendMessage(settings.getDisabledForTargetMessage());
+                        return;
+                    }
+                    context.sender().sendMessage(formatStats(settings.getStatsPlayerMessage(), playerData.getLatencyStats(), target.getName(), settings));
+                })
+        );
+    }
+
+    private String formatStats(String message, LatencyStats stats, String playerName, KbSyncSettings settings) {
+        if (stats.getSampleCount() == 0)
+            message = settings.getStatsNoSamplesMessage();
+
+        return message
+                .replace("%player%", playerName)
+                .replace("%p50%", String.format("%.1f", stats.getPercentileMillis(50)))
+                .replace("%p95%", String.format("%.1f", stats.getPercentileMillis(95)))
+                .replace("%p99%", String.format("%.1f", stats.getPercentileMillis(99)))
+                .replace("%max%", String.format("%.1f", stats.getMaxMillis()))
+                .replace("%samples%", String.valueOf(stats.getSampleCount()))
+                .replace("%lost%", String.valueOf(stats.getLostProbeCount()));
+    }
+}
@@ -1,9 +1,9 @@
 package me.caseload.knockbacksync.command.subcommand;
 import com.github.retrooper.packetevents.protocol.player.Combat;
 import me.caseload.knockbacksync.Base;
-import me.caseload.knockbacksync.ConfigWrapper;
 import me.caseload.knockbacksync.command.generic.BuilderCommand;
 import me.caseload.knockbacksync.command.generic.PlayerSelector;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.event.events.ToggleOnOffEvent;
 import me.caseload.knockbacksync.manager.CombatManager;
 import me.caseload.knockbacksync.manager.ConfigManager;
@@ -12,7 +12,6 @@ import me.caseload.knockbacksync.permission.PermissionChecker;
 import me.caseload.knockbacksync.player.PlatformPlayer;
 import me.caseload.knockbacksync.player.PlayerData;
 import me.caseload.knockbacksync.sender.Sender;
-import me.caseload.knockbacksync.util.ChatUtil;
 import org.incendo.cloud.CommandManager;
 import org.incendo.cloud.permission.PredicatePermission;
 
@@ -27,27 +26,6 @@ public class ToggleCommand implements BuilderCommand {
     private static final String TOGGLE_SELF_PERMISSION = "knockbacksync.toggle.self";
     private static final String TOGGLE_OTHER_PERMISSION = "knockbacksync.toggle.other";
 
-    private String noGlobalPermissionMessage;
-    private String noSelfPermissionMessage;
-    private String noOtherPermissionMessage;
-    private String serverDisabledMessage;
-
-    public ToggleCommand() {
-        loadConfig();
-    }
-
-    private void loadConfig() {
-        ConfigWrapper configWrapper = configManager.getConfigWrapper();
-        noGlobalPermissionMessage = configWrapper.getString("messages.toggle.permission.no_global",
-                "&cYou don't have permission to toggle the global setting.");
-        noSelfPermissionMessage = configWrapper.getString("messages.toggle.permission.no_self",
-                "&cYou do not have permission to toggle your knockback.");
-        noOtherPermissionMessage = configWrapper.getString("messages.toggle.permission.no_other",
-                "&cYou do not have permission to toggle the knockback of other player's.");
-        serverDisabledMessage = configWrapper.getString("messages.toggle.server_disabled",
-                "&cKnockbacksync is currently disabled on this server. Contact your server administrator for more information.");
-    }
-
     @Override
     public void register(CommandManager<Sender> manager) {
         manager.command(
@@ -71,21 +49,21 @@ public class ToggleCommand implements BuilderCommand {
                         if (permissionChecker.hasPermission(sender, TOGGLE_GLOBAL_PERMISSION, false)) {
                             toggleGlobalKnockback(configManager, sender);
                         } else {
-                            sender.sendMessage(ChatUtil.translateAlternateColorCodes('&', noGlobalPermissionMessage));
+                            sender.sendMessage(configManager.getSettings().getNoGlobalPermissionMessage());
                         }
                     } else {
                         PlatformPlayer target = targetSelector.getSinglePlayer();
                         boolean senderIsTarget = sender.getUniqueId() == target.getUUID();
                         if (!senderIsTarget && !permissionChecker.hasPermission(sender, TOGGLE_OTHER_PERMISSION, false)) {
-                            sender.sendMessage(ChatUtil.translateAlternateColorCodes('&', noOtherPermissionMessage));
+                            sender.sendMessage(configManager.getSettings().getNoOtherTogglePermissionMessage());
                             return;
                         } else if (senderIsTarget && !permissionChecker.hasPermission(sender, TOGGLE_SELF_PERMISSION, true)) {
-                            sender.sendMessage(ChatUtil.translateAlternateColorCodes('&', noSelfPermissionMessage));
+                            sender.sendMessage(configManager.getSettings().getNoSelfTogglePermissionMessage());
                             return;
                         }
 
                         if (!configManager.isToggled()) {
-                            sender.sendMessage(ChatUtil.translateAlternateColorCodes('&', serverDisabledMessage));
+                            sender.sendMessage(configManager.getSettings().getServerDisabledMessage());
                         } else {
                             togglePlayerKnockback(target, configManager, sender);
                         }
@@ -105,22 +83,19 @@ public class ToggleCommand implements BuilderCommand {
         toggledState = toggleOnOffEvent.getStatus();
         configManager.setToggled(toggledState);
 
-        Base.INSTANCE.getConfigManager().getConfigWrapper().set("enabled", toggledState);
-        Base.INSTANCE.getConfigManager().saveConfig();
+        configManager.getConfigWrapper().set("enabled", toggledState);
+        configManager.saveConfig();
 
-        String message = ChatUtil.translateAlternateColorCodes('&',
-                toggledState ? configManager.getEnableMessage() : configManager.getDisableMessage()
-        );
-        sender.sendMessage(ChatUtil.translateAlternateColorCodes('&', message));
+        KbSyncSettings settings = configManager.getSettings();
+        sender.sendMessage(toggledState ? settings.getEnableMessage() : settings.getDisableMessage());
     }
 
     private static void togglePlayerKnockback(PlatformPlayer target, ConfigManager configManager, Sender sender) {
         UUID uuid = target.getUUID();
 
         if (PlayerDataManager.shouldExempt(uuid)) {
-            String message = ChatUtil.translateAlternateColorCodes('&',
-                    configManager.getPlayerIneligibleMessage()
-            ).replace("%player%", target.getName());
+            String message = configManager.getSettings().getPlayerIneligibleMessage()
+                    .replace("%player%", target.getName());
 
             sender.sendMessage(message);
             return;
@@ -136,10 +111,9 @@ public class ToggleCommand implements BuilderCommand {
             PlayerDataManager.addPlayerData(uuid, new PlayerData(Base.INSTANCE.getPlatformServer().getPlayer(uuid)));
         }
 
-        String message = ChatUtil.translateAlternateColorCodes('&',
-                hasPlayerData ? configManager.getPlayerDisableMessage() : configManager.
-                        getPlayerEnableMessage()
-        ).replace("%player%", target.getName());
+        KbSyncSettings settings = configManager.getSettings();
+        String message = (hasPlayerData ? settings.getPlayerDisableMessage() : settings.getPlayerEnableMessage())
+                .replace("%player%", target.getName());
 
         sender.sendMessage(message);
     }
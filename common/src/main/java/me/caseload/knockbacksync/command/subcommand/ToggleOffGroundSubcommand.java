@@ -1,13 +1,10 @@
 package me.caseload.knockbacksync.command.subcommand;
 
 import me.caseload.knockbacksync.Base;
-import me.caseload.knockbacksync.ConfigWrapper;
 import me.caseload.knockbacksync.command.generic.BuilderCommand;
-import me.caseload.knockbacksync.event.KBSyncEventHandler;
-import me.caseload.knockbacksync.event.events.ConfigReloadEvent;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.manager.ConfigManager;
 import me.caseload.knockbacksync.sender.Sender;
-import me.caseload.knockbacksync.util.ChatUtil;
 import org.incendo.cloud.CommandManager;
 import org.incendo.cloud.permission.PredicatePermission;
 
@@ -15,14 +12,6 @@ import java.util.function.Predicate;
 
 public class ToggleOffGroundSubcommand implements BuilderCommand {
 
-    public static boolean offGroundSyncEnabled = true;
-    private String offGroundSyncEnableMessage;
-    private String offGroundSyncDisableMessage;
-
-    public ToggleOffGroundSubcommand() {
-        loadConfigSettings();
-    }
-
     public void register(CommandManager<Sender> manager) {
         manager.command(
             manager.commandBuilder("knockbacksync", "kbsync", "kbs")
@@ -36,26 +25,14 @@ public class ToggleOffGroundSubcommand implements BuilderCommand {
                     return PredicatePermission.of(senderPredicate).testPermission(sender);
                 }))
                 .handler(commandContext -> {
-                    offGroundSyncEnabled = !offGroundSyncEnabled;
-                    Base.INSTANCE.getConfigManager().getConfigWrapper().set("enable_offground_synchronization", offGroundSyncEnabled);
-                    Base.INSTANCE.getConfigManager().saveConfig();
-                    String message = ChatUtil.translateAlternateColorCodes('&',
-                            offGroundSyncEnabled ? offGroundSyncEnableMessage : offGroundSyncDisableMessage);
-                    commandContext.sender().sendMessage(message);
+                    ConfigManager configManager = Base.INSTANCE.getConfigManager();
+                    boolean offGroundSyncEnabled = !configManager.getSettings().isOffGroundSyncEnabled();
+                    configManager.setOffGroundSyncEnabled(offGroundSyncEnabled);
+                    configManager.getConfigWrapper().set("enable_offground_synchronization", offGroundSyncEnabled);
+                    configManager.saveConfig();
+                    KbSyncSettings settings = configManager.getSettings();
+                    commandContext.sender().sendMessage(
+                            offGroundSyncEnabled ? settings.getOffGroundSyncEnableMessage() : settings.getOffGroundSyncDisableMessage());
                 }));
     }
-
-    @KBSyncEventHandler
-    public void onConfigReloadEvent(ConfigReloadEvent event) {
-        loadConfigSettings();
-    }
-
-    private void loadConfigSettings() {
-        ConfigWrapper configWrapper = Base.INSTANCE.getConfigManager().getConfigWrapper();
-        offGroundSyncEnabled = configWrapper.getBoolean("settings.offground.enabled", true);
-        this.offGroundSyncEnableMessage = configWrapper.getString("messages.offground.enable",
-                "&aSuccessfully enabled offground synchronization.");
-        this.offGroundSyncDisableMessage = configWrapper.getString("messages.offground.disable",
-                "&cSuccessfully disabled offground synchronization.");
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+package me.caseload.knockbacksync.config;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Structural comparison of two parsed config trees.
+ */
+public final class ConfigDiff {
+
+    private ConfigDiff() {
+    }
+
+    /**
+     * Compares two config trees and returns the dotted paths of every value that was added, removed or changed.
+     * A path that switched between a section and a plain value is reported as the path itself.
+     */
+    public static Set<String> diff(Map<?, ?> oldConfig, Map<?, ?> newConfig) {
+        Set<String> changed = new LinkedHashSet<>();
+        diff("", oldConfig, newConfig, changed);
+        return changed;
+    }
+
+    private static void diff(String prefix, Map<?, ?> oldMap, Map<?, ?> newMap, Set<String> changed) {
+        Set<Object> keys = new LinkedHashSet<>(oldMap.keySet());
+        keys.addAll(newMap.keySet());
+
+        for (Object key : keys) {
+            String path = prefix.isEmpty() ? String.valueOf(key) : prefix + "." + key;
+            Object oldValue = oldMap.get(key);
+            Object newValue = newMap.get(key);
+
+            if (oldValue instanceof Map && newValue instanceof Map) {
+                diff(path, (Map<?, ?>) oldValue, (Map<?, ?>) newValue, changed);
+            } else if (!valueEquals(oldValue, newValue)) {
+                changed.add(path);
+            }
+        }
+    }
+
+    // SnakeYAML gives us Integers while values we set ourselves may be Longs, compare numbers by value
+    private static boolean valueEquals(Object a, Object b) {
+        if (a instanceof Number && b instanceof Number) {
+            try {
+                return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString())) == 0;
+            } catch (NumberFormatException e) {
+                return a.equals(b); // NaN or infinity
+            }
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Copies every nested map and list so later in-place edits of the source don't leak into the copy.
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> deepCopy(Map<String, Object> config) {
+        return (Map<String, Object>) copyValue(config);
+    }
+
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet())
+                copy.put(entry.getKey(), copyValue(entry.getValue()));
+            return copy;
+        } else if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value)
+                copy.add(copyValue(element));
+            return copy;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,72 @@
+package me.caseload.knockbacksync.config;
+
+import me.caseload.knockbacksync.event.events.ConfigChangeEvent;
+import me.caseload.knockbacksync.event.events.EntityTickIntervalsChangedEvent;
+import me.caseload.knockbacksync.event.events.GeneralSettingsChangedEvent;
+import me.caseload.knockbacksync.event.events.MessagesChangedEvent;
+import me.caseload.knockbacksync.event.events.PingSettingsChangedEvent;
+import me.caseload.knockbacksync.manager.ConfigManager;
+
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Groups config paths by the subsystem that has to react when they change.
+ */
+public enum ConfigSection {
+    PING {
+        @Override
+        public ConfigChangeEvent createEvent(ConfigManager configManager, Set<String> changedPaths) {
+            return new PingSettingsChangedEvent(configManager, changedPaths);
+        }
+    },
+    MESSAGES {
+        @Override
+        public ConfigChangeEvent createEvent(ConfigManager configManager, Set<String> changedPaths) {
+            return new MessagesChangedEvent(configManager, changedPaths);
+        }
+    },
+    ENTITY_TICK_INTERVALS {
+        @Override
+        public ConfigChangeEvent createEvent(ConfigManager configManager, Set<String> changedPaths) {
+            return new EntityTickIntervalsChangedEvent(configManager, changedPaths);
+        }
+    },
+    GENERAL {
+        @Override
+        public ConfigChangeEvent createEvent(ConfigManager configManager, Set<String> changedPaths) {
+            return new GeneralSettingsChangedEvent(configManager, changedPaths);
+        }
+    };
+
+    public abstract ConfigChangeEvent createEvent(ConfigManager configManager, Set<String> changedPaths);
+
+    public static ConfigSection of(String path) {
+        int dot = path.indexOf('.');
+        String root = dot == -1 ? path : path.substring(0, dot);
+        switch (root) {
+            case "runnable":
+            case "ping_strategy":
+            case "passive_keepalive_rtt":
+            case "latency_estimator":
+            case "spike_threshold":
+                return PING;
+            case "messages":
+                return MESSAGES;
+            case "entity_tick_intervals":
+            case "combat_tick_interval":
+                return ENTITY_TICK_INTERVALS;
+            default:
+                return GENERAL;
+        }
+    }
+
+    public static Map<ConfigSection, Set<String>> group(Set<String> paths) {
+        Map<ConfigSection, Set<String>> grouped = new EnumMap<>(ConfigSection.class);
+        for (String path : paths)
+            grouped.computeIfAbsent(of(path), section -> new LinkedHashSet<>()).add(path);
+        return grouped;
+    }
+}
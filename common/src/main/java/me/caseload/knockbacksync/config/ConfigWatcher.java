@@ -0,0 +1,114 @@
+package me.caseload.knockbacksync.config;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.manager.ConfigManager;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Watches config.yml on a background thread and applies edits through
+ * {@link ConfigManager#reloadChanges()} once the file has stopped changing for the debounce period.
+ */
+public class ConfigWatcher implements Runnable {
+
+    private final ConfigManager configManager;
+    private final Path directory;
+    private final Path fileName;
+    private final long debounceMillis;
+
+    private WatchService watchService;
+    private Thread thread;
+    private volatile boolean running;
+
+    public ConfigWatcher(ConfigManager configManager, long debounceMillis) {
+        this.configManager = configManager;
+        Path configPath = configManager.getConfigFile().toPath().toAbsolutePath();
+        this.directory = configPath.getParent();
+        this.fileName = configPath.getFileName();
+        this.debounceMillis = Math.max(debounceMillis, 0);
+    }
+
+    public synchronized void start() throws IOException {
+        if (running)
+            return;
+
+        watchService = FileSystems.getDefault().newWatchService();
+        // Editors commonly save by writing a temporary file and renaming it over the original, so watch creates too
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        running = true;
+        thread = new Thread(this, "KnockbackSync-ConfigWatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close(); // Wakes the watcher thread out of take()
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watchService = null;
+        }
+        thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        WatchService watchService = this.watchService;
+        try {
+            while (running) {
+                if (!drain(watchService.take()))
+                    continue;
+
+                // Wait until the file has been quiet for the debounce period so a save that arrives
+                // as several writes is only applied once, and never half written
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null)
+                    drain(key);
+
+                if (!running)
+                    break;
+
+                try {
+                    Set<String> changed = configManager.reloadChanges();
+                    if (!changed.isEmpty())
+                        Base.LOGGER.info("Applied config changes: " + String.join(", ", changed));
+                } catch (Exception e) {
+                    Base.LOGGER.log(Level.WARNING, "Failed to apply config.yml changes, keeping the previous settings", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // stop() was called
+        }
+    }
+
+    // Returns whether any of the key's events concern our config file
+    private boolean drain(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context()))
+                relevant = true;
+        }
+        key.reset();
+        return relevant;
+    }
+}
@@ -0,0 +1,306 @@
+package me.caseload.knockbacksync.config;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.With;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.ConfigWrapper;
+import me.caseload.knockbacksync.latency.LatencyEstimatorType;
+import me.caseload.knockbacksync.listener.KnockbackPipeline;
+import me.caseload.knockbacksync.player.PingStrategy;
+import me.caseload.knockbacksync.util.ChatUtil;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable, fully parsed view of config.yml.
+ * <p>
+ * Built once per (re)load by {@link me.caseload.knockbacksync.manager.ConfigManager} and published through a
+ * single volatile reference, so hot paths read typed fields instead of walking the raw config map
+ * and always see values from the same load. Messages are stored with colour codes already translated.
+ */
+@Getter
+@Builder(access = AccessLevel.PRIVATE)
+public final class KbSyncSettings {
+
+    @With private final boolean toggled;
+    @With private final boolean offGroundSyncEnabled;
+    private final boolean notifyUpdate;
+    private final boolean autoUpdate;
+    private final boolean configWatcherEnabled;
+    private final long configWatcherDebounceMillis;
+
+    private final boolean runnableEnabled;
+    private final long runnableInterval;
+    private final long runnableIntervalMillis;
+    private final long runnableJitterMillis;
+    private final int maxProbesInFlight;
+    private final long probeTimeoutMillis;
+    private final long combatTimer;
+    private final long spikeThreshold;
+    private final PingStrategy pingStrategy;
+    private final boolean passiveKeepaliveRtt;
+    private final LatencyEstimatorType latencyEstimatorType;
+    private final double ewmaGain;
+    private final double kalmanProcessNoise;
+    private final double kalmanMeasurementNoise;
+    private final boolean velocityAckEnabled;
+    private final int playerTickInterval;
+    /**
+     * Tracker update interval per entity type, keyed by the lowercase registry name (e.g. {@code armor_stand}).
+     */
+    private final Map<String, Integer> entityTickIntervals;
+    private final boolean combatTickIntervalEnabled;
+    private final int combatTickInterval;
+
+    private final boolean metricsHttpEnabled;
+    private final int metricsHttpPort;
+    private final boolean metricsFileEnabled;
+    private final long metricsFileIntervalSeconds;
+    private final int profilerSampleRate;
+    private final boolean recorderEnabled;
+    private final int recorderFileSizeMb;
+    private final int recorderMaxFiles;
+    private final KnockbackPipeline knockbackPipeline;
+    private final boolean loadGovernorEnabled;
+    private final double loadSkipOffGroundMspt;
+    private final double loadCachedGroundMspt;
+    private final double loadReducedProbesMspt;
+    private final double loadBypassMspt;
+    private final double loadRecoveryMarginMspt;
+    private final int loadRecoveryTicks;
+    private final int loadProbeIntervalMultiplier;
+    private final boolean latencyProfilesEnabled;
+    private final int latencyProfilesMaxAgeDays;
+    private final boolean proxyHandoffEnabled;
+    private final String proxyHandoffTransport;
+    private final String proxyHandoffRelayHost;
+    private final int proxyHandoffRelayPort;
+
+    private final String enableMessage;
+    private final String disableMessage;
+    private final String playerEnableMessage;
+    private final String playerDisableMessage;
+    private final String playerIneligibleMessage;
+    private final String noGlobalPermissionMessage;
+    private final String noSelfTogglePermissionMessage;
+    private final String noOtherTogglePermissionMessage;
+    private final String serverDisabledMessage;
+
+    private final String offGroundSyncEnableMessage;
+    private final String offGroundSyncDisableMessage;
+    private final String reloadMessage;
+
+    private final String globalStatusEnabledMessage;
+    private final String globalStatusDisabledMessage;
+    private final String globalOffGroundStatusEnabledMessage;
+    private final String globalOffGroundStatusDisabledMessage;
+    private final String playerStatusEnabledMessage;
+    private final String playerStatusDisabledMessage;
+    private final String playerStatusGlobalDisabledMessage;
+    private final String noSelfStatusPermissionMessage;
+    private final String noOtherStatusPermissionMessage;
+
+    private final String pingSelfAvailableMessage;
+    private final String pingSelfUnavailableMessage;
+    private final String pingOtherAvailableMessage;
+    private final String pingOtherUnavailableMessage;
+    private final String mustSpecifyPlayerFromConsoleMessage;
+    private final String disabledForYouMessage;
+    private final String disabledForTargetMessage;
+    private final String movementPacketsStatusMessage;
+
+    private final String statsServerMessage;
+    private final String statsPlayerMessage;
+    private final String statsNoSamplesMessage;
+
+    private final String profileStartedMessage;
+    private final String profileStoppedMessage;
+    private final String profileHeaderMessage;
+    private final String profileSectionMessage;
+    private final String profileEmptyMessage;
+
+    public static KbSyncSettings load(ConfigWrapper config) {
+        return KbSyncSettings.builder()
+                .toggled(config.getBoolean("enabled", true))
+                .offGroundSyncEnabled(config.getBoolean("enable_offground_synchronization", true))
+                .notifyUpdate(config.getBoolean("notify_updates", true))
+                .autoUpdate(config.getBoolean("auto_update", true))
+                .configWatcherEnabled(config.getBoolean("config_watcher.enabled", false))
+                .configWatcherDebounceMillis(config.getLong("config_watcher.debounce_ms", 500L))
+                .runnableEnabled(config.getBoolean("runnable.enabled", true))
+                .runnableInterval(config.getLong("runnable.interval", 5L))
+                .runnableIntervalMillis(config.getLong("runnable.interval_ms", 0L))
+                .runnableJitterMillis(config.getLong("runnable.jitter_ms", 0L))
+                .maxProbesInFlight(Math.max(config.getInt("runnable.max_in_flight", 8), 1))
+                .probeTimeoutMillis(Math.max(config.getLong("runnable.probe_timeout_ms", 5000L), 1L))
+                .combatTimer(config.getLong("runnable.timer", 30L))
+                .spikeThreshold(config.getLong("spike_threshold", 20L))
+                .pingStrategy(parsePingStrategy(config.getString("ping_strategy", "KEEPALIVE")))
+                .passiveKeepaliveRtt(config.getBoolean("passive_keepalive_rtt", true))
+                .latencyEstimatorType(parseLatencyEstimatorType(config.getString("latency_estimator.type", "SPIKE_THRESHOLD")))
+                .ewmaGain(Math.min(Math.max(config.getDouble("latency_estimator.ewma_gain", 0.125), 0.01), 1))
+                .kalmanProcessNoise(Math.max(config.getDouble("latency_estimator.kalman_process_noise", 4.0), 0.001))
+                .kalmanMeasurementNoise(Math.max(config.getDouble("latency_estimator.kalman_measurement_noise", 100.0), 0.001))
+                .velocityAckEnabled(config.getBoolean("velocity_ack.enabled", false))
+                .playerTickInterval(config.getInt("entity_tick_intervals.player", 2))
+                .entityTickIntervals(parseEntityTickIntervals(config))
+                .combatTickIntervalEnabled(config.getBoolean("combat_tick_interval.enabled", false))
+                .combatTickInterval(config.getInt("combat_tick_interval.interval", 1))
+                .metricsHttpEnabled(config.getBoolean("metrics.http.enabled", false))
+                .metricsHttpPort(config.getInt("metrics.http.port", 9464))
+                .metricsFileEnabled(config.getBoolean("metrics.file.enabled", false))
+                .metricsFileIntervalSeconds(config.getLong("metrics.file.interval_seconds", 60L))
+                .profilerSampleRate(config.getInt("profiler.sample_rate", 100))
+                .recorderEnabled(config.getBoolean("recorder.enabled", false))
+                .recorderFileSizeMb(config.getInt("recorder.file_size_mb", 64))
+                .recorderMaxFiles(config.getInt("recorder.max_files", 8))
+                .knockbackPipeline(parseKnockbackPipeline(config.getString("knockback_pipeline", "EVENT")))
+                .loadGovernorEnabled(config.getBoolean("load_governor.enabled", false))
+                .loadSkipOffGroundMspt(config.getDouble("load_governor.skip_off_ground_mspt", 45.0))
+                .loadCachedGroundMspt(config.getDouble("load_governor.cached_ground_mspt", 50.0))
+                .loadReducedProbesMspt(config.getDouble("load_governor.reduced_probes_mspt", 60.0))
+                .loadBypassMspt(config.getDouble("load_governor.bypass_mspt", 80.0))
+                .loadRecoveryMarginMspt(Math.max(config.getDouble("load_governor.recovery_margin_mspt", 5.0), 0))
+                .loadRecoveryTicks(Math.max(config.getInt("load_governor.recovery_ticks", 100), 1))
+                .loadProbeIntervalMultiplier(Math.max(config.getInt("load_governor.probe_interval_multiplier", 4), 1))
+                .latencyProfilesEnabled(config.getBoolean("latency_profiles.enabled", true))
+                .latencyProfilesMaxAgeDays(config.getInt("latency_profiles.max_age_days", 30))
+                .proxyHandoffEnabled(config.getBoolean("proxy_handoff.enabled", false))
+                .proxyHandoffTransport(config.getString("proxy_handoff.transport", "BUNGEECORD").toUpperCase(Locale.ROOT))
+                .proxyHandoffRelayHost(config.getString("proxy_handoff.relay_host", "127.0.0.1"))
+                .proxyHandoffRelayPort(config.getInt("proxy_handoff.relay_port", 25590))
+
+                .enableMessage(message(config, "messages.toggle.global.enable",
+                        "&aSuccessfully enabled KnockbackSync."))
+                .disableMessage(message(config, "messages.toggle.global.disable",
+                        "&cSuccessfully disabled KnockbackSync."))
+                .playerEnableMessage(message(config, "messages.toggle.player.enable",
+                        "&aSuccessfully enabled KnockbackSync for %player%."))
+                .playerDisableMessage(message(config, "messages.toggle.player.disable",
+                        "&aSuccessfully &cdisabled &aKnockbackSync for %player%."))
+                .playerIneligibleMessage(message(config, "messages.toggle.player.ineligible",
+                        "&c%player% is ineligible for KnockbackSync. If you believe this is in error, please contact your server administrators."))
+                .noGlobalPermissionMessage(message(config, "messages.toggle.permission.no_global",
+                        "&cYou don't have permission to toggle the global setting."))
+                .noSelfTogglePermissionMessage(message(config, "messages.toggle.permission.no_self",
+                        "&cYou do not have permission to toggle your knockback."))
+                .noOtherTogglePermissionMessage(message(config, "messages.toggle.permission.no_other",
+                        "&cYou do not have permission to toggle the knockback of other player's."))
+                .serverDisabledMessage(message(config, "messages.toggle.server_disabled",
+                        "&cKnockbacksync is currently disabled on this server. Contact your server administrator for more information."))
+
+                .offGroundSyncEnableMessage(message(config, "messages.offground.enable",
+                        "&aSuccessfully enabled offground synchronization."))
+                .offGroundSyncDisableMessage(message(config, "messages.offground.disable",
+                        "&cSuccessfully disabled offground synchronization."))
+                .reloadMessage(message(config, "messages.reload.success",
+                        "&aSuccessfully reloaded KnockbackSync."))
+
+                .globalStatusEnabledMessage(message(config, "messages.status.global.enabled",
+                        "&eKnockbackSync global status: &aEnabled"))
+                .globalStatusDisabledMessage(message(config, "messages.status.global.disabled",
+                        "&eKnockbackSync global status: &cDisabled"))
+                .globalOffGroundStatusEnabledMessage(message(config, "messages.status.offground.enabled",
+                        "&eKnockbackSync off-ground status: &aEnabled"))
+                .globalOffGroundStatusDisabledMessage(message(config, "messages.status.offground.disabled",
+                        "&eKnockbackSync off-ground status: &cDisabled"))
+                .playerStatusEnabledMessage(message(config, "messages.status.player.enabled",
+                        "&e%player%'s KnockbackSync status: &aEnabled"))
+                .playerStatusDisabledMessage(message(config, "messages.status.player.disabled",
+                        "&e%player%'s KnockbackSync status: &cDisabled"))
+                .playerStatusGlobalDisabledMessage(message(config, "messages.status.player.global_disabled",
+                        "&e%player%'s KnockbackSync status: &cDisabled (Global toggle is off)"))
+                .noSelfStatusPermissionMessage(message(config, "messages.status.permission.no_self",
+                        "&cYou do not have permission to check your knockbacksync status."))
+                .noOtherStatusPermissionMessage(message(config, "messages.status.permission.no_other",
+                        "&cYou do not have permission to check the status of other players!"))
+
+                .pingSelfAvailableMessage(message(config, "messages.ping.self.available",
+                        "Your real ping is &b%ping%&rms. Jitter: &b%jitter%&rms. Spike: &b%spike%&r. %estimator% estimate: &b%estimate%&rms +/- &b%deviation%&rms. Compensated ping: &b%compensated%&rms."))
+                .pingSelfUnavailableMessage(message(config, "messages.ping.self.unavailable",
+                        "Accurate ping unavailable. Your estimated ping is &b%ping%&rms."))
+                .pingOtherAvailableMessage(message(config, "messages.ping.other.available",
+                        "%player%'s real ping is &b%ping%&rms. Jitter: &b%jitter%&rms. Spike: &b%spike%&r. %estimator% estimate: &b%estimate%&rms +/- &b%deviation%&rms. Compensated ping: &b%compensated%&rms."))
+                .pingOtherUnavailableMessage(message(config, "messages.ping.other.unavailable",
+                        "Accurate ping unavailable. %player%'s estimated ping is &b%ping%&rms."))
+                .mustSpecifyPlayerFromConsoleMessage(message(config, "messages.console.must_specify_player",
+                        "&cYou must specify a player to use the knockbacksync ping command from the console."))
+                .disabledForYouMessage(message(config, "messages.disabled.self",
+                        "&cKnockback synchronization is currently disabled for you!"))
+                .disabledForTargetMessage(message(config, "messages.disabled.target",
+                        "&cKnockback synchronization is currently disabled for the target player."))
+                .movementPacketsStatusMessage(message(config, "messages.status.movement_packets",
+                        "&eEntity movement packets: &b%last%&e last tick, &b%average%&e per tick on average"))
+
+                .statsServerMessage(message(config, "messages.stats.server",
+                        "&eServer RTT: p50 &b%p50%&ems, p95 &b%p95%&ems, p99 &b%p99%&ems, max &b%max%&ems. Samples: &b%samples%&e. Lost probes: &b%lost%&e."))
+                .statsPlayerMessage(message(config, "messages.stats.player",
+                        "&e%player%'s RTT: p50 &b%p50%&ems, p95 &b%p95%&ems, p99 &b%p99%&ems, max &b%max%&ems. Samples: &b%samples%&e. Lost probes: &b%lost%&e."))
+                .statsNoSamplesMessage(message(config, "messages.stats.no_samples",
+                        "&eNo ping samples have been recorded yet. Lost probes: &b%lost%&e."))
+
+                .profileStartedMessage(message(config, "messages.profile.started",
+                        "&aProfiler started, timing 1 in %rate% invocations."))
+                .profileStoppedMessage(message(config, "messages.profile.stopped",
+                        "&aProfiler stopped. Use /knockbacksync profile dump to see the results."))
+                .profileHeaderMessage(message(config, "messages.profile.header",
+                        "&eHot path timings, 1 in %rate% invocations sampled:"))
+                .profileSectionMessage(message(config, "messages.profile.section",
+                        "&e%section%: &b%samples%&e samples, p50 &b%p50%&eus, p99 &b%p99%&eus, max &b%max%&eus"))
+                .profileEmptyMessage(message(config, "messages.profile.empty",
+                        "&eNo samples recorded. Start the profiler with /knockbacksync profile start."))
+                .build();
+    }
+
+    private static String message(ConfigWrapper config, String path, String def) {
+        return ChatUtil.translateAlternateColorCodes('&', config.getString(path, def));
+    }
+
+    private static Map<String, Integer> parseEntityTickIntervals(ConfigWrapper config) {
+        Map<String, Integer> intervals = new HashMap<>();
+        for (String type : config.getKeys("entity_tick_intervals")) {
+            Object value = config.get("entity_tick_intervals." + type);
+            if ("Integer.MAX_VALUE".equals(value)) {
+                intervals.put(type, Integer.MAX_VALUE); // Never sends periodic updates
+            } else if (value instanceof Number) {
+                intervals.put(type, ((Number) value).intValue());
+            } else {
+                Base.LOGGER.warning("Ignoring invalid entity_tick_intervals." + type + ": " + value);
+            }
+        }
+        return Collections.unmodifiableMap(intervals);
+    }
+
+    private static LatencyEstimatorType parseLatencyEstimatorType(String type) {
+        try {
+            return LatencyEstimatorType.valueOf(type.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown latency_estimator.type: " + type);
+        }
+    }
+
+    private static KnockbackPipeline parseKnockbackPipeline(String pipeline) {
+        try {
+            return KnockbackPipeline.valueOf(pipeline.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Unknown knockback_pipeline: " + pipeline);
+        }
+    }
+
+    private static PingStrategy parsePingStrategy(String pingStrategy) {
+        switch (pingStrategy) {
+            case "KEEPALIVE":
+                return PingStrategy.KEEPALIVE;
+            case "PING":
+            case "TRANSACTION":
+                return PingStrategy.TRANSACTION;
+            default:
+                throw new IllegalStateException("Unknown ping_strategy: " + pingStrategy);
+        }
+    }
+}
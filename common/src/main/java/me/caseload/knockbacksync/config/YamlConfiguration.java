@@ -4,13 +4,15 @@ import lombok.Getter;
 import lombok.Setter;
 import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class YamlConfiguration {
@@ -30,7 +32,7 @@ public class YamlConfiguration {
         this.yaml = new Yaml(options);
     }
 
-    public void load() throws IOException {
+    public synchronized void load() throws IOException {
         if (!file.exists()) {
             data = new LinkedHashMap<>();
             return;
@@ -44,119 +46,287 @@ public class YamlConfiguration {
     }
 
     public void save() throws IOException {
-        if (!file.exists()) {
-            file.getParentFile().mkdirs();
-            file.createNewFile();
-        }
-
-        String dump = yaml.dump(data);
+        save(data);
+    }
 
-        if (fileContents != null) {
-            Map<String, YamlElement> oldElements = parseYaml(fileContents);
-            Map<String, YamlElement> newElements = parseYaml(dump);
+    /**
+     * Writes the given data to the file.
+     * <p>
+     * If the file was loaded before, its last contents are rewritten in a single pass: scalar values that
+     * changed are edited in place keeping their quoting, trailing comments and everything else untouched,
+     * keys no longer in the data are dropped and new keys are appended at the end of their section.
+     * The file is replaced atomically, so readers never see a partially written config.
+     */
+    public synchronized void save(Map<String, Object> data) throws IOException {
+        String output = fileContents == null ? yaml.dump(data) : merge(fileContents, data);
+        write(output);
+        fileContents = output;
+    }
 
-            StringBuilder result = new StringBuilder();
-            buildOutput(oldElements, newElements, result);
-            dump = result.toString();
-        }
+    private void write(String contents) throws IOException {
+        Path target = file.toPath().toAbsolutePath();
+        Files.createDirectories(target.getParent());
 
-        try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
-            writer.write(dump);
+        // Same directory as the target, a rename across file systems could not be atomic
+        Path temp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+        try {
+            Files.write(temp, contents.getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
         }
     }
 
-    private static class YamlElement {
-        String key;
-        String value;
-        int indent;
-        boolean isComment;
-        List<YamlElement> children = new ArrayList<>();
+    private static class Section {
+        final int indent;
+        final Map<?, ?> values;
+        final Set<Object> seenKeys = new HashSet<>();
+        int childIndent = -1;
 
-        YamlElement(String line, int indent) {
+        Section(int indent, Map<?, ?> values) {
             this.indent = indent;
-            if (line.trim().startsWith("#")) {
-                this.isComment = true;
-                this.value = line;
-            } else {
-                this.isComment = false;
-                String[] parts = line.split(":", 2);
-                this.key = parts[0].trim();
-                this.value = parts.length > 1 ? parts[1].trim() : "";
-            }
+            this.values = values;
         }
     }
 
-    private Map<String, YamlElement> parseYaml(String content) {
-        Map<String, YamlElement> elements = new LinkedHashMap<>();
-        Stack<YamlElement> stack = new Stack<>();
-        String[] lines = content.split("\n");
+    private String merge(String contents, Map<String, Object> data) {
+        StringBuilder out = new StringBuilder(contents.length() + 64);
+        // Blank and comment lines are held back until the next key so that keys appended to a
+        // section that just ended land above the comments describing the following key
+        StringBuilder pending = new StringBuilder();
+        Deque<Section> sections = new ArrayDeque<>();
+        sections.push(new Section(-1, data));
+        int dropIndent = -1; // While >= 0, lines indented deeper than this belong to a dropped key
 
-        for (String line : lines) {
-            if (line.trim().isEmpty()) continue;
+        int length = contents.length();
+        int start = 0;
+        while (start < length) {
+            int end = contents.indexOf('\n', start);
+            if (end == -1) end = length;
+            String line = contents.substring(start, end);
+            start = end + 1;
+            if (line.endsWith("\r")) line = line.substring(0, line.length() - 1);
 
             int indent = getIndentation(line);
-            YamlElement element = new YamlElement(line, indent);
+            if (indent == line.length() || line.charAt(indent) == '#') {
+                if (dropIndent < 0 || indent <= dropIndent)
+                    pending.append(line).append('\n');
+                continue;
+            }
+
+            if (dropIndent >= 0) {
+                if (indent > dropIndent) continue;
+                dropIndent = -1;
+            }
+
+            while (sections.peek().indent >= indent)
+                appendMissing(sections.pop(), out);
+            out.append(pending);
+            pending.setLength(0);
 
-            while (!stack.isEmpty() && stack.peek().indent >= indent) {
-                stack.pop();
+            int colon = findKeyColon(line, indent);
+            if (line.charAt(indent) == '-' || colon == -1) {
+                out.append(line).append('\n'); // List item or something we don't understand, keep it
+                continue;
             }
 
-            if (stack.isEmpty()) {
-                if (!element.isComment) {
-                    elements.put(element.key, element);
+            Section section = sections.peek();
+            if (section.childIndent == -1) section.childIndent = indent;
+            Object key = resolveKey(section.values, unquote(line.substring(indent, colon).trim()));
+            section.seenKeys.add(key);
+
+            if (!section.values.containsKey(key)) {
+                dropIndent = indent;
+                continue;
+            }
+
+            Object value = section.values.get(key);
+            int tokenStart = colon + 1;
+            while (tokenStart < line.length() && line.charAt(tokenStart) == ' ') tokenStart++;
+            int tokenEnd = findTokenEnd(line, tokenStart);
+
+            if (tokenStart == tokenEnd && value instanceof Map) {
+                out.append(line).append('\n');
+                sections.push(new Section(indent, (Map<?, ?>) value));
+            } else if (tokenStart == tokenEnd || isBlockScalarIndicator(line.charAt(tokenStart))) {
+                // Block list, multi-line scalar or block scalar, its value spans the following lines
+                int blockEnd = findBlockEnd(contents, start, indent);
+                String block = contents.substring(start, blockEnd).replace("\r", "");
+                start = blockEnd;
+
+                if (Objects.equals(value, loadBlock(line, block, indent))) {
+                    out.append(line).append('\n').append(block);
+                    if (!block.isEmpty() && block.charAt(block.length() - 1) != '\n') out.append('\n');
                 } else {
-                    elements.put("comment" + elements.size(), element);
+                    String comment = line.substring(tokenEnd).trim();
+                    out.append(line, 0, colon + 1);
+                    if (!(value instanceof Map || value instanceof List)) out.append(' ').append(formatScalar(value, (char) 0));
+                    if (!comment.isEmpty()) out.append(' ').append(comment);
+                    out.append('\n');
+                    if (value instanceof Map || value instanceof List) appendDump(value, indent + 2, out);
                 }
+            } else if (value instanceof Map || value instanceof List) {
+                out.append(line, 0, colon + 1).append('\n');
+                appendDump(value, indent + 2, out);
             } else {
-                stack.peek().children.add(element);
+                String token = line.substring(tokenStart, tokenEnd);
+                if (unquote(token).equals(String.valueOf(value))) {
+                    out.append(line).append('\n');
+                } else {
+                    char quote = token.charAt(0) == '"' || token.charAt(0) == '\'' ? token.charAt(0) : 0;
+                    out.append(line, 0, tokenStart).append(formatScalar(value, quote))
+                            .append(line, tokenEnd, line.length()).append('\n');
+                }
             }
+        }
 
-            if (!element.isComment && element.value.isEmpty()) {
-                stack.push(element);
-            }
+        while (!sections.isEmpty())
+            appendMissing(sections.pop(), out);
+        out.append(pending);
+        return out.toString();
+    }
+
+    private void appendMissing(Section section, StringBuilder out) {
+        int indent = section.childIndent != -1 ? section.childIndent : section.indent < 0 ? 0 : section.indent + 2;
+        for (Map.Entry<?, ?> entry : section.values.entrySet()) {
+            if (!section.seenKeys.contains(entry.getKey()))
+                appendDump(Collections.singletonMap(entry.getKey(), entry.getValue()), indent, out);
         }
+    }
 
-        return elements;
+    private void appendDump(Object value, int indent, StringBuilder out) {
+        String indentation = createIndent(indent);
+        for (String dumped : yaml.dump(value).split("\n"))
+            out.append(indentation).append(dumped).append('\n');
     }
 
-    private void buildOutput(Map<String, YamlElement> oldElements, Map<String, YamlElement> newElements, StringBuilder result) {
-        for (YamlElement element : oldElements.values()) {
-            if (element.isComment) {
-                result.append(element.value).append("\n");
+    // Offset of the first line after the value of the key at indent, trailing blank and comment lines excluded
+    private static int findBlockEnd(String contents, int from, int indent) {
+        int blockEnd = from;
+        int length = contents.length();
+        int start = from;
+        while (start < length) {
+            int end = contents.indexOf('\n', start);
+            if (end == -1) end = length;
+            int lineEnd = end > start && contents.charAt(end - 1) == '\r' ? end - 1 : end;
+
+            int lineIndent = start;
+            while (lineIndent < lineEnd && contents.charAt(lineIndent) == ' ') lineIndent++;
+            int next = Math.min(end + 1, length);
+            if (lineIndent == lineEnd || contents.charAt(lineIndent) == '#') {
+                // Part of the value only if more of it follows
+                if (lineIndent - start > indent) blockEnd = next;
+            } else if (lineIndent - start > indent || (lineIndent - start == indent && contents.charAt(lineIndent) == '-'
+                    && (lineIndent + 1 == lineEnd || contents.charAt(lineIndent + 1) == ' '))) {
+                blockEnd = next; // Deeper line or list item of a block list at the key's own indent
             } else {
-                YamlElement newElement = newElements.get(element.key);
-                if (newElement != null) {
-                    String indent = createIndent(element.indent);
-                    result.append(indent).append(element.key).append(":");
-
-                    if (!newElement.value.isEmpty()) {
-                        result.append(" ").append(newElement.value);
-                    }
-                    result.append("\n");
-
-                    if (!element.children.isEmpty()) {
-                        Map<String, YamlElement> oldChildren = new LinkedHashMap<>();
-                        Map<String, YamlElement> newChildren = new LinkedHashMap<>();
-
-                        for (YamlElement child : element.children) {
-                            if (!child.isComment) {
-                                oldChildren.put(child.key, child);
-                            } else {
-                                oldChildren.put("comment" + oldChildren.size(), child);
-                            }
-                        }
-
-                        for (YamlElement child : newElement.children) {
-                            if (!child.isComment) {
-                                newChildren.put(child.key, child);
-                            }
-                        }
-
-                        buildOutput(oldChildren, newChildren, result);
-                    }
+                break;
+            }
+            start = next;
+        }
+        return blockEnd;
+    }
+
+    // The value the key line and its block held in the file, null if it can no longer be parsed
+    private Object loadBlock(String keyLine, String block, int indent) {
+        StringBuilder snippet = new StringBuilder(keyLine.length() + block.length());
+        snippet.append(keyLine, indent, keyLine.length()).append('\n');
+        for (String blockLine : block.split("\n", -1))
+            snippet.append(blockLine, Math.min(indent, getIndentation(blockLine)), blockLine.length()).append('\n');
+        try {
+            Object loaded = yaml.load(snippet.toString());
+            return loaded instanceof Map && ((Map<?, ?>) loaded).size() == 1 ? ((Map<?, ?>) loaded).values().iterator().next() : null;
+        } catch (YAMLException e) {
+            return null;
+        }
+    }
+
+    // | and > can't start a plain scalar, after a key they always introduce a block scalar
+    private static boolean isBlockScalarIndicator(char c) {
+        return c == '|' || c == '>';
+    }
+
+    // SnakeYAML parses keys like 1 or true into non-string objects, match those by their text
+    private static Object resolveKey(Map<?, ?> values, String key) {
+        if (values.containsKey(key)) return key;
+        for (Object candidate : values.keySet()) {
+            if (String.valueOf(candidate).equals(key)) return candidate;
+        }
+        return key;
+    }
+
+    // The colon separating a key from its value, -1 if the line is not a mapping entry
+    private static int findKeyColon(String line, int from) {
+        char quote = 0;
+        for (int i = from; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == ':' && (i + 1 == line.length() || line.charAt(i + 1) == ' ')) {
+                return i;
+            } else if (c == '#' && i > from && line.charAt(i - 1) == ' ') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // End of the scalar starting at start, excluding trailing whitespace and comments
+    private static int findTokenEnd(String line, int start) {
+        if (start >= line.length() || line.charAt(start) == '#') return start;
+
+        char first = line.charAt(start);
+        if (first == '"') {
+            for (int i = start + 1; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '\\') i++;
+                else if (c == '"') return i + 1;
+            }
+            return line.length();
+        } else if (first == '\'') {
+            for (int i = start + 1; i < line.length(); i++) {
+                if (line.charAt(i) == '\'') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '\'') i++;
+                    else return i + 1;
                 }
             }
+            return line.length();
+        }
+
+        int end = line.indexOf(" #", start);
+        if (end == -1) end = line.length();
+        while (end > start && line.charAt(end - 1) == ' ') end--;
+        return end;
+    }
+
+    private static String unquote(String token) {
+        if (token.length() >= 2) {
+            char first = token.charAt(0);
+            if (first == '"' && token.charAt(token.length() - 1) == '"')
+                return token.substring(1, token.length() - 1).replace("\\\"", "\"").replace("\\\\", "\\");
+            if (first == '\'' && token.charAt(token.length() - 1) == '\'')
+                return token.substring(1, token.length() - 1).replace("''", "'");
         }
+        return token;
+    }
+
+    private String formatScalar(Object value, char quote) {
+        if (!(value instanceof String))
+            return String.valueOf(value);
+
+        String string = (String) value;
+        if (quote == '\'' && string.indexOf('\n') == -1)
+            return '\'' + string.replace("'", "''") + '\'';
+        if (quote == '"' || string.indexOf('\n') != -1)
+            return '"' + string.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + '"';
+        // Let SnakeYAML decide whether a previously plain string now needs quoting
+        return yaml.dump(string).trim();
     }
 
     private int getIndentation(String line) {
@@ -174,4 +344,4 @@ public class YamlConfiguration {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
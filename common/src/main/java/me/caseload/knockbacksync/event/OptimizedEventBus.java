@@ -1,5 +1,7 @@
 package me.caseload.knockbacksync.event;
 
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
+
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
@@ -64,6 +66,12 @@ public class OptimizedEventBus implements EventBus {
 
     @Override
     public void post(Event event) {
+        long profilerStart = HotPathProfiler.start();
+        dispatch(event);
+        HotPathProfiler.stop(HotPathProfiler.Section.EVENT_BUS, profilerStart);
+    }
+
+    private void dispatch(Event event) {
         List<OptimizedListener> listeners = listenerMap.get(event.getClass());
         if (listeners != null) {
             for (OptimizedListener listener : listeners) {
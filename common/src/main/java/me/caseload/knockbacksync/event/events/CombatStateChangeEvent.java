@@ -0,0 +1,20 @@
+package me.caseload.knockbacksync.event.events;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.event.Event;
+
+import java.util.UUID;
+
+/**
+ * Posted when a player enters or leaves combat. May be posted from any thread.
+ */
+@Getter
+public class CombatStateChangeEvent extends Event {
+    private final UUID uuid;
+    private final boolean inCombat;
+
+    public CombatStateChangeEvent(UUID uuid, boolean inCombat) {
+        this.uuid = uuid;
+        this.inCombat = inCombat;
+    }
+}
@@ -0,0 +1,22 @@
+package me.caseload.knockbacksync.event.events;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.event.Event;
+import me.caseload.knockbacksync.manager.ConfigManager;
+
+import java.util.Set;
+
+/**
+ * Posted after a reload when settings of one {@link me.caseload.knockbacksync.config.ConfigSection} changed.
+ * By the time it is posted the new settings snapshot has already been published.
+ */
+@Getter
+public abstract class ConfigChangeEvent extends Event {
+    private final ConfigManager configManager;
+    private final Set<String> changedPaths;
+
+    protected ConfigChangeEvent(ConfigManager configManager, Set<String> changedPaths) {
+        this.configManager = configManager;
+        this.changedPaths = changedPaths;
+    }
+}
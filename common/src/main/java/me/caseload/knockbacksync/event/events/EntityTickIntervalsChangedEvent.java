@@ -0,0 +1,12 @@
+package me.caseload.knockbacksync.event.events;
+
+import me.caseload.knockbacksync.manager.ConfigManager;
+
+import java.util.Set;
+
+public class EntityTickIntervalsChangedEvent extends ConfigChangeEvent {
+
+    public EntityTickIntervalsChangedEvent(ConfigManager configManager, Set<String> changedPaths) {
+        super(configManager, changedPaths);
+    }
+}
@@ -0,0 +1,12 @@
+package me.caseload.knockbacksync.event.events;
+
+import me.caseload.knockbacksync.manager.ConfigManager;
+
+import java.util.Set;
+
+public class MessagesChangedEvent extends ConfigChangeEvent {
+
+    public MessagesChangedEvent(ConfigManager configManager, Set<String> changedPaths) {
+        super(configManager, changedPaths);
+    }
+}
@@ -0,0 +1,18 @@
+package me.caseload.knockbacksync.event.events;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.event.Event;
+
+/**
+ * Posted when the server's tick rate changes, e.g. through {@code /tick rate}. Posted from the main thread.
+ */
+@Getter
+public class TickRateChangedEvent extends Event {
+    private final float oldTickRate;
+    private final float newTickRate;
+
+    public TickRateChangedEvent(float oldTickRate, float newTickRate) {
+        this.oldTickRate = oldTickRate;
+        this.newTickRate = newTickRate;
+    }
+}
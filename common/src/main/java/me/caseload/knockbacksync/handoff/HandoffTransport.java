@@ -0,0 +1,19 @@
+package me.caseload.knockbacksync.handoff;
+
+import java.util.UUID;
+
+/**
+ * Carries hand-off payloads between the backend servers of a proxy network.
+ * Received payloads are passed to {@link LatencyHandoff#receive(byte[])}.
+ */
+public interface HandoffTransport {
+
+    /**
+     * Sends a payload to every other backend. Best effort, a payload that cannot be delivered is dropped.
+     *
+     * @param departing The player the payload is about, whose connection to this server is closing.
+     */
+    void send(UUID departing, byte[] payload);
+
+    void close();
+}
@@ -0,0 +1,134 @@
+package me.caseload.knockbacksync.handoff;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.GeneralSettingsChangedEvent;
+import me.caseload.knockbacksync.latency.LatencyProfile;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands a player's {@link LatencyProfile} to the next backend when they switch servers on a proxy network.
+ * <p>
+ * The backend they leave sends the profile to every other backend on quit. The proxy connects the player to the
+ * new backend before disconnecting them from the old one, so the profile usually arrives after the join and is
+ * applied straight away. One that arrives before the join is kept for {@value #PENDING_SECONDS} seconds.
+ * <p>
+ * Payload: format version, sender id, player UUID, then the profile as written by {@link LatencyProfile#write}.
+ */
+public class LatencyHandoff {
+
+    public static final String CHANNEL = "knockbacksync:latency";
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final long PENDING_SECONDS = 30;
+
+    // Lets us ignore our own payloads when the transport echoes them back
+    private final long senderId = ThreadLocalRandom.current().nextLong();
+    private final Map<UUID, Pending> pending = new ConcurrentHashMap<>();
+    private volatile HandoffTransport transport;
+
+    public synchronized void start() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (transport != null || !settings.isProxyHandoffEnabled())
+            return;
+
+        transport = Base.INSTANCE.createHandoffTransport(settings.getProxyHandoffTransport());
+        if (transport == null)
+            Base.LOGGER.warning("Proxy hand-off transport " + settings.getProxyHandoffTransport() + " is not supported on this platform");
+    }
+
+    public synchronized void stop() {
+        if (transport != null) {
+            transport.close();
+            transport = null;
+        }
+        pending.clear();
+    }
+
+    @KBSyncEventHandler
+    public void onGeneralSettingsChanged(GeneralSettingsChangedEvent event) {
+        if (event.getChangedPaths().stream().anyMatch(path -> path.equals("proxy_handoff") || path.startsWith("proxy_handoff."))) {
+            stop();
+            start();
+        }
+    }
+
+    public void onPlayerJoin(PlayerData playerData) {
+        Pending handedOff = pending.remove(playerData.getUuid());
+        if (handedOff != null && !handedOff.isExpired())
+            playerData.applyLatencyProfile(handedOff.profile);
+    }
+
+    public void onPlayerQuit(UUID uuid, LatencyProfile profile) {
+        HandoffTransport transport = this.transport;
+        if (transport == null)
+            return;
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(senderId);
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+            profile.write(out);
+            transport.send(uuid, bytes.toByteArray());
+        } catch (IOException e) {
+            Base.LOGGER.warning("Failed to hand off the latency profile of " + uuid + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Called by the transport for every payload from another backend, on any thread.
+     */
+    public void receive(byte[] payload) {
+        UUID uuid;
+        LatencyProfile profile;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            if (in.readByte() != FORMAT_VERSION || in.readLong() == senderId)
+                return;
+
+            uuid = new UUID(in.readLong(), in.readLong());
+            profile = LatencyProfile.read(in);
+        } catch (IOException e) {
+            Base.LOGGER.warning("Received a malformed latency hand-off: " + e.getMessage());
+            return;
+        }
+
+        PlayerData playerData = PlayerDataManager.getPlayerData(uuid);
+        if (playerData != null) {
+            playerData.applyLatencyProfile(profile);
+            return;
+        }
+
+        pending.values().removeIf(Pending::isExpired);
+        pending.put(uuid, new Pending(profile));
+    }
+
+    private static final class Pending {
+        final LatencyProfile profile;
+        final long receivedAtNanos = System.nanoTime();
+
+        Pending(LatencyProfile profile) {
+            this.profile = profile;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - receivedAtNanos > TimeUnit.SECONDS.toNanos(PENDING_SECONDS);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package me.caseload.knockbacksync.handoff;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * The framing spoken between {@link RelayHandoffTransport} and the standalone hand-off relay in the {@code relay}
+ * module: an unsigned short length followed by the payload.
+ */
+public final class RelayFrames {
+
+    public static final int MAX_FRAME = 4096;
+
+    private RelayFrames() {
+    }
+
+    public static void writeFrame(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeShort(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readUnsignedShort();
+        if (length > MAX_FRAME)
+            throw new EOFException("Frame of " + length + " bytes is too large");
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+}
@@ -0,0 +1,97 @@
+package me.caseload.knockbacksync.handoff;
+
+import me.caseload.knockbacksync.Base;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchanges payloads through the standalone relay in the {@code relay} module, for testing the hand-off with
+ * several servers on one machine without a proxy. Reconnects in the background if the relay goes away.
+ */
+public class RelayHandoffTransport implements HandoffTransport {
+
+    private static final long RECONNECT_DELAY_SECONDS = 5;
+
+    private final String host;
+    private final int port;
+    private final LatencyHandoff handoff;
+    private final Thread readerThread;
+    private volatile Socket socket;
+    private volatile DataOutputStream out;
+    private volatile boolean closed;
+
+    public RelayHandoffTransport(String host, int port, LatencyHandoff handoff) {
+        this.host = host;
+        this.port = port;
+        this.handoff = handoff;
+        this.readerThread = new Thread(this::readLoop, "KnockbackSync-HandoffRelay");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+    }
+
+    @Override
+    public void send(UUID departing, byte[] payload) {
+        DataOutputStream out = this.out;
+        if (out == null)
+            return; // Not connected, the profile is simply not handed off
+
+        try {
+            synchronized (out) {
+                RelayFrames.writeFrame(out, payload);
+            }
+        } catch (IOException e) {
+            closeSocket();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeSocket();
+        readerThread.interrupt();
+    }
+
+    private void readLoop() {
+        while (!closed) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), 5000);
+                socket.setTcpNoDelay(true);
+                this.socket = socket;
+                this.out = new DataOutputStream(socket.getOutputStream());
+                Base.LOGGER.info("Connected to the hand-off relay at " + host + ":" + port);
+
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (!closed)
+                    handoff.receive(RelayFrames.readFrame(in));
+            } catch (IOException e) {
+                if (!closed)
+                    Base.LOGGER.warning("Lost the hand-off relay at " + host + ":" + port + ", retrying in " + RECONNECT_DELAY_SECONDS + " seconds: " + e.getMessage());
+            } finally {
+                out = null;
+            }
+
+            try {
+                TimeUnit.SECONDS.sleep(RECONNECT_DELAY_SECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void closeSocket() {
+        Socket socket = this.socket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package me.caseload.knockbacksync.latency;
+
+/**
+ * Smoothed round trip time and mean deviation, the way TCP estimates its retransmission timeout (RFC 6298).
+ * A spike only moves the estimate by a fraction of its size, while a lasting change is followed within a few samples.
+ */
+public class EwmaEstimator implements LatencyEstimator {
+
+    // Weight of the deviation of a new sample, RFC 6298 recommends 1/4
+    private static final double DEVIATION_GAIN = 0.25;
+
+    private final double gain;
+    private double smoothed = Double.NaN;
+    private double deviation = Double.NaN;
+
+    /**
+     * @param gain Weight of a new sample, between 0 and 1. RFC 6298 recommends 1/8.
+     */
+    public EwmaEstimator(double gain) {
+        this.gain = gain;
+    }
+
+    @Override
+    public void addSample(double rttMillis) {
+        if (Double.isNaN(smoothed)) {
+            smoothed = rttMillis;
+            deviation = rttMillis / 2;
+            return;
+        }
+
+        deviation += (Math.abs(smoothed - rttMillis) - deviation) * DEVIATION_GAIN;
+        smoothed += (rttMillis - smoothed) * gain;
+    }
+
+    @Override
+    public double getEstimateMillis() {
+        return smoothed;
+    }
+
+    @Override
+    public double getDeviationMillis() {
+        return deviation;
+    }
+}
@@ -0,0 +1,62 @@
+package me.caseload.knockbacksync.latency;
+
+/**
+ * One dimensional Kalman filter that models the round trip time as a random walk observed through noisy samples.
+ * <p>
+ * A sample too far outside the expected spread is treated as a spike and ignored. If {@value #REGIME_CHANGE_SAMPLES}
+ * of those come in a row the route has changed instead, so the filter forgets what it knew and follows the samples.
+ */
+public class KalmanEstimator implements LatencyEstimator {
+
+    // Samples further than this many standard deviations from the estimate are outliers
+    private static final double OUTLIER_SIGMAS = 3;
+    private static final int REGIME_CHANGE_SAMPLES = 3;
+
+    private final double processNoise;
+    private final double measurementNoise;
+    private double estimate = Double.NaN;
+    private double variance;
+    private int outliers;
+
+    /**
+     * @param processNoise     How much the true round trip time drifts between two samples, as a variance in ms^2.
+     * @param measurementNoise How much a sample strays from the true round trip time, as a variance in ms^2.
+     */
+    public KalmanEstimator(double processNoise, double measurementNoise) {
+        this.processNoise = processNoise;
+        this.measurementNoise = measurementNoise;
+    }
+
+    @Override
+    public void addSample(double rttMillis) {
+        if (Double.isNaN(estimate)) {
+            estimate = rttMillis;
+            variance = measurementNoise;
+            return;
+        }
+
+        double predictedVariance = variance + processNoise;
+        double innovation = rttMillis - estimate;
+        double innovationVariance = predictedVariance + measurementNoise;
+        if (innovation * innovation > OUTLIER_SIGMAS * OUTLIER_SIGMAS * innovationVariance) {
+            if (++outliers < REGIME_CHANGE_SAMPLES)
+                return;
+            predictedVariance += innovation * innovation;
+        }
+        outliers = 0;
+
+        double gain = predictedVariance / (predictedVariance + measurementNoise);
+        estimate += gain * innovation;
+        variance = (1 - gain) * predictedVariance;
+    }
+
+    @Override
+    public double getEstimateMillis() {
+        return estimate;
+    }
+
+    @Override
+    public double getDeviationMillis() {
+        return Math.sqrt(variance);
+    }
+}
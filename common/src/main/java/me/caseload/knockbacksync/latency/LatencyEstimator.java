@@ -0,0 +1,22 @@
+package me.caseload.knockbacksync.latency;
+
+/**
+ * Turns a player's round trip time samples into the ping knockback is compensated for.
+ * <p>
+ * Fed by the single thread handling the player's probe responses, and must not allocate per sample. Other threads
+ * only see its output through {@link me.caseload.knockbacksync.player.LatencyState}.
+ */
+public interface LatencyEstimator {
+
+    void addSample(double rttMillis);
+
+    /**
+     * @return The estimated round trip time in milliseconds, or NaN if there are not enough samples yet.
+     */
+    double getEstimateMillis();
+
+    /**
+     * @return How far samples are expected to stray from the estimate in milliseconds, or NaN if unknown.
+     */
+    double getDeviationMillis();
+}
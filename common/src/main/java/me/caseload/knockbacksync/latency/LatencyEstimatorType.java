@@ -0,0 +1,26 @@
+package me.caseload.knockbacksync.latency;
+
+import me.caseload.knockbacksync.config.KbSyncSettings;
+
+public enum LatencyEstimatorType {
+    SPIKE_THRESHOLD {
+        @Override
+        public LatencyEstimator create(KbSyncSettings settings) {
+            return new SpikeThresholdEstimator(settings.getSpikeThreshold());
+        }
+    },
+    EWMA {
+        @Override
+        public LatencyEstimator create(KbSyncSettings settings) {
+            return new EwmaEstimator(settings.getEwmaGain());
+        }
+    },
+    KALMAN {
+        @Override
+        public LatencyEstimator create(KbSyncSettings settings) {
+            return new KalmanEstimator(settings.getKalmanProcessNoise(), settings.getKalmanMeasurementNoise());
+        }
+    };
+
+    public abstract LatencyEstimator create(KbSyncSettings settings);
+}
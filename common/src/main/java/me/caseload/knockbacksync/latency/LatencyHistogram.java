@@ -0,0 +1,133 @@
+package me.caseload.knockbacksync.latency;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size, log-linear histogram of latencies in microseconds, in the style of HdrHistogram.
+ * <p>
+ * Values below 16 microseconds get their own bucket, above that every power of two is split into 16 linear
+ * sub-buckets, which keeps the relative error of any reported value under ~6%. Values up to ~134 seconds
+ * are tracked, anything larger is counted in the last bucket. That is 384 counters, about 3 KB.
+ * <p>
+ * Recording is lock-free and allocation-free and can happen from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 26;
+    public static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+
+    public void record(long micros) {
+        if (micros < 0)
+            micros = 0;
+
+        counts.incrementAndGet(indexFor(micros));
+        totalCount.incrementAndGet();
+
+        long max;
+        while (micros > (max = maxValue.get()) && !maxValue.compareAndSet(max, micros)) {
+            // Retry, another thread raised the max
+        }
+    }
+
+    /**
+     * Adds all counts of another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.counts.get(i);
+            if (count != 0)
+                counts.addAndGet(i, count);
+        }
+        totalCount.addAndGet(other.totalCount.get());
+
+        long otherMax = other.maxValue.get();
+        long max;
+        while (otherMax > (max = maxValue.get()) && !maxValue.compareAndSet(max, otherMax)) {
+            // Retry, another thread raised the max
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return maxValue.get();
+    }
+
+    public long getCount(int bucket) {
+        return counts.get(bucket);
+    }
+
+    /**
+     * Returns the value at the given percentile, 0 if nothing was recorded. Concurrent recording may
+     * make the result slightly stale but never inconsistent enough to matter for reporting.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The value in microseconds, the middle of the bucket the percentile falls in.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            total += counts.get(i);
+        if (total == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min((lowerBound(i) + upperBound(i) - 1) / 2, getMax());
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            counts.set(i, 0);
+        totalCount.set(0);
+        maxValue.set(0);
+    }
+
+    public static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE)
+            return BUCKET_COUNT - 1;
+
+        // The top SUB_BUCKET_BITS + 1 bits of the value select the sub-bucket within its power of two
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT
+                + (int) (value >>> (magnitude - SUB_BUCKET_BITS)) - SUB_BUCKET_COUNT;
+    }
+
+    public static long lowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return subBucket << (magnitude - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * @return The exclusive upper bound of the bucket.
+     */
+    public static long upperBound(int index) {
+        if (index < SUB_BUCKET_COUNT)
+            return index + 1;
+
+        int magnitude = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return (subBucket + 1) << (magnitude - SUB_BUCKET_BITS);
+    }
+}
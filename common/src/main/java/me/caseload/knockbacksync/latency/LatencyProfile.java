@@ -0,0 +1,92 @@
+package me.caseload.knockbacksync.latency;
+
+import lombok.Getter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * What we knew about a player's connection when they last left: their most recent round trip times, the median
+ * and 99th percentile over the whole session, and the jitter. Used to seed {@link me.caseload.knockbacksync.player.PlayerData}
+ * on the next join, before any probe of the new session has come back.
+ */
+@Getter
+public final class LatencyProfile {
+
+    private static final byte FORMAT_VERSION = 1;
+    public static final int MAX_RECENT_SAMPLES = 15;
+    /**
+     * Round trip times and jitter above this are not a real connection, profiles claiming them are rejected.
+     */
+    public static final int MAX_RTT_MICROS = 30_000_000;
+
+    private final long savedAtMillis;
+    private final int[] recentRttMicros; // Oldest first
+    private final int medianRttMicros;
+    private final int p99RttMicros;
+    private final float jitterMillis;
+
+    public LatencyProfile(long savedAtMillis, int[] recentRttMicros, int medianRttMicros, int p99RttMicros, float jitterMillis) {
+        if (recentRttMicros.length > MAX_RECENT_SAMPLES)
+            throw new IllegalArgumentException("At most " + MAX_RECENT_SAMPLES + " recent samples, got " + recentRttMicros.length);
+
+        this.savedAtMillis = savedAtMillis;
+        this.recentRttMicros = recentRttMicros;
+        this.medianRttMicros = medianRttMicros;
+        this.p99RttMicros = p99RttMicros;
+        this.jitterMillis = jitterMillis;
+    }
+
+    public double getMedianRttMillis() {
+        return medianRttMicros / 1000.0;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(savedAtMillis);
+        out.writeInt(medianRttMicros);
+        out.writeInt(p99RttMicros);
+        out.writeFloat(jitterMillis);
+        out.writeByte(recentRttMicros.length);
+        for (int sample : recentRttMicros)
+            out.writeInt(sample);
+    }
+
+    private static int checkRtt(String name, int micros) throws IOException {
+        if (micros < 0 || micros > MAX_RTT_MICROS)
+            throw new IOException(name + " of " + micros + " us is out of range");
+        return micros;
+    }
+
+    /**
+     * Reads a profile written by {@link #write(DataOutput)}. Profiles can come from other servers through the
+     * proxy hand-off, so values no probe could have measured are rejected rather than applied.
+     *
+     * @throws IOException If the profile is malformed or out of range.
+     */
+    public static LatencyProfile read(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION)
+            throw new IOException("Unsupported latency profile version " + version);
+
+        long savedAtMillis = in.readLong();
+        int medianRttMicros = in.readInt();
+        int p99RttMicros = in.readInt();
+        float jitterMillis = in.readFloat();
+        int count = in.readUnsignedByte();
+        if (count > MAX_RECENT_SAMPLES)
+            throw new IOException("Latency profile has " + count + " recent samples");
+
+        int[] recentRttMicros = new int[count];
+        for (int i = 0; i < count; i++)
+            recentRttMicros[i] = checkRtt("Recent sample", in.readInt());
+
+        checkRtt("Median round trip time", medianRttMicros);
+        checkRtt("99th percentile round trip time", p99RttMicros);
+        // Also false for NaN
+        if (!(jitterMillis >= 0 && jitterMillis <= MAX_RTT_MICROS / 1000f))
+            throw new IOException("Jitter of " + jitterMillis + " ms is out of range");
+        return new LatencyProfile(savedAtMillis, recentRttMicros, medianRttMicros, p99RttMicros, jitterMillis);
+    }
+}
@@ -0,0 +1,420 @@
+package me.caseload.knockbacksync.latency;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.GeneralSettingsChangedEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps every player's {@link LatencyProfile} between sessions, in the {@code latency} folder of the plugin.
+ * <p>
+ * {@code profiles.log} is append only: saving a profile appends a record, it never rewrites an old one.
+ * {@code profiles.idx} maps each player to the offset of their latest record and remembers how long the log was
+ * when it was written, so on startup only the records appended after that are scanned. Compaction periodically
+ * rewrites the log with only the latest record of each player, dropping profiles older than
+ * {@code latency_profiles.max_age_days}.
+ * <p>
+ * Everything touching the files runs on one background thread. Saves are queued and written in batches,
+ * loads are answered from the queue first so a player who rejoins before a flush still gets their profile.
+ */
+public class LatencyProfileStore {
+
+    private static final int RECORD_MAGIC = 0x4B425250; // "KBRP"
+    private static final long INDEX_MAGIC = 0x4B4253494458_3031L; // "KBSIDX01"
+    private static final int RECORD_OVERHEAD = 4 + 16 + 4 + 4; // Magic, UUID, length, CRC
+    private static final int MAX_PAYLOAD = 1024;
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+    private static final long COMPACT_INTERVAL_MINUTES = 30;
+    private static final long MIN_COMPACT_BYTES = 64 * 1024;
+
+    private final Map<UUID, LatencyProfile> pending = new ConcurrentHashMap<>();
+
+    // Only touched on the store thread. Values pack the offset of the latest record with its length, see entry()
+    private final Map<UUID, Long> index = new HashMap<>();
+    private FileChannel log;
+    private long liveBytes;
+
+    private ScheduledExecutorService executor;
+    private File directory;
+    private long maxAgeMillis;
+
+    public synchronized void start() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (executor != null || !settings.isLatencyProfilesEnabled())
+            return;
+
+        directory = new File(Base.INSTANCE.getDataFolder(), "latency");
+        maxAgeMillis = TimeUnit.DAYS.toMillis(Math.max(settings.getLatencyProfilesMaxAgeDays(), 1));
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "KnockbackSync-LatencyProfiles");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.executor = executor;
+
+        executor.execute(this::open);
+        executor.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(this::compactIfNeeded, COMPACT_INTERVAL_MINUTES, COMPACT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Writes everything still queued and closes the files. Blocks for up to a few seconds.
+     */
+    public synchronized void stop() {
+        if (executor == null)
+            return;
+
+        executor.execute(this::close);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        executor = null;
+    }
+
+    @KBSyncEventHandler
+    public void onGeneralSettingsChanged(GeneralSettingsChangedEvent event) {
+        if (event.getChangedPaths().stream().anyMatch(path -> path.equals("latency_profiles") || path.startsWith("latency_profiles."))) {
+            stop();
+            start();
+        }
+    }
+
+    /**
+     * Queues a profile to be written with the next batch.
+     */
+    public void save(UUID uuid, LatencyProfile profile) {
+        if (executor != null)
+            pending.put(uuid, profile);
+    }
+
+    /**
+     * Looks up a player's profile in the background. The callback runs on the store thread,
+     * and only if a profile was found that is not too old.
+     */
+    public synchronized void load(UUID uuid, Consumer<LatencyProfile> callback) {
+        if (executor == null)
+            return;
+
+        executor.execute(() -> {
+            LatencyProfile profile = pending.get(uuid);
+            if (profile == null)
+                profile = read(uuid);
+            if (profile != null && System.currentTimeMillis() - profile.getSavedAtMillis() <= maxAgeMillis)
+                callback.accept(profile);
+        });
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory.toPath());
+            log = FileChannel.open(logPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long indexedLength = readIndex();
+            scan(indexedLength);
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to open the latency profile store, profiles will not be saved", e);
+            closeQuietly();
+        }
+    }
+
+    private void close() {
+        flush();
+        if (log == null)
+            return;
+
+        try {
+            writeIndex();
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to write the latency profile index", e);
+        }
+        closeQuietly();
+    }
+
+    private void flush() {
+        if (log == null || pending.isEmpty())
+            return;
+
+        try {
+            ByteArrayOutputStream batch = new ByteArrayOutputStream();
+            Map<UUID, Long> entries = new HashMap<>();
+            long position = log.size();
+            for (Map.Entry<UUID, LatencyProfile> entry : pending.entrySet()) {
+                long offset = position + batch.size();
+                int length = writeRecord(batch, entry.getKey(), entry.getValue());
+                entries.put(entry.getKey(), entry(offset, length));
+                // Only removes the entry if it was not replaced while we were writing it
+                pending.remove(entry.getKey(), entry.getValue());
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+            while (buffer.hasRemaining())
+                log.write(buffer, position + buffer.position());
+            log.force(false);
+
+            for (Map.Entry<UUID, Long> entry : entries.entrySet())
+                indexRecord(entry.getKey(), entry.getValue());
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to save latency profiles", e);
+        }
+    }
+
+    private LatencyProfile read(UUID uuid) {
+        Long entry = index.get(uuid);
+        if (log == null || entry == null)
+            return null;
+
+        try {
+            return readRecord(offsetOf(entry)).profile;
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to read the latency profile of " + uuid, e);
+            return null;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (log == null)
+            return;
+
+        try {
+            long size = log.size();
+            if (size < MIN_COMPACT_BYTES || size < liveBytes * 2)
+                return;
+
+            compact();
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to compact the latency profile store", e);
+        }
+    }
+
+    private void compact() throws IOException {
+        flush();
+        Path compacted = directory.toPath().resolve("profiles.log.tmp");
+        Map<UUID, Long> newIndex = new HashMap<>();
+        long now = System.currentTimeMillis();
+        long newLength = 0;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(compacted))) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for (Map.Entry<UUID, Long> entry : index.entrySet()) {
+                Record record;
+                try {
+                    record = readRecord(offsetOf(entry.getValue()));
+                } catch (IOException e) {
+                    continue; // Compacting is the best chance to get rid of a damaged record
+                }
+                if (now - record.profile.getSavedAtMillis() > maxAgeMillis)
+                    continue;
+
+                bytes.reset();
+                int length = writeRecord(bytes, entry.getKey(), record.profile);
+                bytes.writeTo(out);
+                newIndex.put(entry.getKey(), entry(newLength, length));
+                newLength += length;
+            }
+        }
+
+        log.close();
+        try {
+            Files.move(compacted, logPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.move(compacted, logPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            // Reopens the old log if the move failed
+            log = FileChannel.open(logPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+
+        index.clear();
+        index.putAll(newIndex);
+        liveBytes = newLength;
+        writeIndex();
+    }
+
+    // Returns how much of the log the index covers, 0 if there is no usable index
+    private long readIndex() throws IOException {
+        Path indexPath = indexPath();
+        if (!Files.exists(indexPath))
+            return 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readLong() != INDEX_MAGIC)
+                return 0;
+
+            long logLength = in.readLong();
+            if (logLength > log.size())
+                return 0; // The log was replaced or truncated behind our back
+
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+                indexRecord(new UUID(in.readLong(), in.readLong()), in.readLong());
+            return logLength;
+        } catch (IOException e) {
+            Base.LOGGER.warning("The latency profile index is damaged, rebuilding it from the log");
+            index.clear();
+            liveBytes = 0;
+            return 0;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path temp = directory.toPath().resolve("profiles.idx.tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeLong(INDEX_MAGIC);
+            out.writeLong(log.size());
+            out.writeInt(index.size());
+            for (Map.Entry<UUID, Long> entry : index.entrySet()) {
+                out.writeLong(entry.getKey().getMostSignificantBits());
+                out.writeLong(entry.getKey().getLeastSignificantBits());
+                out.writeLong(entry.getValue());
+            }
+        }
+        try {
+            Files.move(temp, indexPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.move(temp, indexPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Indexes every record from the given offset on, and cuts off a record that was only partially written
+    private void scan(long from) throws IOException {
+        long position = from;
+        long size = log.size();
+        while (position < size) {
+            Record record;
+            try {
+                record = readRecord(position);
+            } catch (IOException e) {
+                Base.LOGGER.warning("Discarding " + (size - position) + " bytes of damaged latency profiles at the end of the log");
+                log.truncate(position);
+                return;
+            }
+            indexRecord(record.uuid, entry(position, record.length));
+            position += record.length;
+        }
+    }
+
+    private void indexRecord(UUID uuid, long entry) {
+        Long previous = index.put(uuid, entry);
+        if (previous != null)
+            liveBytes -= lengthOf(previous);
+        liveBytes += lengthOf(entry);
+    }
+
+    private static long entry(long offset, int length) {
+        return offset << 16 | length;
+    }
+
+    private static long offsetOf(long entry) {
+        return entry >>> 16;
+    }
+
+    private static int lengthOf(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    private Record readRecord(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_OVERHEAD - 4);
+        readFully(header, offset);
+        if (header.getInt(0) != RECORD_MAGIC)
+            throw new IOException("No latency profile record at offset " + offset);
+
+        UUID uuid = new UUID(header.getLong(4), header.getLong(12));
+        int length = header.getInt(20);
+        if (length < 0 || length > MAX_PAYLOAD)
+            throw new IOException("Latency profile record at offset " + offset + " has an invalid length");
+
+        ByteBuffer body = ByteBuffer.allocate(length + 4);
+        readFully(body, offset + header.capacity());
+        CRC32 crc = new CRC32();
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != body.getInt(length))
+            throw new IOException("Latency profile record at offset " + offset + " is corrupt");
+
+        InputStream payload = new ByteArrayInputStream(body.array(), 0, length);
+        return new Record(uuid, LatencyProfile.read(new DataInputStream(payload)), RECORD_OVERHEAD + length);
+    }
+
+    // Returns the length of the record
+    private static int writeRecord(ByteArrayOutputStream out, UUID uuid, LatencyProfile profile) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        profile.write(new DataOutputStream(payload));
+        CRC32 crc = new CRC32();
+        crc.update(payload.toByteArray());
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(RECORD_MAGIC);
+        data.writeLong(uuid.getMostSignificantBits());
+        data.writeLong(uuid.getLeastSignificantBits());
+        data.writeInt(payload.size());
+        payload.writeTo(data);
+        data.writeInt((int) crc.getValue());
+        return RECORD_OVERHEAD + payload.size();
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            if (log != null)
+                log.close();
+        } catch (IOException ignored) {
+        }
+        log = null;
+        index.clear();
+        liveBytes = 0;
+    }
+
+    private Path logPath() {
+        return directory.toPath().resolve("profiles.log");
+    }
+
+    private Path indexPath() {
+        return directory.toPath().resolve("profiles.idx");
+    }
+
+    private static final class Record {
+        final UUID uuid;
+        final LatencyProfile profile;
+        final int length;
+
+        Record(UUID uuid, LatencyProfile profile, int length) {
+            this.uuid = uuid;
+            this.profile = profile;
+            this.length = length;
+        }
+    }
+}
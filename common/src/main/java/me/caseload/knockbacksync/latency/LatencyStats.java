@@ -0,0 +1,69 @@
+package me.caseload.knockbacksync.latency;
+
+import lombok.Getter;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trip time distribution and lost probe count of a player, or of the whole server.
+ * Every sample recorded for a player is also recorded into its parent, so the server wide
+ * statistics are always up to date without ever having to merge players together.
+ */
+@Getter
+public class LatencyStats {
+
+    /**
+     * Aggregate of every player since the server started.
+     */
+    public static final LatencyStats SERVER = new LatencyStats(null);
+    /**
+     * Time between sending a knockback and the client applying it, of every player since the server started.
+     */
+    public static final LatencyStats VELOCITY_ACKS = new LatencyStats(null);
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private final AtomicLong lostProbes = new AtomicLong();
+    @Nullable private final LatencyStats parent;
+
+    public LatencyStats(@Nullable LatencyStats parent) {
+        this.parent = parent;
+    }
+
+    public void recordRtt(long rttNanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(rttNanos);
+        histogram.record(micros);
+        if (parent != null)
+            parent.histogram.record(micros);
+    }
+
+    /**
+     * Records a probe that was never answered.
+     */
+    public void recordLostProbe() {
+        lostProbes.incrementAndGet();
+        if (parent != null)
+            parent.lostProbes.incrementAndGet();
+    }
+
+    public long getLostProbeCount() {
+        return lostProbes.get();
+    }
+
+    public long getSampleCount() {
+        return histogram.getTotalCount();
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100.
+     * @return The round trip time at that percentile in milliseconds.
+     */
+    public double getPercentileMillis(double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public double getMaxMillis() {
+        return histogram.getMax() / 1000.0;
+    }
+}
@@ -0,0 +1,37 @@
+package me.caseload.knockbacksync.latency;
+
+/**
+ * The original heuristic: the latest sample, unless it rose more than {@code spike_threshold} above the one before,
+ * then that one is kept instead.
+ * <p>
+ * Has no estimate until the second sample, the player's ping then falls back to being compared against the
+ * vanilla ping like before any sample.
+ */
+public class SpikeThresholdEstimator implements LatencyEstimator {
+
+    private final double thresholdMillis;
+    private double latest = Double.NaN;
+    private double previous = Double.NaN;
+
+    public SpikeThresholdEstimator(double thresholdMillis) {
+        this.thresholdMillis = thresholdMillis;
+    }
+
+    @Override
+    public void addSample(double rttMillis) {
+        previous = latest;
+        latest = rttMillis;
+    }
+
+    @Override
+    public double getEstimateMillis() {
+        if (Double.isNaN(previous))
+            return Double.NaN;
+        return latest - previous > thresholdMillis ? previous : latest;
+    }
+
+    @Override
+    public double getDeviationMillis() {
+        return Math.abs(latest - previous);
+    }
+}
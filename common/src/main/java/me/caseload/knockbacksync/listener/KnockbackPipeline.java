@@ -0,0 +1,15 @@
+package me.caseload.knockbacksync.listener;
+
+/**
+ * Where knockback is adjusted.
+ */
+public enum KnockbackPipeline {
+    /**
+     * In the platform's velocity event on the main thread, by setting the victim's velocity again.
+     */
+    EVENT,
+    /**
+     * In the outgoing velocity packet on the victim's Netty thread, from a decision prepared when they were hit.
+     */
+    PACKET
+}
@@ -1,13 +1,57 @@
 package me.caseload.knockbacksync.listener;
 
 import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
 import me.caseload.knockbacksync.player.PlatformPlayer;
 import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
 
 public abstract class PlayerDamageListener {
     public void onPlayerDamage(PlatformPlayer victim, PlatformPlayer attacker) {
-        if (!Base.INSTANCE.getConfigManager().isToggled())
+        long profilerStart = HotPathProfiler.start();
+        handlePlayerDamage(victim, attacker);
+        HotPathProfiler.stop(HotPathProfiler.Section.DAMAGE, profilerStart);
+    }
+
+    /**
+     * @return Whether the knockback of each hit is prepared here, for the velocity packet to finish.
+     */
+    protected boolean preparesKnockback(KbSyncSettings settings) {
+        return settings.getKnockbackPipeline() == KnockbackPipeline.PACKET;
+    }
+
+    /**
+     * Prepares the knockback of a hit for the velocity packet to finish. Called once nothing can cancel the hit
+     * anymore, and only for melee hits, the ones the event pipeline adjusts too.
+     */
+    public void onPlayerHitConfirmed(PlatformPlayer victim) {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (!settings.isToggled() || !preparesKnockback(settings))
+            return;
+
+        PlayerData playerData = PlayerDataManager.getPlayerData(victim.getUUID());
+        if (playerData == null)
+            return;
+
+        long profilerStart = HotPathProfiler.start();
+        playerData.setPreparedKnockback(PlayerKnockbackListener.prepare(victim, System.nanoTime()));
+        HotPathProfiler.stop(HotPathProfiler.Section.DAMAGE, profilerStart);
+    }
+
+    /**
+     * Drops the knockback prepared for the victim, after a hit that was cancelled or is not a melee hit, so it is
+     * not applied to whatever velocity the player is sent next.
+     */
+    public void onPlayerHitDiscarded(PlatformPlayer victim) {
+        PlayerData playerData = PlayerDataManager.getPlayerData(victim.getUUID());
+        if (playerData != null)
+            playerData.setPreparedKnockback(null);
+    }
+
+    private void handlePlayerDamage(PlatformPlayer victim, PlatformPlayer attacker) {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (!settings.isToggled())
             return;
 
         PlayerData playerData = PlayerDataManager.getPlayerData(victim.getUUID());
@@ -18,7 +62,7 @@ public abstract class PlayerDamageListener {
         playerData.setLastDamageTicks(victim.getNoDamageTicks());
         playerData.updateCombat();
 
-        if (!Base.INSTANCE.getConfigManager().isRunnableEnabled())
+        if (!settings.isRunnableEnabled())
             playerData.sendPing(true);
     }
 }
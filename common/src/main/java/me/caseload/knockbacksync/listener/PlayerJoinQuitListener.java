@@ -1,6 +1,7 @@
 package me.caseload.knockbacksync.listener;
 
 import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.latency.LatencyProfile;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
 import me.caseload.knockbacksync.player.PlatformPlayer;
 import me.caseload.knockbacksync.player.PlayerData;
@@ -11,9 +12,12 @@ import java.util.UUID;
 public abstract class PlayerJoinQuitListener {
     public void onPlayerJoin(PlayerData player) {
         PlayerDataManager.addPlayerData(player.getUuid(), player);
+        // A profile handed off by the previous backend is fresher than the stored one, and the first applied wins
+        Base.INSTANCE.getLatencyHandoff().onPlayerJoin(player);
+        Base.INSTANCE.getLatencyProfileStore().load(player.getUuid(), player::applyLatencyProfile);
         PlatformPlayer platformPlayer = player.getPlatformPlayer();
 
-        if (Base.INSTANCE.getConfigManager().isUpdateAvailable() && Base.INSTANCE.getConfigManager().isNotifyUpdate() && Base.INSTANCE.getPermissionChecker().hasPermission(platformPlayer, "knockbacksync.update"))
+        if (Base.INSTANCE.getConfigManager().isUpdateAvailable() && Base.INSTANCE.getConfigManager().getSettings().isNotifyUpdate() && Base.INSTANCE.getPermissionChecker().hasPermission(platformPlayer, "knockbacksync.update"))
             platformPlayer.sendMessage(ChatUtil.translateAlternateColorCodes(
                     '&',
                     "&6An updated version of &eKnockbackSync &6is now available for download at: &bhttps://github.com/CASELOAD7000/knockback-sync/releases/latest"
@@ -28,6 +32,12 @@ public abstract class PlayerJoinQuitListener {
         if (playerData.isInCombat())
             playerData.quitCombat();
 
+        LatencyProfile profile = playerData.createLatencyProfile();
+        if (profile != null) {
+            Base.INSTANCE.getLatencyProfileStore().save(uuid, profile);
+            Base.INSTANCE.getLatencyHandoff().onPlayerQuit(uuid, profile);
+        }
+
         PlayerDataManager.removePlayerData(uuid);
     }
 }
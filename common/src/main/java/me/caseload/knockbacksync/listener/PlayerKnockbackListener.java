@@ -3,49 +3,197 @@ package me.caseload.knockbacksync.listener;
 import com.github.retrooper.packetevents.protocol.world.states.WrappedBlockState;
 import com.github.retrooper.packetevents.protocol.world.states.type.StateTypes;
 import com.github.retrooper.packetevents.util.Vector3d;
+import lombok.Getter;
 import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.load.LoadLevel;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
 import me.caseload.knockbacksync.player.PlatformPlayer;
 import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
+import me.caseload.knockbacksync.recorder.SessionRecorder;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
 
 public abstract class PlayerKnockbackListener {
 
-    public void onPlayerVelocity(PlatformPlayer victim, Vector3d velocity) {
+    /**
+     * Why a velocity was left unchanged.
+     */
+    public enum SkipReason {
+        DISABLED,
+        NO_PLAYER_DATA,
+        LOW_PING,
+        ON_GROUND,
+        GLIDING,
+        BLOCKED_BY_BLOCK,
+        RECENTLY_DAMAGED,
+        OFF_GROUND_SYNC_DISABLED,
+        OVERLOADED
+    }
+
+    /**
+     * Adjusts a velocity the server is about to send through the platform's velocity event, on the main thread.
+     *
+     * @return Why the velocity was left unchanged, or null if it was adjusted.
+     */
+    public SkipReason onPlayerVelocity(PlatformPlayer victim, Vector3d velocity) {
+        long profilerStart = HotPathProfiler.start();
+        long start = System.nanoTime();
+        SkipReason skipReason = adjustVelocity(prepare(victim, start), velocity, victim::setVelocity);
+        count(skipReason, start);
+        HotPathProfiler.stop(HotPathProfiler.Section.KNOCKBACK, profilerStart);
+        return skipReason;
+    }
+
+    /**
+     * Adjusts the velocity packet for a knockback that was {@link #prepare prepared} when the victim was hit.
+     * Only does arithmetic, so it can run on the victim's Netty thread while the packet is being sent.
+     *
+     * @param setVelocity Replaces the velocity in the packet.
+     * @return Why the velocity was left unchanged, or null if it was adjusted.
+     */
+    public SkipReason onPreparedVelocity(PreparedKnockback prepared, Vector3d velocity, Consumer<Vector3d> setVelocity) {
+        long profilerStart = HotPathProfiler.start();
+        long start = System.nanoTime();
+        SkipReason skipReason = adjustVelocity(prepared, velocity, setVelocity);
+        count(skipReason, start);
+        HotPathProfiler.stop(HotPathProfiler.Section.KNOCKBACK, profilerStart);
+        return skipReason;
+    }
+
+    private static void count(SkipReason skipReason, long start) {
+        if (skipReason == null)
+            PluginMetrics.KNOCKBACK_ADJUSTED.increment();
+        else
+            PluginMetrics.knockbackSkipped(skipReason).increment();
+        PluginMetrics.KNOCKBACK_NANOS.add(System.nanoTime() - start);
+    }
+
+    /**
+     * Everything about a knockback that needs the world: the victim's distance to the ground and the blocks
+     * around them. Must run on the main thread, before the velocity is known.
+     */
+    public static PreparedKnockback prepare(PlatformPlayer victim, long nowNanos) {
         if (!Base.INSTANCE.getConfigManager().isToggled())
-            return;
+            return PreparedKnockback.skipped(null, SkipReason.DISABLED, nowNanos);
+
+        LoadLevel loadLevel = Base.INSTANCE.getLoadGovernor().getLevel();
+        if (loadLevel == LoadLevel.BYPASS)
+            return PreparedKnockback.skipped(null, SkipReason.OVERLOADED, nowNanos);
 
         PlayerData victimPlayerData = PlayerDataManager.getPlayerData(victim.getUUID());
         if (victimPlayerData == null)
-            return;
+            return PreparedKnockback.skipped(null, SkipReason.NO_PLAYER_DATA, nowNanos);
 
         if (victimPlayerData.getNotNullPing() < PlayerData.PING_OFFSET)
-            return;
+            return PreparedKnockback.skipped(victimPlayerData, SkipReason.LOW_PING, nowNanos);
 
-        double distanceToGround = victimPlayerData.getDistanceToGround();
+        double distanceToGround = loadLevel.isAtLeast(LoadLevel.CACHED_GROUND)
+                ? victimPlayerData.getRecentDistanceToGround()
+                : victimPlayerData.getDistanceToGround();
+        SkipReason skipReason = null;
         if (distanceToGround <= 0)
-            return; // minecraft already does the work for us
+            skipReason = SkipReason.ON_GROUND; // minecraft already does the work for us
+        else if (victim.isGliding())
+            skipReason = SkipReason.GLIDING;
+        else {
+            WrappedBlockState blockState = victim.getWorld().getBlockStateAt(victim.getLocation());
+            if (blockState.getType() == StateTypes.WATER ||
+                    blockState.getType() == StateTypes.LAVA ||
+                    blockState.getType() == StateTypes.COBWEB ||
+                    blockState.getType() == StateTypes.SCAFFOLDING)
+                skipReason = SkipReason.BLOCKED_BY_BLOCK;
+        }
+
+        return new PreparedKnockback(victimPlayerData, skipReason, loadLevel, distanceToGround,
+                victimPlayerData.getVerticalVelocity(), victimPlayerData.getLastDamageTicks(), nowNanos);
+    }
 
-        WrappedBlockState blockState = victim.getWorld().getBlockStateAt(victim.getLocation());
-        if (victim.isGliding() ||
-                blockState.getType() == StateTypes.WATER ||
-                blockState.getType() == StateTypes.LAVA ||
-                blockState.getType() == StateTypes.COBWEB ||
-                blockState.getType() == StateTypes.SCAFFOLDING)
-            return;
+    /**
+     * @return Why the velocity was left unchanged, or null if it was adjusted.
+     */
+    private static SkipReason adjustVelocity(PreparedKnockback prepared, Vector3d velocity, Consumer<Vector3d> setVelocity) {
+        PlayerData victimPlayerData = prepared.getPlayerData();
+        if (victimPlayerData == null)
+            return prepared.getSkipReason();
+
+        if (prepared.getSkipReason() != null)
+            return record(prepared, velocity, prepared.getSkipReason());
 
+        double distanceToGround = prepared.getDistanceToGround();
         Vector3d adjustedVelocity;
+        byte branch;
         if (victimPlayerData.isOnGroundClientSide(velocity.getY(), distanceToGround)) {
-            Integer damageTicks = victimPlayerData.getLastDamageTicks();
+            Integer damageTicks = prepared.getLastDamageTicks();
             if (damageTicks != null && damageTicks > 8)
-                return;
+                return record(prepared, velocity, SkipReason.RECENTLY_DAMAGED);
 
-            adjustedVelocity = velocity.withY(victimPlayerData.getVerticalVelocity()); // Should be impossible to produce a NPE in this context
+            adjustedVelocity = velocity.withY(prepared.getVerticalVelocity()); // Should be impossible to produce a NPE in this context
+            branch = SessionRecorder.BRANCH_ADJUSTED_ON_GROUND;
+        }
+        else if (prepared.getLoadLevel().isAtLeast(LoadLevel.SKIP_OFF_GROUND))
+            return record(prepared, velocity, SkipReason.OVERLOADED);
+        else if (victimPlayerData.isOffGroundSyncEnabled()) {
+            adjustedVelocity = velocity.withY(victimPlayerData.getCompensatedOffGroundVelocity(velocity.getY()));
+            branch = SessionRecorder.BRANCH_ADJUSTED_OFF_GROUND;
         }
-        else if (victimPlayerData.isOffGroundSyncEnabled())
-            adjustedVelocity = velocity.withY(victimPlayerData.getCompensatedOffGroundVelocity());
         else
-            return;
+            return record(prepared, velocity, SkipReason.OFF_GROUND_SYNC_DISABLED);
+
+        SessionRecorder recorder = Base.INSTANCE.getSessionRecorder();
+        if (recorder.isRecording())
+            record(recorder, prepared, branch, velocity, adjustedVelocity.getY());
+
+        setVelocity.accept(adjustedVelocity);
+        return null;
+    }
+
+    private static SkipReason record(PreparedKnockback prepared, Vector3d velocity, SkipReason reason) {
+        SessionRecorder recorder = Base.INSTANCE.getSessionRecorder();
+        if (recorder.isRecording())
+            record(recorder, prepared, (byte) (SessionRecorder.BRANCH_SKIPPED + reason.ordinal()), velocity, Double.NaN);
+        return reason;
+    }
+
+    private static void record(SessionRecorder recorder, PreparedKnockback prepared, byte branch, Vector3d velocity,
+                               double adjustedVelocityY) {
+        PlayerData playerData = prepared.getPlayerData();
+        Double verticalVelocity = prepared.getVerticalVelocity();
+        recorder.recordKnockback(playerData.getUuid(), branch, playerData.getCompensatedTicks(), prepared.getDistanceToGround(),
+                velocity.getY(), verticalVelocity != null ? verticalVelocity : Double.NaN, adjustedVelocityY);
+    }
+
+    /**
+     * The part of a knockback decision that was made when the victim was hit. Immutable, so it can be handed
+     * from the main thread to the Netty thread that sends the velocity.
+     */
+    @Getter
+    public static final class PreparedKnockback {
+        @Nullable private final PlayerData playerData;
+        // Already decided to leave the velocity alone, whatever it turns out to be
+        @Nullable private final SkipReason skipReason;
+        private final LoadLevel loadLevel;
+        private final double distanceToGround;
+        @Nullable private final Double verticalVelocity;
+        @Nullable private final Integer lastDamageTicks;
+        private final long preparedNanos;
 
-        victim.setVelocity(adjustedVelocity);
+        PreparedKnockback(@Nullable PlayerData playerData, @Nullable SkipReason skipReason, LoadLevel loadLevel,
+                          double distanceToGround, @Nullable Double verticalVelocity, @Nullable Integer lastDamageTicks,
+                          long preparedNanos) {
+            this.playerData = playerData;
+            this.skipReason = skipReason;
+            this.loadLevel = loadLevel;
+            this.distanceToGround = distanceToGround;
+            this.verticalVelocity = verticalVelocity;
+            this.lastDamageTicks = lastDamageTicks;
+            this.preparedNanos = preparedNanos;
+        }
+
+        static PreparedKnockback skipped(@Nullable PlayerData playerData, SkipReason skipReason, long nowNanos) {
+            return new PreparedKnockback(playerData, skipReason, LoadLevel.NORMAL, Double.NaN, null, null, nowNanos);
+        }
     }
-}
\ No newline at end of file
+}
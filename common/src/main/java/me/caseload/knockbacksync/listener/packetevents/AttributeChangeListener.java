@@ -2,8 +2,11 @@ package me.caseload.knockbacksync.listener.packetevents;
 
 import com.github.retrooper.packetevents.event.PacketListenerAbstract;
 import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.netty.buffer.ByteBufHelper;
 import com.github.retrooper.packetevents.protocol.attribute.Attributes;
 import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.protocol.player.User;
+import com.github.retrooper.packetevents.wrapper.PacketWrapper;
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerUpdateAttributes;
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
@@ -21,36 +24,49 @@ public class AttributeChangeListener extends PacketListenerAbstract {
     final double minGravity = -1;
     final double maxGravity = 1;
     final double defaultGravity = 0.08;
-    double currentGravity;
-
-    public AttributeChangeListener() {
-        currentGravity = defaultGravity;
-    }
 
     @Override
     public void onPacketSend(PacketSendEvent event) {
+        if (event.getPacketType() != PacketType.Play.Server.UPDATE_ATTRIBUTES) return;
         if (!Base.INSTANCE.getConfigManager().isToggled()) return;
 
-        if (event.getPacketType() == PacketType.Play.Server.UPDATE_ATTRIBUTES) {
-
-            WrapperPlayServerUpdateAttributes packet = new WrapperPlayServerUpdateAttributes(event);
-
-            UUID uuid = event.getUser().getUUID();
-            if (!PlayerDataManager.containsPlayerData(uuid))
-                return;
+        // Most attribute updates are about mobs and other players, only decode the player's own
+        User user = event.getUser();
+        if (readEntityId(event) != user.getEntityId()) return;
 
-            // Get the attributes from the packet
-            for (WrapperPlayServerUpdateAttributes.Property property : packet.getProperties()) {
-                // You can now check for specific attributes
-                if (property.getAttribute().equals(Attributes.GENERIC_GRAVITY)) {
-                    onPlayerGravityChange(uuid, calculateValueWithModifiers(property));
-                } else if (property.getAttribute().equals(Attributes.GENERIC_KNOCKBACK_RESISTANCE)) {
-                    onPlayerKnockBackChange(uuid, calculateValueWithModifiers(property));
-                }
+        UUID uuid = user.getUUID();
+        if (uuid == null) return;
+        PlayerData playerData = PlayerDataManager.getPlayerData(uuid);
+        if (playerData == null) return;
+
+        WrapperPlayServerUpdateAttributes packet = new WrapperPlayServerUpdateAttributes(event);
+        for (WrapperPlayServerUpdateAttributes.Property property : packet.getProperties()) {
+            if (property.getAttribute().equals(Attributes.GENERIC_GRAVITY)) {
+                onPlayerGravityChange(playerData, calculateValueWithModifiers(property));
+            } else if (property.getAttribute().equals(Attributes.GENERIC_KNOCKBACK_RESISTANCE)) {
+                playerData.setKnockbackResistanceAttribute(calculateValueWithModifiers(property));
             }
         }
     }
 
+    /**
+     * Reads the entity ID the packet starts with, without decoding the rest or moving the reader index.
+     */
+    private static int readEntityId(PacketSendEvent event) {
+        // Another listener already decoded it and left the reader index behind the entity ID
+        PacketWrapper<?> decoded = event.getLastUsedWrapper();
+        if (decoded instanceof WrapperPlayServerUpdateAttributes)
+            return ((WrapperPlayServerUpdateAttributes) decoded).getEntityId();
+
+        Object buffer = event.getByteBuf();
+        int readerIndex = ByteBufHelper.readerIndex(buffer);
+        try {
+            return ByteBufHelper.readVarInt(buffer);
+        } finally {
+            ByteBufHelper.readerIndex(buffer, readerIndex);
+        }
+    }
+
     public double calculateValueWithModifiers(WrapperPlayServerUpdateAttributes.Property property) {
         double baseValue = property.getValue();
         double additionSum = 0;
@@ -76,27 +92,15 @@ public class AttributeChangeListener extends PacketListenerAbstract {
         }
 
         double newValue = (baseValue + additionSum) * (1 + multiplyBaseSum) * multiplyTotalProduct;
-        newValue = MathUtil.clamp(newValue, minGravity, maxGravity);
-
-        if (newValue < minGravity || newValue > maxGravity)
-            throw new IllegalArgumentException("New value must be between min and max!");
-
-        return this.currentGravity = newValue;
+        return MathUtil.clamp(newValue, minGravity, maxGravity);
     }
 
     // Yes this is not properly latency compensated, that would require including a proper simulation engine
     // Laggy players will just have to deal with being on the wrong gravity for a few hundred ms, too bad!
-    public void onPlayerGravityChange(UUID uuid, double newGravity) {
-        //PlayerData playerData = PlayerDataManager.getPlayerData(uuid);
+    public void onPlayerGravityChange(PlayerData playerData, double newGravity) {
+        // Gravity changes are ignored for now, every player is compensated with the default gravity
         //if (playerData.getClientVersion().isNewerThanOrEquals(ClientVersion.V_1_20_5)) {
         //playerData.setGravityAttribute(newGravity);
-        //} else {
-        currentGravity = defaultGravity;
         //}
     }
-
-    private void onPlayerKnockBackChange(UUID uuid, double newKnockbackResistance) {
-        PlayerData playerData = PlayerDataManager.getPlayerData(uuid);
-        playerData.setKnockbackResistanceAttribute(newKnockbackResistance);
-    }
-}
\ No newline at end of file
+}
@@ -2,36 +2,76 @@ package me.caseload.knockbacksync.listener.packetevents;
 
 import com.github.retrooper.packetevents.event.PacketListenerAbstract;
 import com.github.retrooper.packetevents.event.PacketReceiveEvent;
+import com.github.retrooper.packetevents.event.UserDisconnectEvent;
+import com.github.retrooper.packetevents.netty.buffer.ByteBufHelper;
 import com.github.retrooper.packetevents.protocol.packettype.PacketType;
-import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientPluginMessage;
-import me.caseload.knockbacksync.Base;
+import com.github.retrooper.packetevents.protocol.player.User;
+import me.caseload.knockbacksync.manager.ClientBrandManager;
+import org.jetbrains.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Remembers the brand each connection's client sent. Shared by every connection, so it keeps no state of its own.
+ */
 public class ClientBrandListener extends PacketListenerAbstract {
-    String brand = "vanilla";
-    boolean hasBrand = false;
+
+    private static final String BRAND_CHANNEL = "minecraft:brand"; // 1.13+
+    private static final String LEGACY_BRAND_CHANNEL = "MC|Brand"; // 1.12
 
     @Override
     public void onPacketReceive(final PacketReceiveEvent event) {
-        if (event.getPacketType() == PacketType.Play.Client.PLUGIN_MESSAGE) {
-            WrapperPlayClientPluginMessage packet = new WrapperPlayClientPluginMessage(event);
-            String channelName = packet.getChannelName();
-            handle(channelName, packet.getData());
-            Base.INSTANCE.getPlatformServer().getPlayer(event.getUser().getUUID()).setClientBrand(brand);
-        }
+        if (event.getPacketType() != PacketType.Configuration.Client.PLUGIN_MESSAGE // 1.20.2+
+                && event.getPacketType() != PacketType.Play.Client.PLUGIN_MESSAGE) return;
+
+        User user = event.getUser();
+        // Only the first brand of a connection counts, so once it is known nothing is decoded anymore
+        if (ClientBrandManager.getBrand(user) != null) return;
+
+        byte[] data = readBrandData(event.getByteBuf());
+        if (data != null)
+            ClientBrandManager.setBrand(user, parseBrand(data));
+    }
+
+    @Override
+    public void onUserDisconnect(UserDisconnectEvent event) {
+        ClientBrandManager.removeBrand(event.getUser());
     }
 
-    public void handle(String channel, byte[] data) {
-        if (channel.equalsIgnoreCase("minecraft:brand") || // 1.13+
-                channel.equals("MC|Brand")) { // 1.12
-            if (data.length > 64 || data.length == 0) {
-                brand = "sent " + data.length + " bytes as brand";
-            } else if (!hasBrand) {
-                byte[] minusLength = new byte[data.length - 1];
-                System.arraycopy(data, 1, minusLength, 0, minusLength.length);
-                brand = new String(minusLength).replace(" (Velocity)", ""); //removes velocity's brand suffix
-            }
-            hasBrand = true;
+    /**
+     * Reads the data of a brand plugin message without moving the reader index. Messages on other channels are
+     * told apart by the length of their channel name and their data is never read.
+     *
+     * @return The data, or null if the message is not on a brand channel.
+     */
+    @Nullable
+    private static byte[] readBrandData(Object buffer) {
+        int readerIndex = ByteBufHelper.readerIndex(buffer);
+        try {
+            int length = ByteBufHelper.readVarInt(buffer);
+            if (length != BRAND_CHANNEL.length() && length != LEGACY_BRAND_CHANNEL.length()
+                    || length > ByteBufHelper.readableBytes(buffer))
+                return null;
+
+            byte[] channelBytes = new byte[length];
+            ByteBufHelper.readBytes(buffer, channelBytes);
+            String channel = new String(channelBytes, StandardCharsets.UTF_8);
+            if (!channel.equalsIgnoreCase(BRAND_CHANNEL) && !channel.equals(LEGACY_BRAND_CHANNEL))
+                return null;
+
+            byte[] data = new byte[ByteBufHelper.readableBytes(buffer)];
+            ByteBufHelper.readBytes(buffer, data);
+            return data;
+        } finally {
+            ByteBufHelper.readerIndex(buffer, readerIndex);
         }
     }
-}
 
+    public static String parseBrand(byte[] data) {
+        if (data.length > 64 || data.length == 0)
+            return "sent " + data.length + " bytes as brand";
+
+        // Skips the length prefix, a single byte this short
+        return new String(data, 1, data.length - 1, StandardCharsets.UTF_8).replace(" (Velocity)", ""); //removes velocity's brand suffix
+    }
+}
@@ -0,0 +1,56 @@
+package me.caseload.knockbacksync.listener.packetevents;
+
+import com.github.retrooper.packetevents.event.PacketListenerAbstract;
+import com.github.retrooper.packetevents.event.PacketListenerPriority;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.protocol.packettype.PacketTypeCommon;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the entity movement packets the server sends, to show what the tracker update intervals cost in bandwidth.
+ */
+public class EntityMovementPacketListener extends PacketListenerAbstract {
+
+    // Smoothing factor for the moving average, roughly the last 5 seconds at 20 TPS
+    private static final double AVERAGE_ALPHA = 0.01;
+
+    private final LongAdder sentThisTick = new LongAdder();
+    /**
+     * Movement packets sent during the last completed tick.
+     */
+    @Getter private volatile long lastTickCount;
+    /**
+     * Exponential moving average of movement packets sent per tick.
+     */
+    @Getter private volatile double averagePerTick;
+
+    public EntityMovementPacketListener() {
+        super(PacketListenerPriority.MONITOR);
+    }
+
+    @Override
+    public void onPacketSend(PacketSendEvent event) {
+        if (event.isCancelled()) return;
+
+        PacketTypeCommon packetType = event.getPacketType();
+        if (packetType == PacketType.Play.Server.ENTITY_RELATIVE_MOVE
+                || packetType == PacketType.Play.Server.ENTITY_RELATIVE_MOVE_AND_ROTATION
+                || packetType == PacketType.Play.Server.ENTITY_ROTATION
+                || packetType == PacketType.Play.Server.ENTITY_HEAD_LOOK
+                || packetType == PacketType.Play.Server.ENTITY_TELEPORT
+                || packetType == PacketType.Play.Server.ENTITY_VELOCITY)
+            sentThisTick.increment();
+    }
+
+    /**
+     * Closes the current tick, must be called once per server tick.
+     */
+    public void tick() {
+        long count = sentThisTick.sumThenReset();
+        lastTickCount = count;
+        averagePerTick += (count - averagePerTick) * AVERAGE_ALPHA;
+    }
+}
@@ -0,0 +1,39 @@
+package me.caseload.knockbacksync.listener.packetevents;
+
+import com.github.retrooper.packetevents.event.PacketListenerAbstract;
+import com.github.retrooper.packetevents.event.PacketListenerPriority;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.event.UserDisconnectEvent;
+import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.wrapper.login.server.WrapperLoginServerLoginSuccess;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+
+import java.util.UUID;
+
+/**
+ * Runs the Floodgate and UUID checks for exemption when the server accepts a login, on the player's Netty thread,
+ * so they are not done on the main thread when the player joins. The result is kept per connection, negative or not.
+ */
+public class ExemptionListener extends PacketListenerAbstract {
+
+    public ExemptionListener() {
+        // Only logins that go through
+        super(PacketListenerPriority.MONITOR);
+    }
+
+    @Override
+    public void onPacketSend(PacketSendEvent event) {
+        if (event.isCancelled() || event.getPacketType() != PacketType.Login.Server.LOGIN_SUCCESS) return;
+
+        UUID uuid = new WrapperLoginServerLoginSuccess(event).getUserProfile().getUUID();
+        if (uuid != null)
+            PlayerDataManager.cacheExemption(uuid, event.getUser());
+    }
+
+    @Override
+    public void onUserDisconnect(UserDisconnectEvent event) {
+        UUID uuid = event.getUser().getUUID();
+        if (uuid != null)
+            PlayerDataManager.forgetExemption(uuid, event.getUser());
+    }
+}
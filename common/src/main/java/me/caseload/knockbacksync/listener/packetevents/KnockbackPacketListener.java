@@ -0,0 +1,50 @@
+package me.caseload.knockbacksync.listener.packetevents;
+
+import com.github.retrooper.packetevents.event.PacketListenerAbstract;
+import com.github.retrooper.packetevents.event.PacketListenerPriority;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityVelocity;
+import me.caseload.knockbacksync.listener.KnockbackPipeline;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.PreparedKnockback;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.util.UUID;
+
+/**
+ * Adjusts the velocity packet a player receives for their own knockback, the {@link KnockbackPipeline#PACKET} pipeline.
+ * The knockback was prepared when they were hit, so only arithmetic is left for the Netty thread.
+ */
+public class KnockbackPacketListener extends PacketListenerAbstract {
+
+    private final PlayerKnockbackListener knockbackListener = new PlayerKnockbackListener() {};
+
+    public KnockbackPacketListener() {
+        // After other plugins changed the velocity, like the velocity event would be, but before the velocity ack
+        super(PacketListenerPriority.HIGHEST);
+    }
+
+    @Override
+    public void onPacketSend(PacketSendEvent event) {
+        if (event.isCancelled() || event.getPacketType() != PacketType.Play.Server.ENTITY_VELOCITY) return;
+
+        UUID playerUUID = event.getUser().getUUID();
+        if (playerUUID == null) return;
+        PlayerData playerData = PlayerDataManager.getPlayerData(playerUUID);
+        // Only prepared while the PACKET pipeline is selected
+        if (playerData == null || !playerData.hasPreparedKnockback()) return;
+
+        WrapperPlayServerEntityVelocity velocity = new WrapperPlayServerEntityVelocity(event);
+        if (velocity.getEntityId() != event.getUser().getEntityId()) return;
+
+        PreparedKnockback prepared = playerData.takePreparedKnockback(System.nanoTime());
+        if (prepared == null) return;
+
+        SkipReason skipReason = knockbackListener.onPreparedVelocity(prepared, velocity.getVelocity(), velocity::setVelocity);
+        if (skipReason == null)
+            event.markForReEncode(true);
+    }
+}
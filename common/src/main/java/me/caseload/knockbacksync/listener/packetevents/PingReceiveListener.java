@@ -8,8 +8,11 @@ import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientPo
 import com.github.retrooper.packetevents.wrapper.play.client.WrapperPlayClientWindowConfirmation;
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
 import me.caseload.knockbacksync.player.PingStrategy;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
 import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.player.VelocityAckTracker;
 import me.caseload.knockbacksync.util.data.Pair;
 
 import java.util.Queue;
@@ -23,6 +26,12 @@ public class PingReceiveListener extends PacketListenerAbstract {
 
     @Override
     public void onPacketReceive(PacketReceiveEvent event) {
+        long profilerStart = HotPathProfiler.start();
+        handlePacketReceive(event);
+        HotPathProfiler.stop(HotPathProfiler.Section.PING_RECEIVE, profilerStart);
+    }
+
+    private void handlePacketReceive(PacketReceiveEvent event) {
         // Do not immediately return if KB sync is disabled. This is because if we send a packet, disable the plugin
         // And then receive a response we have to ensure that if the packet was sent by us we cancel it
         // otherwise the server will likely kick the player
@@ -32,22 +41,34 @@ public class PingReceiveListener extends PacketListenerAbstract {
         PlayerData playerData = PlayerDataManager.getPlayerData(playerUUID);
         if (playerData == null) return;
 
-        if (playerData.pingStrategy == PingStrategy.KEEPALIVE && packetType == PacketType.Play.Client.KEEP_ALIVE) {
+        if (playerData.isTrackingKeepalives() && packetType == PacketType.Play.Client.KEEP_ALIVE) {
             WrapperPlayClientKeepAlive keepAlive = new WrapperPlayClientKeepAlive(event);
             long receivedId = keepAlive.getId();
 
             handlePingCalculationPackets(event, playerData, receivedId, playerData.keepaliveMap);
-        } else if (playerData.pingStrategy == PingStrategy.TRANSACTION && packetType == PacketType.Play.Client.PONG) {
+        } else if (packetType == PacketType.Play.Client.PONG) {
             WrapperPlayClientPong pong = new WrapperPlayClientPong(event);
             int id = pong.getId();
 
-            handlePingCalculationPackets(event, playerData, id, playerData.transactionsSent);
-        } else if (playerData.pingStrategy == PingStrategy.TRANSACTION && packetType == PacketType.Play.Client.WINDOW_CONFIRMATION) {
+            handleTransactionPackets(event, playerData, id);
+        } else if (packetType == PacketType.Play.Client.WINDOW_CONFIRMATION) {
             WrapperPlayClientWindowConfirmation windowConfirmation = new WrapperPlayClientWindowConfirmation(event);
             int id = windowConfirmation.getActionId();
 
-            handlePingCalculationPackets(event, playerData, id, playerData.transactionsSent);
+            handleTransactionPackets(event, playerData, id);
+        }
+    }
+
+    private void handleTransactionPackets(PacketReceiveEvent event, PlayerData playerData, int id) {
+        // Velocity acks are sent whatever the ping strategy, and are regular probes too under TRANSACTION
+        if (VelocityAckTracker.isAckId(id)) {
+            event.setCancelled(true);
+            if (playerData.getVelocityAckTracker().handleAck(id, System.nanoTime()))
+                PluginMetrics.VELOCITY_ACKS.increment();
         }
+
+        if (playerData.pingStrategy == PingStrategy.TRANSACTION)
+            handlePingCalculationPackets(event, playerData, id, playerData.transactionsSent);
     }
 
     private <T extends Number> void handlePingCalculationPackets(PacketReceiveEvent event, PlayerData playerData, long id, Queue<Pair<T, Long>> packetSentList) {
@@ -60,31 +81,17 @@ public class PingReceiveListener extends PacketListenerAbstract {
 
         if (!Base.INSTANCE.getConfigManager().isToggled()) return;
 
-        Pair<T, Long> data = null;
-        int cleared = 0;
-        // Keep polling until we find the matching ID
-        do {
-            data = packetSentList.poll();
-            cleared++;
-
-            if (data == null) {
-//                System.out.println("No data found in queue!");
-                break;
-            }
-
-//            System.out.println("Cleared entry " + cleared + ": ID=" + data.getFirst() + " Time=" + data.getSecond());
+        long start = System.nanoTime();
+        boolean matched = playerData.handleProbeResponse(id, packetSentList, start);
 
-            long pingNanos = (System.nanoTime() - data.getSecond());
-            double diffMillisDouble = pingNanos / 1_000_000.0;
-
-            playerData.setPreviousPing(playerData.getPing());
-            playerData.setPing(diffMillisDouble);
-
-            playerData.getJitterCalculator().addPing(pingNanos);
-            double jitter = playerData.getJitterCalculator().calculateJitter();
-            playerData.setJitter(jitter);
-
-        } while (data.getFirst().longValue() != id);
+        if (matched) {
+            PluginMetrics.PROBES_MATCHED.increment();
+            if (!playerData.didWeSendThatPacket(id) && playerData.isKeepaliveQueue(packetSentList))
+                PluginMetrics.PASSIVE_RTT_SAMPLES.increment();
+        }
+        else
+            PluginMetrics.ORPHANED_RESPONSES.increment();
+        PluginMetrics.PING_RECEIVE_NANOS.add(System.nanoTime() - start);
 
 //        System.out.println("Finished processing - Cleared " + cleared + " entries. Queue size after: " + packetSentList.size());
     }
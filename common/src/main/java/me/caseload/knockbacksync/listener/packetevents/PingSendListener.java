@@ -11,7 +11,9 @@ import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerPi
 import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWindowConfirmation;
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
 import me.caseload.knockbacksync.player.PingStrategy;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
 import me.caseload.knockbacksync.player.PlayerData;
 import me.caseload.knockbacksync.util.data.Pair;
 
@@ -27,6 +29,12 @@ public class PingSendListener extends PacketListenerAbstract {
 
     @Override
     public void onPacketSend(PacketSendEvent event) {
+        long profilerStart = HotPathProfiler.start();
+        handlePacketSend(event);
+        HotPathProfiler.stop(HotPathProfiler.Section.PING_SEND, profilerStart);
+    }
+
+    private void handlePacketSend(PacketSendEvent event) {
         if (!Base.INSTANCE.getConfigManager().isToggled()) return;
         if (event.isCancelled()) return;
 
@@ -36,22 +44,25 @@ public class PingSendListener extends PacketListenerAbstract {
         PlayerData playerData = PlayerDataManager.getPlayerData(playerUUID);
         if (playerData == null) return;
 
-        if (playerData.pingStrategy == PingStrategy.KEEPALIVE && packetType.equals(PacketType.Play.Server.KEEP_ALIVE)) {
+        if (playerData.isTrackingKeepalives() && packetType.equals(PacketType.Play.Server.KEEP_ALIVE)) {
             WrapperPlayServerKeepAlive keepAlive = new WrapperPlayServerKeepAlive(event);
             long id = keepAlive.getId();
 
 //            System.out.println("Adding ping to queue - ID: " + id + " Time: " + System.nanoTime() + " Queue size before: " + playerData.keepaliveMap.size());
             playerData.keepaliveMap.add(new Pair<>(id, System.nanoTime()));
+            PluginMetrics.PROBES_SENT.increment();
         } else if (playerData.pingStrategy == PingStrategy.TRANSACTION && packetType.equals(PacketType.Play.Server.PING)) {
             WrapperPlayServerPing ping = new WrapperPlayServerPing(event);
             int id = ping.getId();
 
             playerData.transactionsSent.add(new Pair<>(id, System.nanoTime()));
+            PluginMetrics.PROBES_SENT.increment();
         } else if (playerData.pingStrategy == PingStrategy.TRANSACTION && packetType.equals(PacketType.Play.Server.WINDOW_CONFIRMATION)) {
             WrapperPlayServerWindowConfirmation confirmation = new WrapperPlayServerWindowConfirmation(event);
             int id = confirmation.getActionId();
 
             playerData.transactionsSent.add(new Pair<>(id, System.nanoTime()));
+            PluginMetrics.PROBES_SENT.increment();
         }
     }
 }
\ No newline at end of file
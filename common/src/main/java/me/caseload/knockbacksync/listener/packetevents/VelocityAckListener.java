@@ -0,0 +1,42 @@
+package me.caseload.knockbacksync.listener.packetevents;
+
+import com.github.retrooper.packetevents.event.PacketListenerAbstract;
+import com.github.retrooper.packetevents.event.PacketListenerPriority;
+import com.github.retrooper.packetevents.event.PacketSendEvent;
+import com.github.retrooper.packetevents.protocol.packettype.PacketType;
+import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerEntityVelocity;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.util.UUID;
+
+/**
+ * Sends a velocity ack right behind every knockback a player receives, see {@link me.caseload.knockbacksync.player.VelocityAckTracker}.
+ */
+public class VelocityAckListener extends PacketListenerAbstract {
+
+    public VelocityAckListener() {
+        // Only knockback that is actually sent
+        super(PacketListenerPriority.MONITOR);
+    }
+
+    @Override
+    public void onPacketSend(PacketSendEvent event) {
+        if (event.isCancelled() || event.getPacketType() != PacketType.Play.Server.ENTITY_VELOCITY) return;
+
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (!settings.isToggled() || !settings.isVelocityAckEnabled()) return;
+
+        UUID playerUUID = event.getUser().getUUID();
+        if (playerUUID == null) return;
+        PlayerData playerData = PlayerDataManager.getPlayerData(playerUUID);
+        if (playerData == null) return;
+
+        // Other entities' velocity is sent to the player too, only their own is knockback
+        if (new WrapperPlayServerEntityVelocity(event).getEntityId() != event.getUser().getEntityId()) return;
+
+        event.getTasksAfterSend().add(playerData::sendVelocityAck);
+    }
+}
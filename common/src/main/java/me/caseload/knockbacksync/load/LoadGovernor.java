@@ -0,0 +1,112 @@
+package me.caseload.knockbacksync.load;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
+
+/**
+ * Sheds knockback work while the server is over its tick budget, so the plugin does not add to the lag.
+ * <p>
+ * The platform reports how long every tick took through {@link #recordTick(double)}. The governor keeps a rolling
+ * MSPT over the last {@value #WINDOW_TICKS} ticks and the time the plugin itself spent per tick, and steps through the
+ * {@link LoadLevel}s. It escalates as soon as the rolling MSPT reaches a level's threshold, but only steps back down
+ * one level at a time, once the MSPT stayed below the current level's threshold minus a margin for a while.
+ * <p>
+ * Only the main thread records ticks, the level is read from any thread.
+ */
+public class LoadGovernor {
+
+    private static final int WINDOW_TICKS = 20;
+
+    private final double[] tickMillis = new double[WINDOW_TICKS];
+    private int windowIndex;
+    private int windowSize;
+    private double windowSum;
+    private long lastPluginNanos;
+    private double pluginMillisPerTick;
+    private int ticksBelowThreshold;
+
+    @Getter private volatile LoadLevel level = LoadLevel.NORMAL;
+    @Getter private volatile double rollingMspt;
+    /**
+     * Ticks recorded so far, used to tell whether cached per-tick values are still current.
+     */
+    @Getter private volatile long tickCount;
+
+    public void recordTick(double millis) {
+        windowSum += millis - tickMillis[windowIndex];
+        tickMillis[windowIndex] = millis;
+        windowIndex = (windowIndex + 1) % WINDOW_TICKS;
+        windowSize = Math.min(windowSize + 1, WINDOW_TICKS);
+        double mspt = windowSum / windowSize;
+        rollingMspt = mspt;
+
+        long pluginNanos = PluginMetrics.KNOCKBACK_NANOS.get() + PluginMetrics.PING_RECEIVE_NANOS.get();
+        if (tickCount > 0)
+            pluginMillisPerTick += ((pluginNanos - lastPluginNanos) / 1_000_000.0 - pluginMillisPerTick) / WINDOW_TICKS;
+        lastPluginNanos = pluginNanos;
+        tickCount++;
+
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (!settings.isLoadGovernorEnabled()) {
+            if (level != LoadLevel.NORMAL)
+                transition(LoadLevel.NORMAL, mspt, "the load governor was disabled");
+            return;
+        }
+
+        LoadLevel target = levelFor(settings, mspt);
+        if (target.ordinal() > level.ordinal()) {
+            ticksBelowThreshold = 0;
+            transition(target, mspt, "MSPT reached " + threshold(settings, target));
+            return;
+        }
+
+        if (level == LoadLevel.NORMAL)
+            return;
+
+        if (mspt < threshold(settings, level) - settings.getLoadRecoveryMarginMspt()) {
+            if (++ticksBelowThreshold >= settings.getLoadRecoveryTicks()) {
+                ticksBelowThreshold = 0;
+                transition(LoadLevel.values()[level.ordinal() - 1], mspt, "recovered");
+            }
+        } else {
+            ticksBelowThreshold = 0;
+        }
+    }
+
+    private void transition(LoadLevel newLevel, double mspt, String reason) {
+        LoadLevel oldLevel = level;
+        level = newLevel;
+        String message = String.format("Load level %s -> %s, %s (rolling MSPT %.1f, KnockbackSync %.2f ms/tick)",
+                oldLevel, newLevel, reason, mspt, pluginMillisPerTick);
+        if (newLevel.ordinal() > oldLevel.ordinal())
+            Base.LOGGER.warning(message);
+        else
+            Base.LOGGER.info(message);
+    }
+
+    private static LoadLevel levelFor(KbSyncSettings settings, double mspt) {
+        LoadLevel[] levels = LoadLevel.values();
+        for (int i = levels.length - 1; i > 0; i--) {
+            if (mspt >= threshold(settings, levels[i]))
+                return levels[i];
+        }
+        return LoadLevel.NORMAL;
+    }
+
+    private static double threshold(KbSyncSettings settings, LoadLevel level) {
+        switch (level) {
+            case SKIP_OFF_GROUND:
+                return settings.getLoadSkipOffGroundMspt();
+            case CACHED_GROUND:
+                return settings.getLoadCachedGroundMspt();
+            case REDUCED_PROBES:
+                return settings.getLoadReducedProbesMspt();
+            case BYPASS:
+                return settings.getLoadBypassMspt();
+            default:
+                return 0;
+        }
+    }
+}
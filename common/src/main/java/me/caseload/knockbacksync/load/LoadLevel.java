@@ -0,0 +1,29 @@
+package me.caseload.knockbacksync.load;
+
+/**
+ * How much work the plugin sheds while the server is over its tick budget. Each level also sheds everything
+ * the levels before it do.
+ */
+public enum LoadLevel {
+    NORMAL,
+    /**
+     * Knockback of players in the air is left alone.
+     */
+    SKIP_OFF_GROUND,
+    /**
+     * A player's distance to the ground is reused from the previous tick instead of ray traced again.
+     */
+    CACHED_GROUND,
+    /**
+     * The ping runnable only probes every few runs.
+     */
+    REDUCED_PROBES,
+    /**
+     * Knockback is not processed at all.
+     */
+    BYPASS;
+
+    public boolean isAtLeast(LoadLevel level) {
+        return ordinal() >= level.ordinal();
+    }
+}
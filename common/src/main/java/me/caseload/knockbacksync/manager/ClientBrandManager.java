@@ -0,0 +1,82 @@
+package me.caseload.knockbacksync.manager;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The client brand of every connection, and a dictionary of the brands in use with how many connections use each.
+ * <p>
+ * Kept per connection rather than on {@link me.caseload.knockbacksync.player.PlayerData}, since clients send their
+ * brand before they join (in the configuration phase on 1.20.2+) and players without PlayerData still have one.
+ * Connections with the same brand share one string, and a brand leaves the dictionary with its last connection.
+ * <p>
+ * Brands are keyed by the connection (the packetevents {@code User}) rather than the player's UUID, so a player
+ * reconnecting before their old connection is closed keeps the brand of the new one.
+ */
+public class ClientBrandManager {
+
+    public static final String OTHER = "other";
+    // Clients choose their brand, past this many distinct ones in use the rest are counted as other
+    private static final int MAX_BRANDS = 64;
+
+    private static final Map<Object, String> brands = new ConcurrentHashMap<>();
+    // Guarded by the class, only touched once per connection
+    private static final Map<String, Entry> dictionary = new HashMap<>();
+
+    @Nullable
+    public static String getBrand(@NotNull Object connection) {
+        return brands.get(connection);
+    }
+
+    /**
+     * Sets the brand of the connection, only the first one of a connection is kept and counted.
+     */
+    public static synchronized void setBrand(@NotNull Object connection, @NotNull String brand) {
+        if (brands.containsKey(connection))
+            return;
+
+        Entry entry = dictionary.get(brand);
+        if (entry == null) {
+            if (dictionary.size() >= MAX_BRANDS && !brand.equals(OTHER))
+                brand = OTHER;
+            entry = dictionary.computeIfAbsent(brand, Entry::new);
+        }
+        entry.connections++;
+        brands.put(connection, entry.brand);
+    }
+
+    /**
+     * Forgets the brand of the connection, when it closes.
+     */
+    public static synchronized void removeBrand(@NotNull Object connection) {
+        String brand = brands.remove(connection);
+        if (brand == null)
+            return;
+
+        Entry entry = dictionary.get(brand);
+        if (entry != null && --entry.connections <= 0)
+            dictionary.remove(brand);
+    }
+
+    /**
+     * @return How many connections use each brand, leaving out connections whose brand is not known.
+     */
+    public static synchronized Map<String, Integer> getPlayerCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        dictionary.forEach((brand, entry) -> counts.put(brand, entry.connections));
+        return counts;
+    }
+
+    private static final class Entry {
+        final String brand;
+        int connections;
+
+        Entry(String brand) {
+            this.brand = brand;
+        }
+    }
+}
@@ -5,39 +5,48 @@ import lombok.Setter;
 import me.caseload.knockbacksync.ConfigWrapper;
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.Platform;
+import me.caseload.knockbacksync.config.ConfigDiff;
+import me.caseload.knockbacksync.config.ConfigSection;
+import me.caseload.knockbacksync.config.ConfigWatcher;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.config.YamlConfiguration;
+import me.caseload.knockbacksync.event.events.ConfigChangeEvent;
 import me.caseload.knockbacksync.runnable.PingRunnable;
 import me.caseload.knockbacksync.scheduler.AbstractTaskHandle;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Getter
 @Setter
 public class ConfigManager {
 
-    public static final long CONFIG_VERSION = 7;
+    public static final long CONFIG_VERSION = 8;
 
-    private boolean toggled;
-    private boolean runnableEnabled;
     private boolean updateAvailable;
-    private boolean notifyUpdate;
-    private boolean autoUpdate;
 
-    private long runnableInterval;
-    private long combatTimer;
-    private long spikeThreshold;
-
-    private String enableMessage;
-    private String disableMessage;
-    private String playerEnableMessage;
-    private String playerDisableMessage;
-    private String playerIneligibleMessage;
+    /**
+     * The settings from the last (re)load. Replaced as a whole, never mutated,
+     * so hot paths should grab this once and read everything from the same snapshot.
+     */
+    private volatile KbSyncSettings settings;
 
     private AbstractTaskHandle pingTask;
+    private ConfigWatcher configWatcher;
+
+    // Deep copy of the config as of the last load or save, what reloadChanges() diffs against
+    private Map<String, Object> lastLoadedConfig;
+
+    // Latest config snapshot waiting to be written, saves queued before the write runs collapse into one
+    private final AtomicReference<Map<String, Object>> pendingSave = new AtomicReference<>();
 
     private Map<String, Object> config;
     private File configFile;
@@ -58,6 +67,7 @@ public class ConfigManager {
     }
 
     public void reloadConfig() {
+        flushConfig(); // Don't read back a file that is about to be overwritten
         try {
             if (!configFile.exists()) {
                 Base.INSTANCE.saveDefaultConfig();
@@ -72,39 +82,99 @@ public class ConfigManager {
         }
     }
 
+    /**
+     * Saves the current config asynchronously. The config is snapshotted immediately,
+     * so later changes are not written until the next save.
+     */
     public void saveConfig() {
-        try {
-            yamlConfig.setData(config);
-            yamlConfig.save();
-        } catch (IOException e) {
-            e.printStackTrace();
+        Map<String, Object> snapshot = ConfigDiff.deepCopy(config);
+        // Our own write should not look like an edit to the config watcher
+        lastLoadedConfig = snapshot;
+        if (pendingSave.getAndSet(snapshot) == null)
+            Base.INSTANCE.getScheduler().runTaskAsynchronously(this::flushConfig);
+    }
+
+    /**
+     * Writes the pending save, if any, on the calling thread.
+     */
+    public void flushConfig() {
+        // Held while writing so a flush that finds nothing pending still waits for one in progress
+        synchronized (pendingSave) {
+            Map<String, Object> snapshot = pendingSave.getAndSet(null);
+            if (snapshot == null)
+                return;
+
+            try {
+                yamlConfig.save(snapshot);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
-    public void loadConfig(boolean reloadConfig) {
+    public synchronized void loadConfig(boolean reloadConfig) {
         if (reloadConfig || config == null) {
             reloadConfig();
         }
 
-        ConfigWrapper configWrapper = getConfigWrapper(); // Use cached ConfigWrapper
+        updateConfig();
+
+        KbSyncSettings settings = KbSyncSettings.load(getConfigWrapper());
+        this.settings = settings;
+        lastLoadedConfig = ConfigDiff.deepCopy(config);
 
+        restartPingTask(settings);
+        updateConfigWatcher(settings);
+    }
+
+    /**
+     * Re-reads config.yml and applies only what changed since the last load.
+     * The ping task is only restarted when ping settings changed, and a {@link ConfigSection} specific
+     * event is posted on the main thread for every section that has changes.
+     *
+     * @return The dotted paths of every changed value, empty if nothing changed.
+     */
+    public synchronized Set<String> reloadChanges() {
+        Map<String, Object> previous = lastLoadedConfig;
+        reloadConfig();
         updateConfig();
 
-        toggled = configWrapper.getBoolean("enabled", true);
+        Set<String> changed = previous == null ? Collections.emptySet() : ConfigDiff.diff(previous, config);
+        lastLoadedConfig = ConfigDiff.deepCopy(config);
+        if (previous != null && changed.isEmpty())
+            return changed;
+
+        KbSyncSettings settings = KbSyncSettings.load(getConfigWrapper());
+        this.settings = settings;
+
+        Map<ConfigSection, Set<String>> changedSections = ConfigSection.group(changed);
+        if (previous == null || changedSections.containsKey(ConfigSection.PING))
+            restartPingTask(settings);
+        if (changedSections.containsKey(ConfigSection.GENERAL))
+            updateConfigWatcher(settings);
 
-        // Checks to see if the runnable was enabled...
-        // and if we now want to disable it
-        boolean newRunnableEnabled = configWrapper.getBoolean("runnable.enabled", true);
-        if (runnableEnabled && newRunnableEnabled && pingTask != null) { // null check for first startup
+        // Reloads also run on the config watcher thread, listeners should only ever see events on the main thread
+        List<ConfigChangeEvent> events = new ArrayList<>(changedSections.size());
+        for (Map.Entry<ConfigSection, Set<String>> entry : changedSections.entrySet())
+            events.add(entry.getKey().createEvent(this, Collections.unmodifiableSet(entry.getValue())));
+        Base.INSTANCE.getScheduler().runTask(() -> events.forEach(ConfigChangeEvent::post));
+        return changed;
+    }
+
+    private void restartPingTask(KbSyncSettings settings) {
+        // Stop the old ping task, it is recreated below if the runnable is still enabled
+        if (pingTask != null) { // null check for first startup
             pingTask.cancel();
+            pingTask = null;
         }
 
-        runnableEnabled = newRunnableEnabled;
-        runnableInterval = configWrapper.getLong("runnable.interval", 5L);
-
-        if (runnableEnabled) {
+        if (settings.isRunnableEnabled() && settings.getRunnableIntervalMillis() > 0) {
+            // Tick independent, probe spacing is unaffected by TPS drops
+            pingTask = Base.INSTANCE.getScheduler().runTaskTimerMillis(new PingRunnable(), 0L,
+                    settings.getRunnableIntervalMillis(), settings.getRunnableJitterMillis());
+        } else if (settings.isRunnableEnabled()) {
             long initialDelay = 0L;
-            long pingTaskRunnableInterval = runnableInterval;
+            long pingTaskRunnableInterval = settings.getRunnableInterval();
             // Folia does not allow 0 ticks of wait time
             if (Base.INSTANCE.getPlatform() == Platform.FOLIA) {
                 initialDelay = 1L;
@@ -112,16 +182,40 @@ public class ConfigManager {
             }
             pingTask = Base.INSTANCE.getScheduler().runTaskTimerAsynchronously(new PingRunnable(), initialDelay, pingTaskRunnableInterval);
         }
+    }
+
+    private void updateConfigWatcher(KbSyncSettings settings) {
+        // Recreated on every change so a new debounce period takes effect
+        stopConfigWatcher();
+        if (!settings.isConfigWatcherEnabled())
+            return;
+
+        configWatcher = new ConfigWatcher(this, settings.getConfigWatcherDebounceMillis());
+        try {
+            configWatcher.start();
+        } catch (IOException e) {
+            Base.INSTANCE.getLogger().warning("Failed to start the config watcher: " + e.getMessage());
+            configWatcher = null;
+        }
+    }
+
+    public synchronized void stopConfigWatcher() {
+        if (configWatcher != null) {
+            configWatcher.stop();
+            configWatcher = null;
+        }
+    }
+
+    public boolean isToggled() {
+        return settings.isToggled();
+    }
+
+    public void setToggled(boolean toggled) {
+        settings = settings.withToggled(toggled);
+    }
 
-        notifyUpdate = configWrapper.getBoolean("notify_updates", true);
-        autoUpdate = configWrapper.getBoolean("auto_update", true);
-        combatTimer = configWrapper.getLong("runnable.timer", 30L);
-        spikeThreshold = configWrapper.getLong("spike_threshold", 20L);
-        enableMessage = configWrapper.getString("messages.toggle.global.enable", "&aSuccessfully enabled KnockbackSync.");
-        disableMessage = configWrapper.getString("messages.toggle.global.disable", "&cSuccessfully disabled KnockbackSync.");
-        playerEnableMessage = configWrapper.getString("messages.toggle.player.enable", "&aSuccessfully enabled KnockbackSync for %player%.");
-        playerDisableMessage = configWrapper.getString("messages.toggle.player.disable", "&aSuccessfully &cdisabled &aKnockbackSync for %player%.");
-        playerIneligibleMessage = configWrapper.getString("messages.toggle.player.ineligible", "&c%player% is ineligible for KnockbackSync. If you believe this is in error, please contact your server administrators.");
+    public void setOffGroundSyncEnabled(boolean offGroundSyncEnabled) {
+        settings = settings.withOffGroundSyncEnabled(offGroundSyncEnabled);
     }
 
     public void updateConfig() {
@@ -152,8 +246,9 @@ public class ConfigManager {
             // Set new config version
             newConfig.set("config_version", CONFIG_VERSION);
 
-            // Save updated config
+            // Save updated config, written right away since it is read back during startup
             saveConfig();
+            flushConfig();
 
             Base.INSTANCE.getLogger().info("Config updated to version " + CONFIG_VERSION);
         }
@@ -1,11 +1,13 @@
 package me.caseload.knockbacksync.manager;
 
+import com.github.retrooper.packetevents.protocol.player.User;
 import me.caseload.knockbacksync.Base;
 import me.caseload.knockbacksync.player.PlayerData;
 import me.caseload.knockbacksync.util.FloodgateUtil;
 import me.caseload.knockbacksync.util.GeyserUtil;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
@@ -13,6 +15,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PlayerDataManager {
 
     private static final Map<UUID, PlayerData> playerDataMap = new ConcurrentHashMap<>();
+    // Decided while each connection logs in, until it closes. Negative answers are kept too, they only still
+    // need Geyser's answer, as a Geyser session may only become known after the player logged in
+    private static final Map<UUID, Exemption> exemptions = new ConcurrentHashMap<>();
 
     public static PlayerData getPlayerData(@NotNull UUID uuid) {
         return playerDataMap.get(uuid);
@@ -31,17 +36,65 @@ public class PlayerDataManager {
             Base.INSTANCE.getEventBus().unregisterListeners(playerData);
     }
 
+    public static Collection<PlayerData> getAllPlayerData() {
+        return playerDataMap.values();
+    }
+
+    public static int getPlayerCount() {
+        return playerDataMap.size();
+    }
+
     public static boolean containsPlayerData(@NotNull UUID uuid) {
         return playerDataMap.containsKey(uuid);
     }
 
     public static boolean shouldExempt(@NotNull UUID uuid) {
-        // Geyser players don't have Java movement
-        return GeyserUtil.isGeyserPlayer(uuid)
+        Exemption exemption = exemptions.get(uuid);
+        // Online before the plugin was enabled, there was no login to decide it at
+        if (exemption == null)
+            return isBedrockLogin(uuid) || GeyserUtil.isGeyserPlayer(uuid);
+
+        if (!exemption.exempt && !exemption.geyserChecked) {
+            exemption.exempt = GeyserUtil.isGeyserPlayer(uuid);
+            exemption.geyserChecked = true;
+        }
+        return exemption.exempt;
+    }
+
+    /**
+     * Runs the checks that are already reliable while the player logs in, so joining only has to look the answer
+     * up. Geyser is asked at join instead, by {@link #shouldExempt(UUID)}, and only if these found nothing.
+     */
+    public static void cacheExemption(@NotNull UUID uuid, @NotNull User connection) {
+        exemptions.put(uuid, new Exemption(connection, isBedrockLogin(uuid)));
+    }
+
+    /**
+     * Forgets the exemption of a closed connection, unless a new connection of the same player replaced it already.
+     */
+    public static void forgetExemption(@NotNull UUID uuid, @NotNull User connection) {
+        exemptions.computeIfPresent(uuid, (key, exemption) -> exemption.connection == connection ? null : exemption);
+    }
+
+    // Geyser players don't have Java movement
+    private static boolean isBedrockLogin(@NotNull UUID uuid) {
+        // Geyser formatted player string, 00000000-0000-0000-0009-xxxxxxxxxxxx
+        // This will never happen for Java players, as the first character in the 3rd group is always 4 (xxxxxxxx-xxxx-4xxx-xxxx-xxxxxxxxxxxx)
+        return (uuid.getMostSignificantBits() == 0 && uuid.getLeastSignificantBits() >>> 48 == 0x0009)
                 // Floodgate is the authentication system for Geyser on servers that use Geyser as a proxy instead of installing it as a plugin directly on the server
-                || FloodgateUtil.isFloodgatePlayer(uuid)
-                // Geyser formatted player string
-                // This will never happen for Java players, as the first character in the 3rd group is always 4 (xxxxxxxx-xxxx-4xxx-xxxx-xxxxxxxxxxxx)
-                || uuid.toString().startsWith("00000000-0000-0000-0009");
+                || FloodgateUtil.isFloodgatePlayer(uuid);
+    }
+
+    private static final class Exemption {
+        final User connection;
+        volatile boolean exempt;
+        volatile boolean geyserChecked;
+
+        Exemption(User connection, boolean exempt) {
+            this.connection = connection;
+            this.exempt = exempt;
+            // Nothing left to ask once the login already decided it
+            this.geyserChecked = exempt;
+        }
     }
 }
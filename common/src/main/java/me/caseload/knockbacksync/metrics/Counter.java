@@ -0,0 +1,27 @@
+package me.caseload.knockbacksync.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing counter. Updates are lock-free and striped across cells,
+ * so concurrent increments from many netty threads don't contend on a single value.
+ */
+public final class Counter {
+
+    private final LongAdder adder = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        adder.increment();
+    }
+
+    public void add(long amount) {
+        adder.add(amount);
+    }
+
+    public long get() {
+        return adder.sum();
+    }
+}
@@ -0,0 +1,119 @@
+package me.caseload.knockbacksync.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.GeneralSettingsChangedEvent;
+import me.caseload.knockbacksync.scheduler.AbstractTaskHandle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Exposes {@link PluginMetrics#REGISTRY} through an HTTP endpoint bound to localhost
+ * and/or a file rewritten periodically, depending on the {@code metrics} config section.
+ */
+public class MetricsExporter {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private HttpServer httpServer;
+    private ExecutorService httpExecutor;
+    private AbstractTaskHandle fileTask;
+
+    public synchronized void start() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+
+        if (settings.isMetricsHttpEnabled())
+            startHttpServer(settings.getMetricsHttpPort());
+
+        if (settings.isMetricsFileEnabled()) {
+            long intervalTicks = Math.max(settings.getMetricsFileIntervalSeconds(), 1L) * 20L;
+            fileTask = Base.INSTANCE.getScheduler().runTaskTimerAsynchronously(this::writeFile, intervalTicks, intervalTicks);
+        }
+    }
+
+    public synchronized void stop() {
+        if (httpServer != null) {
+            httpServer.stop(0);
+            httpServer = null;
+        }
+        if (httpExecutor != null) {
+            httpExecutor.shutdownNow();
+            httpExecutor = null;
+        }
+        if (fileTask != null) {
+            fileTask.cancel();
+            fileTask = null;
+        }
+    }
+
+    @KBSyncEventHandler
+    public void onGeneralSettingsChanged(GeneralSettingsChangedEvent event) {
+        if (event.getChangedPaths().stream().anyMatch(path -> path.equals("metrics") || path.startsWith("metrics."))) {
+            stop();
+            start();
+        }
+    }
+
+    private void startHttpServer(int port) {
+        try {
+            // Never reachable from outside the machine, scrape it through a local agent or a tunnel
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            Base.LOGGER.warning("Failed to start the metrics endpoint on port " + port + ": " + e.getMessage());
+            return;
+        }
+
+        httpServer.createContext("/metrics", exchange -> {
+            try {
+                byte[] body = PluginMetrics.REGISTRY.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        httpExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnockbackSync-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        httpServer.setExecutor(httpExecutor);
+        httpServer.start();
+        Base.LOGGER.info("Serving metrics on http://127.0.0.1:" + port + "/metrics");
+    }
+
+    private void writeFile() {
+        Path target = new File(Base.INSTANCE.getDataFolder(), "metrics.prom").toPath();
+        try {
+            Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), "metrics", ".tmp");
+            try {
+                Files.write(temp, PluginMetrics.REGISTRY.scrape().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            Base.LOGGER.warning("Failed to write metrics.prom: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package me.caseload.knockbacksync.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Holds counters and gauges and renders them in the Prometheus text exposition format.
+ * <p>
+ * Registration is synchronized and meant to happen once, callers keep the returned {@link Counter}
+ * and update it directly. Gauges are computed when scraped.
+ */
+public class MetricsRegistry {
+
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * Registers a counter with a single label. Counters sharing a name are exported as one metric family.
+     */
+    public synchronized Counter counter(String name, String help, String labelName, String labelValue) {
+        Counter counter = new Counter();
+        family(name, help, "counter").samples.add(new Sample(labels(labelName, labelValue), counter, null));
+        return counter;
+    }
+
+    public synchronized void gauge(String name, String help, DoubleSupplier value) {
+        family(name, help, "gauge").samples.add(new Sample("", null, value));
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (!family.type.equals(type))
+            throw new IllegalStateException(name + " is already registered as a " + family.type);
+        return family;
+    }
+
+    /**
+     * @return Every metric in the Prometheus text exposition format.
+     */
+    public String scrape() {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+        }
+
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : snapshot) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            List<Sample> samples;
+            synchronized (this) {
+                samples = new ArrayList<>(family.samples);
+            }
+            for (Sample sample : samples) {
+                out.append(family.name).append(sample.labels).append(' ');
+                if (sample.counter != null) {
+                    out.append(sample.counter.get());
+                } else {
+                    out.append(formatDouble(sample.gauge.getAsDouble()));
+                }
+                out.append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private static String labels(String labelName, String labelValue) {
+        if (labelName == null)
+            return "";
+        String escaped = labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{" + labelName + "=\"" + escaped + "\"}";
+    }
+
+    private static String formatDouble(double value) {
+        if (Double.isNaN(value)) return "NaN";
+        if (Double.isInfinite(value)) return value > 0 ? "+Inf" : "-Inf";
+        return Double.toString(value);
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final List<Sample> samples = new ArrayList<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final class Sample {
+        final String labels;
+        final Counter counter;
+        final DoubleSupplier gauge;
+
+        Sample(String labels, Counter counter, DoubleSupplier gauge) {
+            this.labels = labels;
+            this.counter = counter;
+            this.gauge = gauge;
+        }
+    }
+}
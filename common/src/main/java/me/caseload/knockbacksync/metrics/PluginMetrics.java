@@ -0,0 +1,82 @@
+package me.caseload.knockbacksync.metrics;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.latency.LatencyStats;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+import me.caseload.knockbacksync.manager.CombatManager;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+
+import java.util.Locale;
+
+/**
+ * The plugin's own metrics. Unlike the bStats charts in {@code stats.custom} these stay local,
+ * they are only exported through {@link MetricsExporter}.
+ */
+public final class PluginMetrics {
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Counter PROBES_SENT = REGISTRY.counter("knockbacksync_probes_sent_total",
+            "Ping probes (keepalives or transactions) sent to players");
+    public static final Counter PROBES_MATCHED = REGISTRY.counter("knockbacksync_probes_matched_total",
+            "Probe responses matched to a sent probe");
+    public static final Counter PROBES_LOST = REGISTRY.counter("knockbacksync_probes_lost_total",
+            "Probes that were never answered");
+    public static final Counter PROBES_TIMED_OUT = REGISTRY.counter("knockbacksync_probes_timed_out_total",
+            "Probes that were never answered and expired after the probe timeout, also counted as lost");
+    public static final Counter PROBES_SKIPPED = REGISTRY.counter("knockbacksync_probes_skipped_total",
+            "Probes not sent because the player already had the maximum number unanswered");
+    public static final Counter PASSIVE_RTT_SAMPLES = REGISTRY.counter("knockbacksync_passive_rtt_samples_total",
+            "Round trip times measured from the server's own keepalives");
+    public static final Counter VELOCITY_ACKS = REGISTRY.counter("knockbacksync_velocity_acks_total",
+            "Knockbacks the client confirmed applying");
+    public static final Counter ORPHANED_RESPONSES = REGISTRY.counter("knockbacksync_orphaned_responses_total",
+            "Probe responses that did not match any probe sent");
+
+    public static final Counter KNOCKBACK_ADJUSTED = REGISTRY.counter("knockbacksync_knockback_adjusted_total",
+            "Knockback velocities adjusted");
+    private static final Counter[] KNOCKBACK_SKIPPED = new Counter[SkipReason.values().length];
+
+    public static final Counter PING_RECEIVE_NANOS = listenerNanos("ping_receive");
+    public static final Counter KNOCKBACK_NANOS = listenerNanos("knockback");
+
+    static {
+        for (SkipReason reason : SkipReason.values()) {
+            KNOCKBACK_SKIPPED[reason.ordinal()] = REGISTRY.counter("knockbacksync_knockback_skipped_total",
+                    "Knockback velocities left unchanged, by reason", "reason", reason.name().toLowerCase(Locale.ROOT));
+        }
+
+        REGISTRY.gauge("knockbacksync_mspt", "Milliseconds per tick averaged over the last second, as seen by the load governor",
+                () -> Base.INSTANCE.getLoadGovernor().getRollingMspt());
+        REGISTRY.gauge("knockbacksync_load_level", "Load governor level, 0 is normal and 4 bypasses knockback",
+                () -> Base.INSTANCE.getLoadGovernor().getLevel().ordinal());
+        REGISTRY.gauge("knockbacksync_tick_rate", "Ticks per second the server is set to run at",
+                () -> Base.INSTANCE.getTickRate());
+        REGISTRY.gauge("knockbacksync_players", "Players with KnockbackSync active",
+                PlayerDataManager::getPlayerCount);
+        REGISTRY.gauge("knockbacksync_players_in_combat", "Players currently in combat",
+                () -> CombatManager.getPlayers().size());
+        REGISTRY.gauge("knockbacksync_entity_movement_packets_per_tick", "Moving average of entity movement packets sent per tick",
+                () -> Base.INSTANCE.getEntityMovementPacketListener().getAveragePerTick());
+        REGISTRY.gauge("knockbacksync_probe_loss_ratio", "Fraction of the probes sent that were lost",
+                () -> PROBES_SENT.get() == 0 ? 0 : (double) PROBES_LOST.get() / PROBES_SENT.get());
+        REGISTRY.gauge("knockbacksync_velocity_ack_p50_milliseconds", "Server wide median time for knockback to be applied by the client",
+                () -> LatencyStats.VELOCITY_ACKS.getPercentileMillis(50));
+        REGISTRY.gauge("knockbacksync_rtt_p50_milliseconds", "Server wide median round trip time",
+                () -> LatencyStats.SERVER.getPercentileMillis(50));
+        REGISTRY.gauge("knockbacksync_rtt_p99_milliseconds", "Server wide 99th percentile round trip time",
+                () -> LatencyStats.SERVER.getPercentileMillis(99));
+    }
+
+    private PluginMetrics() {
+    }
+
+    public static Counter knockbackSkipped(SkipReason reason) {
+        return KNOCKBACK_SKIPPED[reason.ordinal()];
+    }
+
+    private static Counter listenerNanos(String listener) {
+        return REGISTRY.counter("knockbacksync_listener_nanoseconds_total",
+                "Wall time spent in KnockbackSync's listeners", "listener", listener);
+    }
+}
@@ -3,21 +3,34 @@ package me.caseload.knockbacksync.player;
 import java.util.*;
 import java.util.stream.Collectors;
 
+/**
+ * Thread safe, samples come in on the player's netty thread while saved profiles seed it from other threads
+ * and the samples are read back on the main thread.
+ */
 public class JitterCalculator {
     private final int SAMPLE_SIZE = 15;
     private final Queue<Long> pings = new LinkedList<>();
 
-    public void addPing(long pingTime) {
+    public synchronized void addPing(long pingTime) {
         pings.offer(pingTime);
         if (pings.size() > SAMPLE_SIZE) {
             pings.poll();
         }
     }
 
-    public double calculateJitter() {
-        if (pings.size() < 2) return 0;
+    /**
+     * @return The samples currently used for the jitter, oldest first.
+     */
+    public synchronized long[] getSamples() {
+        return pings.stream().mapToLong(Long::longValue).toArray();
+    }
 
-        List<Long> sortedPings = new ArrayList<>(pings);
+    public double calculateJitter() {
+        List<Long> sortedPings;
+        synchronized (this) {
+            if (pings.size() < 2) return 0;
+            sortedPings = new ArrayList<>(pings);
+        }
         Collections.sort(sortedPings);
 
         // Calculate IQR
@@ -0,0 +1,57 @@
+package me.caseload.knockbacksync.player;
+
+import lombok.Getter;
+
+/**
+ * A player's measured latency at one point in time. Immutable, every sample publishes a new one through a single
+ * volatile reference, so a reader on any thread always gets a ping, previous ping and jitter that belong together.
+ */
+@Getter
+public final class LatencyState {
+
+    /**
+     * Before any probe or latency profile, the vanilla ping is all we have.
+     */
+    public static final LatencyState UNMEASURED = new LatencyState(Double.NaN, Double.NaN, 0, Double.NaN, Double.NaN, 0);
+
+    /**
+     * Round trip time of the latest sample in milliseconds, NaN if unmeasured.
+     */
+    private final double ping;
+    /**
+     * Round trip time of the sample before in milliseconds, NaN if there was none.
+     */
+    private final double previousPing;
+    private final double jitter;
+    /**
+     * What the player's {@link me.caseload.knockbacksync.latency.LatencyEstimator} made of the samples so far in
+     * milliseconds, NaN if it has no estimate yet.
+     */
+    private final double estimatedPing;
+    private final double estimatedDeviation;
+    /**
+     * {@link System#nanoTime()} of the latest sample.
+     */
+    private final long sampleNanos;
+
+    public LatencyState(double ping, double previousPing, double jitter, double estimatedPing, double estimatedDeviation,
+                        long sampleNanos) {
+        this.ping = ping;
+        this.previousPing = previousPing;
+        this.jitter = jitter;
+        this.estimatedPing = estimatedPing;
+        this.estimatedDeviation = estimatedDeviation;
+        this.sampleNanos = sampleNanos;
+    }
+
+    public boolean isMeasured() {
+        return !Double.isNaN(ping);
+    }
+
+    /**
+     * @return The state after a new sample, with the current ping becoming the previous one.
+     */
+    public LatencyState withSample(double ping, double jitter, double estimatedPing, double estimatedDeviation, long sampleNanos) {
+        return new LatencyState(ping, this.ping, jitter, estimatedPing, estimatedDeviation, sampleNanos);
+    }
+}
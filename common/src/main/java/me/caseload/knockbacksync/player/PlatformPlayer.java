@@ -53,9 +53,5 @@ public interface PlatformPlayer {
     BoundingBox getBoundingBox();
 
     User getUser();
-
-    void setClientBrand(String brand);
-
-    String getClientBrand();
     // Add more methods as needed
 }
@@ -1,7 +1,6 @@
 package me.caseload.knockbacksync.player;
 
 import com.github.retrooper.packetevents.PacketEvents;
-import com.github.retrooper.packetevents.manager.player.PlayerManager;
 import com.github.retrooper.packetevents.manager.server.ServerVersion;
 import com.github.retrooper.packetevents.netty.channel.ChannelHelper;
 import com.github.retrooper.packetevents.protocol.ConnectionState;
@@ -16,12 +15,20 @@ import com.github.retrooper.packetevents.wrapper.play.server.WrapperPlayServerWi
 import lombok.Getter;
 import lombok.Setter;
 import me.caseload.knockbacksync.Base;
-import me.caseload.knockbacksync.command.subcommand.ToggleOffGroundSubcommand;
+import me.caseload.knockbacksync.config.KbSyncSettings;
 import me.caseload.knockbacksync.event.KBSyncEventHandler;
-import me.caseload.knockbacksync.event.events.ConfigReloadEvent;
+import me.caseload.knockbacksync.event.events.CombatStateChangeEvent;
+import me.caseload.knockbacksync.event.events.PingSettingsChangedEvent;
+import me.caseload.knockbacksync.latency.LatencyEstimator;
+import me.caseload.knockbacksync.latency.LatencyProfile;
+import me.caseload.knockbacksync.latency.LatencyStats;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.PreparedKnockback;
 import me.caseload.knockbacksync.event.events.ToggleOnOffEvent;
+import me.caseload.knockbacksync.manager.ClientBrandManager;
 import me.caseload.knockbacksync.manager.CombatManager;
-import me.caseload.knockbacksync.manager.ConfigManager;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
+import me.caseload.knockbacksync.profiler.HotPathProfiler;
+import me.caseload.knockbacksync.recorder.SessionRecorder;
 import me.caseload.knockbacksync.scheduler.AbstractTaskHandle;
 import me.caseload.knockbacksync.util.MathUtil;
 import me.caseload.knockbacksync.util.data.Pair;
@@ -31,9 +38,10 @@ import me.caseload.knockbacksync.world.raytrace.RayTraceResult;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 @Getter
 public class PlayerData {
@@ -42,108 +50,261 @@ public class PlayerData {
     private static final short MAIN_THREAD_TRANSACTION_ID = 31407;
     private static final short NETTY_THREAD_TRANSACTION_ID = 31408;
     public static final long PING_OFFSET = 25;
-
-    private static Field playerField;
+    // Three ticks, the velocity of a hit is sent at the end of the tick it happened in
+    private static final long PREPARED_KNOCKBACK_TIMEOUT_NANOS = 150_000_000L;
+    private static final AtomicReferenceFieldUpdater<PlayerData, PreparedKnockback> PREPARED_KNOCKBACK_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(PlayerData.class, PreparedKnockback.class, "preparedKnockback");
+    private static final AtomicReferenceFieldUpdater<PlayerData, LatencyState> LATENCY_STATE_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(PlayerData.class, LatencyState.class, "latencyState");
 
     public final Queue<Pair<Integer, Long>> transactionsSent = new ConcurrentLinkedQueue<>();
     public final Queue<Pair<Long, Long>> keepaliveMap = new ConcurrentLinkedQueue<>();
 
-    static {
-        try {
-            switch (Base.INSTANCE.getPlatform()) {
-                case BUKKIT:
-                case FOLIA:
-                    Class<?> bukkitPlayerClass = Class.forName("me.caseload.knockbacksync.player.BukkitPlayer");
-                    playerField = bukkitPlayerClass.getDeclaredField("bukkitPlayer");
-                    break;
-                case FABRIC:
-                    Class<?> fabricPlayerClass = Class.forName("me.caseload.knockbacksync.player.FabricPlayer");
-                    playerField = fabricPlayerClass.getDeclaredField("fabricPlayer");
-                    break;
-                default:
-                    throw new IllegalStateException("Unexpected platform: " + Base.INSTANCE.getPlatform());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        playerField.setAccessible(true); // May not be needed since it's already public
-    }
-
     public final User user;
     private final PlatformPlayer platformPlayer;
     private final UUID uuid;
     @NotNull private final Random random = new Random();
     public long lastKeepAliveID = 0;
     @Getter private final JitterCalculator jitterCalculator = new JitterCalculator();
-    @Setter private double jitter;
+    private final VelocityAckTracker velocityAckTracker = new VelocityAckTracker();
+    private final LatencyStats latencyStats = new LatencyStats(LatencyStats.SERVER);
     @Nullable private AbstractTaskHandle combatTask;
-    @Nullable @Setter private Double ping, previousPing;
+    // Only replaced as a whole, so readers on other threads never see a ping and jitter from different samples
+    @NotNull private volatile LatencyState latencyState = LatencyState.UNMEASURED;
+    // Replaced when its settings change, otherwise only used by the thread recording samples
+    @NotNull private volatile LatencyEstimator latencyEstimator;
     @Nullable @Setter private Double verticalVelocity;
     @Nullable @Setter private Integer lastDamageTicks;
-    @Setter private double gravityAttribute = 0.08;
-    @Setter private double knockbackResistanceAttribute = 0.0;
+    // Set by the Netty thread that sends the player's attributes
+    @Setter private volatile double gravityAttribute = 0.08;
+    @Setter private volatile double knockbackResistanceAttribute = 0.0;
+    // Set on the main thread when hit, taken on the Netty thread by the velocity packet it belongs to
+    @Nullable @Setter private volatile PreparedKnockback preparedKnockback;
+    // Last distance to the ground and the load governor tick it was traced on, reused while overloaded
+    private double cachedDistanceToGround;
+    private long cachedDistanceTick = Long.MIN_VALUE;
     public PingStrategy pingStrategy; // this is currently shared between all instances, but can be made per-player later
 
     public PlayerData(PlatformPlayer platformPlayer) {
         this.uuid = platformPlayer.getUUID();
         this.platformPlayer = platformPlayer;
 
-        User tempUser = null;
-
-        PlayerManager playerManager = PacketEvents.getAPI().getPlayerManager();
-        Object player = null;
-        try {
-            player = playerField.get(platformPlayer);
-        } catch (IllegalAccessException e) {
-            throw new RuntimeException(e);
-        }
+        this.user = platformPlayer.getUser();
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        this.pingStrategy = settings.getPingStrategy();
+        this.latencyEstimator = settings.getLatencyEstimatorType().create(settings);
+    }
 
-        if (player != null) {
-            tempUser = playerManager.getUser(player);
-        }
+    /**
+     * @return The latest measured ping in milliseconds, or null if there is none yet.
+     */
+    @Nullable
+    public Double getPing() {
+        LatencyState state = latencyState;
+        return state.isMeasured() ? state.getPing() : null;
+    }
 
-        this.user = tempUser;
-        this.pingStrategy = loadPingStrategy(Base.INSTANCE.getConfigManager());
+    public double getJitter() {
+        return latencyState.getJitter();
     }
 
     public double getNotNullPing() {
-        return ping != null ? ping : platformPlayer.getPing();
+        return getNotNullPing(latencyState);
     }
 
     public double getNotNullPreviousPing() {
-        return previousPing != null ? previousPing : platformPlayer.getPing();
+        return getNotNullPreviousPing(latencyState);
+    }
+
+    private double getNotNullPing(LatencyState state) {
+        return state.isMeasured() ? state.getPing() : platformPlayer.getPing();
+    }
+
+    private double getNotNullPreviousPing(LatencyState state) {
+        return Double.isNaN(state.getPreviousPing()) ? platformPlayer.getPing() : state.getPreviousPing();
     }
 
     /**
-     * Calculates the player's ping with compensation for lag spikes.
+     * Publishes a new latency sample. Only the thread handling the player's probe responses may call this.
+     */
+    public void recordLatencySample(double pingMillis, double jitter, long sampleNanos) {
+        LatencyEstimator estimator = latencyEstimator;
+        estimator.addSample(pingMillis);
+        latencyState = latencyState.withSample(pingMillis, jitter, estimator.getEstimateMillis(), estimator.getDeviationMillis(), sampleNanos);
+    }
+
+    /**
+     * Calculates the player's ping with compensation for lag spikes, from the configured {@link LatencyEstimator}
+     * once it has an estimate.
      * A hardcoded offset is applied for several reasons,
      * read the GitHub FAQ before adjusting.
      *
      * @return The compensated ping, with a minimum of 1.
      */
     public double getCompensatedPing() {
-        double ping = getNotNullPing();
-        double previousPing = getNotNullPreviousPing();
-        double spikeCompensatedPing = (ping - previousPing > Base.INSTANCE.getConfigManager().getSpikeThreshold()) ? previousPing : ping;
+        // How long the client actually took to apply recent knockback, when measured, beats the ping
+        double effectiveDelay = velocityAckTracker.getEffectiveDelayMillis(System.nanoTime());
+        if (!Double.isNaN(effectiveDelay) && Base.INSTANCE.getConfigManager().getSettings().isVelocityAckEnabled())
+            return Math.max(1, effectiveDelay - PING_OFFSET);
+
+        LatencyState state = latencyState;
+        if (!Double.isNaN(state.getEstimatedPing()))
+            return Math.max(1, state.getEstimatedPing() - PING_OFFSET);
+
+        double ping = getNotNullPing(state);
+        double previousPing = getNotNullPreviousPing(state);
+        double spikeCompensatedPing = (ping - previousPing > Base.INSTANCE.getConfigManager().getSettings().getSpikeThreshold()) ? previousPing : ping;
 
         return Math.max(1, spikeCompensatedPing - PING_OFFSET);
     }
 
     public int getCompensatedTicks() {
-        return (int) Math.ceil(getCompensatedPing() * Base.INSTANCE.getTickRate() / 1000); // Multiply ping by seconds per tick
+        return (int) Math.ceil(getCompensatedPing() / Base.INSTANCE.getMillisPerTick());
     }
 
     public int getTicks() {
-        return (int) Math.ceil(getNotNullPing() * Base.INSTANCE.getTickRate() / 1000); // Multiply ping by seconds per tick
+        return (int) Math.ceil(getNotNullPing() / Base.INSTANCE.getMillisPerTick());
+    }
+
+    /**
+     * @return Whether keepalives are timed, either as our probes or passively from the server's own.
+     */
+    public boolean isTrackingKeepalives() {
+        return pingStrategy == PingStrategy.KEEPALIVE || Base.INSTANCE.getConfigManager().getSettings().isPassiveKeepaliveRtt();
+    }
+
+    /**
+     * Matches a probe response against the probes in flight and updates ping and jitter from it.
+     * Clients answer in order, so probes sent before the answered one were never answered and count as lost.
+     *
+     * @param receivedNanos {@link System#nanoTime()} when the response arrived.
+     * @return <code>true</code> if the response answered one of the probes; <code>false</code> otherwise.
+     */
+    public <T extends Number> boolean handleProbeResponse(long id, Queue<Pair<T, Long>> probesSent, long receivedNanos) {
+        Pair<T, Long> data;
+        // Keep polling until we find the matching ID
+        while ((data = probesSent.poll()) != null) {
+            if (data.getFirst().longValue() != id) {
+                latencyStats.recordLostProbe();
+                PluginMetrics.PROBES_LOST.increment();
+                continue;
+            }
+
+            long pingNanos = receivedNanos - data.getSecond();
+            double diffMillisDouble = pingNanos / 1_000_000.0;
+
+            jitterCalculator.addPing(pingNanos);
+            double jitter = jitterCalculator.calculateJitter();
+            recordLatencySample(diffMillisDouble, jitter, receivedNanos);
+
+            latencyStats.recordRtt(pingNanos);
+
+            SessionRecorder recorder = Base.INSTANCE.getSessionRecorder();
+            if (recorder.isRecording()) {
+                recorder.recordProbe(uuid, isKeepaliveQueue(probesSent) ? PingStrategy.KEEPALIVE : PingStrategy.TRANSACTION, pingNanos);
+                recorder.recordJitter(uuid, jitter, diffMillisDouble);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Whether the queue is {@link #keepaliveMap}, rather than {@link #transactionsSent}.
+     */
+    public boolean isKeepaliveQueue(Queue<?> probesSent) {
+        return probesSent == keepaliveMap;
+    }
+
+    /**
+     * Expires timed out probes, then checks whether another may be sent.
+     *
+     * @param nowNanos {@link System#nanoTime()}.
+     * @return <code>false</code> if the player already has the maximum number of probes unanswered; <code>true</code> otherwise.
+     */
+    public boolean canSendProbe(long nowNanos) {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        expireProbes(nowNanos - TimeUnit.MILLISECONDS.toNanos(settings.getProbeTimeoutMillis()));
+        Queue<?> probesSent = pingStrategy == PingStrategy.KEEPALIVE ? keepaliveMap : transactionsSent;
+        if (probesSent.size() < settings.getMaxProbesInFlight())
+            return true;
+
+        // The connection is stalled, more probes would only queue up behind the unanswered ones
+        PluginMetrics.PROBES_SKIPPED.increment();
+        return false;
+    }
+
+    /**
+     * Drops the probes sent before the cutoff and counts them as lost.
+     *
+     * @param cutoffNanos {@link System#nanoTime()} before which an unanswered probe has timed out.
+     */
+    public void expireProbes(long cutoffNanos) {
+        expireProbes(keepaliveMap, cutoffNanos);
+        expireProbes(transactionsSent, cutoffNanos);
+    }
+
+    private <T extends Number> void expireProbes(Queue<Pair<T, Long>> probesSent, long cutoffNanos) {
+        Pair<T, Long> oldest;
+        // Probes are queued in the order they were sent, so only the head can have timed out
+        while ((oldest = probesSent.peek()) != null && oldest.getSecond() - cutoffNanos < 0) {
+            // A response may have polled it in the meantime, then it was not lost
+            if (!probesSent.remove(oldest))
+                continue;
+
+            latencyStats.recordLostProbe();
+            PluginMetrics.PROBES_LOST.increment();
+            PluginMetrics.PROBES_TIMED_OUT.increment();
+        }
+    }
+
+    /**
+     * @return What we know about the player's connection right now, or null if no probe has come back yet.
+     */
+    @Nullable
+    public LatencyProfile createLatencyProfile() {
+        LatencyState state = latencyState;
+        if (!state.isMeasured())
+            return null;
+
+        long[] samples = jitterCalculator.getSamples();
+        int[] recentRttMicros = new int[Math.min(samples.length, LatencyProfile.MAX_RECENT_SAMPLES)];
+        for (int i = 0; i < recentRttMicros.length; i++)
+            recentRttMicros[i] = (int) Math.min(samples[samples.length - recentRttMicros.length + i] / 1000, LatencyProfile.MAX_RTT_MICROS);
+
+        // Clamped to what LatencyProfile.read accepts, a probe answered after a long stall must not make the profile unreadable
+        return new LatencyProfile(System.currentTimeMillis(), recentRttMicros,
+                (int) Math.min(Math.round(latencyStats.getPercentileMillis(50) * 1000), LatencyProfile.MAX_RTT_MICROS),
+                (int) Math.min(Math.round(latencyStats.getPercentileMillis(99) * 1000), LatencyProfile.MAX_RTT_MICROS),
+                (float) Math.min(state.getJitter(), LatencyProfile.MAX_RTT_MICROS / 1000.0));
+    }
+
+    /**
+     * Starts from a profile saved in an earlier session instead of the vanilla ping.
+     * Ignored once a probe of this session has come back, a fresh measurement is always better.
+     */
+    public void applyLatencyProfile(LatencyProfile profile) {
+        double medianRtt = profile.getMedianRttMillis();
+        LatencyState profileState = new LatencyState(medianRtt, medianRtt, profile.getJitterMillis(), Double.NaN, Double.NaN, System.nanoTime());
+        // Loaded on another thread, a probe answered in the meantime must win
+        if (!LATENCY_STATE_UPDATER.compareAndSet(this, LatencyState.UNMEASURED, profileState))
+            return;
+
+        for (int sample : profile.getRecentRttMicros())
+            jitterCalculator.addPing(sample * 1000L);
     }
 
     public boolean isSpike() {
-        return (getNotNullPing() - getNotNullPreviousPing()) > Base.INSTANCE.getConfigManager().getSpikeThreshold();
+        LatencyState state = latencyState;
+        return (getNotNullPing(state) - getNotNullPreviousPing(state)) > Base.INSTANCE.getConfigManager().getSettings().getSpikeThreshold();
     }
 
     public void sendPing(boolean async) {
         if (user == null || user.getEncoderState() != ConnectionState.PLAY) return;
 
+        if (!canSendProbe(System.nanoTime()))
+            return;
+
        switch (pingStrategy) {
            case KEEPALIVE:
                long keepAliveID = async ? NETTY_THREAD_TRANSACTION_ID : MAIN_THREAD_TRANSACTION_ID;
@@ -178,6 +339,20 @@ public class PlayerData {
        }
     }
 
+    /**
+     * Sends a ping whose reply tells when the client applied the packets before it.
+     * Must be called on the player's netty event loop, right after their velocity packet was sent.
+     */
+    public void sendVelocityAck() {
+        if (user == null || user.getEncoderState() != ConnectionState.PLAY) return;
+
+        int id = velocityAckTracker.nextId(System.nanoTime());
+        if (PacketEvents.getAPI().getServerManager().getVersion().isNewerThanOrEquals(ServerVersion.V_1_17))
+            user.sendPacket(new WrapperPlayServerPing(id));
+        else
+            user.sendPacket(new WrapperPlayServerWindowConfirmation((byte) 0, (short) id, false));
+    }
+
     /**
      * Determines if the Player is on the ground clientside, but not serverside
      * <p>
@@ -214,17 +389,18 @@ public class PlayerData {
      */
     public boolean isOffGroundSyncEnabled() {
         // TODO, per-player offground sync toggles?
-        return ToggleOffGroundSubcommand.offGroundSyncEnabled;
+        return Base.INSTANCE.getConfigManager().getSettings().isOffGroundSyncEnabled();
     }
 
     /**
      * Gets the compensated off-ground velocity.
      * This is used to make knockback feel more accurate off-ground.
      *
+     * @param velocityY The player's current Y axis velocity
      * @return Compensated Y axis velocity
      */
-    public double getCompensatedOffGroundVelocity() {
-        return MathUtil.getCompensatedVerticalVelocity(platformPlayer.getVelocity().getY(), getGravityAttribute(), getTicks());
+    public double getCompensatedOffGroundVelocity(double velocityY) {
+        return MathUtil.getCompensatedVerticalVelocity(velocityY, getGravityAttribute(), getTicks());
     }
 
     /**
@@ -234,12 +410,15 @@ public class PlayerData {
      * @return The distance to the ground in blocks
      */
     public double getDistanceToGround() {
+        long profilerStart = HotPathProfiler.start();
         double collisionDist = 5;
 
         PlatformWorld world = platformPlayer.getWorld();
 
         for (Vector3d corner : getBBCorners()) {
+            long rayTraceStart = HotPathProfiler.start();
             RayTraceResult result = world.rayTraceBlocks(corner, new Vector3d(0, -1, 0), 5, FluidHandling.NONE, true);
+            HotPathProfiler.stop(HotPathProfiler.Section.RAY_TRACE, rayTraceStart);
 
             if (result == null || result.getHitBlock() == null)
                 continue;
@@ -247,7 +426,48 @@ public class PlayerData {
             collisionDist = Math.min(collisionDist, corner.getY() - result.getHitBlockPosition().getY());
         }
 
-        return collisionDist - 1;
+        HotPathProfiler.stop(HotPathProfiler.Section.DISTANCE_TO_GROUND, profilerStart);
+        cachedDistanceToGround = collisionDist - 1;
+        cachedDistanceTick = Base.INSTANCE.getLoadGovernor().getTickCount();
+        return cachedDistanceToGround;
+    }
+
+    /**
+     * @return The brand the player's client sent on this connection, null if it did not send one (yet).
+     */
+    @Nullable
+    public String getClientBrand() {
+        return user == null ? null : ClientBrandManager.getBrand(user);
+    }
+
+    public boolean hasPreparedKnockback() {
+        return preparedKnockback != null;
+    }
+
+    /**
+     * Takes the knockback prepared when the player was last hit, so only one velocity packet can use it.
+     *
+     * @return The prepared knockback, or null if there is none or it is too old to belong to this velocity.
+     */
+    @Nullable
+    public PreparedKnockback takePreparedKnockback(long nowNanos) {
+        PreparedKnockback prepared = PREPARED_KNOCKBACK_UPDATER.getAndSet(this, null);
+        if (prepared == null || nowNanos - prepared.getPreparedNanos() > PREPARED_KNOCKBACK_TIMEOUT_NANOS)
+            return null;
+        return prepared;
+    }
+
+    /**
+     * Same as {@link #getDistanceToGround()}, but reuses the distance traced on this or the previous tick
+     * instead of ray tracing again. Used while the server is overloaded.
+     *
+     * @return The distance to the ground in blocks, at most a tick old
+     */
+    public double getRecentDistanceToGround() {
+        if (Base.INSTANCE.getLoadGovernor().getTickCount() - cachedDistanceTick <= 1)
+            return cachedDistanceToGround;
+
+        return getDistanceToGround();
     }
 
     /**
@@ -297,23 +517,27 @@ public class PlayerData {
     }
 
     public void updateCombat() {
-        if (isInCombat())
+        boolean wasInCombat = isInCombat();
+        if (wasInCombat)
             combatTask.cancel();
 
         combatTask = newCombatTask();
         CombatManager.addPlayer(uuid);
+        if (!wasInCombat)
+            new CombatStateChangeEvent(uuid, true).post();
     }
 
     public void quitCombat() {
         combatTask.cancel(); // should do nothing
         combatTask = null;
         CombatManager.removePlayer(uuid);
+        new CombatStateChangeEvent(uuid, false).post();
     }
 
     @NotNull
     private AbstractTaskHandle newCombatTask() {
         return Base.INSTANCE.getScheduler().runTaskLaterAsynchronously(
-                this::quitCombat, Base.INSTANCE.getConfigManager().getCombatTimer());
+                this::quitCombat, Base.INSTANCE.getConfigManager().getSettings().getCombatTimer());
     }
 
     public ClientVersion getClientVersion() {
@@ -332,7 +556,8 @@ public class PlayerData {
     }
 
     public boolean didWeSendThatPacket(long receivedId) {
-        return receivedId == NETTY_THREAD_TRANSACTION_ID || receivedId == MAIN_THREAD_TRANSACTION_ID;
+        return receivedId == NETTY_THREAD_TRANSACTION_ID || receivedId == MAIN_THREAD_TRANSACTION_ID
+                || VelocityAckTracker.isAckId(receivedId);
     }
 
     @KBSyncEventHandler
@@ -344,20 +569,10 @@ public class PlayerData {
     }
 
     @KBSyncEventHandler
-    public void onConfigReloadEvent(ConfigReloadEvent event) {
-        this.pingStrategy = loadPingStrategy(event.getConfigManager());
-    }
-
-    private PingStrategy loadPingStrategy(ConfigManager  configManager) {
-        String pingStrategy = configManager.getConfigWrapper().getString("ping_strategy", "KEEPALIVE");
-        switch (pingStrategy) {
-            case "KEEPALIVE":
-                return PingStrategy.KEEPALIVE;
-            case "PING":
-            case "TRANSACTION":
-                return PingStrategy.TRANSACTION;
-            default:
-                throw new IllegalStateException("Unknown ping_strategy: " + pingStrategy);
-        }
+    public void onPingSettingsChangedEvent(PingSettingsChangedEvent event) {
+        KbSyncSettings settings = event.getConfigManager().getSettings();
+        this.pingStrategy = settings.getPingStrategy();
+        if (event.getChangedPaths().stream().anyMatch(path -> path.startsWith("latency_estimator") || path.equals("spike_threshold")))
+            this.latencyEstimator = settings.getLatencyEstimatorType().create(settings);
     }
 }
\ No newline at end of file
@@ -0,0 +1,82 @@
+package me.caseload.knockbacksync.player;
+
+import me.caseload.knockbacksync.latency.LatencyStats;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the pings sent right behind a player's knockback. Clients handle packets in order, so the reply to one
+ * arrives once the knockback before it was applied, and the time it took is the player's effective knockback delay.
+ * <p>
+ * Ack ids are a fixed block next to the regular probe ids, so {@link PlayerData#didWeSendThatPacket(long)} covers
+ * both and a reply is looked up by its id directly. Ids are only handed out and matched on the player's netty
+ * event loop, so no synchronization is needed besides publishing the result.
+ */
+public class VelocityAckTracker {
+
+    public static final int FIRST_ID = 31409;
+    private static final int ID_COUNT = 256; // Must be a power of two
+    private static final long NOT_SENT = Long.MIN_VALUE;
+
+    // Smoothing factor, the last few knockbacks dominate
+    private static final double DELAY_ALPHA = 0.25;
+    // An estimate older than this no longer says much about the connection, the ping is used again
+    private static final long STALE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final long[] sentNanos = new long[ID_COUNT];
+    private int nextIndex;
+    private volatile double effectiveDelayMillis = Double.NaN;
+    private volatile long lastAckNanos;
+
+    public VelocityAckTracker() {
+        Arrays.fill(sentNanos, NOT_SENT);
+    }
+
+    public static boolean isAckId(long id) {
+        return id >= FIRST_ID && id < FIRST_ID + ID_COUNT;
+    }
+
+    /**
+     * @param sentNanos {@link System#nanoTime()} when the ack is sent.
+     * @return The id to send the ack with.
+     */
+    public int nextId(long sentNanos) {
+        int index = nextIndex;
+        nextIndex = (index + 1) & (ID_COUNT - 1);
+        this.sentNanos[index] = sentNanos;
+        return FIRST_ID + index;
+    }
+
+    /**
+     * @param receivedNanos {@link System#nanoTime()} when the reply arrived.
+     * @return <code>true</code> if the id belonged to an ack in flight; <code>false</code> otherwise.
+     */
+    public boolean handleAck(long id, long receivedNanos) {
+        int index = (int) (id - FIRST_ID);
+        long sent = sentNanos[index];
+        if (sent == NOT_SENT)
+            return false;
+
+        sentNanos[index] = NOT_SENT;
+        long delayNanos = receivedNanos - sent;
+        LatencyStats.VELOCITY_ACKS.recordRtt(delayNanos);
+
+        double delayMillis = delayNanos / 1_000_000.0;
+        double previous = effectiveDelayMillis;
+        effectiveDelayMillis = Double.isNaN(previous) ? delayMillis : previous + (delayMillis - previous) * DELAY_ALPHA;
+        lastAckNanos = receivedNanos;
+        return true;
+    }
+
+    /**
+     * @return Smoothed time between sending a knockback and the client applying it in milliseconds,
+     * or NaN if there is no recent measurement.
+     */
+    public double getEffectiveDelayMillis(long nowNanos) {
+        double delay = effectiveDelayMillis;
+        if (Double.isNaN(delay) || nowNanos - lastAckNanos > STALE_NANOS)
+            return Double.NaN;
+        return delay;
+    }
+}
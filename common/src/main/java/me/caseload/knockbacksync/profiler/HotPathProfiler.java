@@ -0,0 +1,82 @@
+package me.caseload.knockbacksync.profiler;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.latency.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Times a sampled fraction of invocations of the plugin's hot entrypoints.
+ * <p>
+ * Usage is {@code long start = HotPathProfiler.start(); ... HotPathProfiler.stop(Section.X, start);}.
+ * While the profiler is stopped {@link #start()} is a single volatile read and {@link #stop} returns right away.
+ * While running, 1 in {@code sampleRate} invocations are timed with {@link System#nanoTime()} into a
+ * fixed histogram per section, so profiling never allocates.
+ */
+public final class HotPathProfiler {
+
+    public enum Section {
+        PING_RECEIVE,
+        PING_SEND,
+        KNOCKBACK,
+        DAMAGE,
+        DISTANCE_TO_GROUND,
+        RAY_TRACE,
+        EVENT_BUS
+    }
+
+    private static volatile boolean running;
+    @Getter private static volatile int sampleRate = 100;
+    // Values are nanoseconds here, the histogram itself is unit agnostic
+    private static final LatencyHistogram[] histograms = new LatencyHistogram[Section.values().length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    private HotPathProfiler() {
+    }
+
+    /**
+     * @return The start time if this invocation is sampled, 0 otherwise.
+     */
+    public static long start() {
+        if (!running)
+            return 0;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0)
+            return 0;
+        return System.nanoTime() | 1; // Never 0, which means not sampled
+    }
+
+    public static void stop(Section section, long start) {
+        if (start == 0)
+            return;
+        histograms[section.ordinal()].record(System.nanoTime() - start);
+    }
+
+    /**
+     * Clears previous results and starts sampling.
+     *
+     * @param sampleRate Time 1 in this many invocations.
+     */
+    public static synchronized void begin(int sampleRate) {
+        running = false;
+        for (LatencyHistogram histogram : histograms)
+            histogram.reset();
+        HotPathProfiler.sampleRate = Math.max(sampleRate, 1);
+        running = true;
+    }
+
+    public static synchronized void end() {
+        running = false;
+    }
+
+    public static boolean isRunning() {
+        return running;
+    }
+
+    public static LatencyHistogram getHistogram(Section section) {
+        return histograms[section.ordinal()];
+    }
+}
@@ -0,0 +1,35 @@
+package me.caseload.knockbacksync.recorder;
+
+/**
+ * The kinds of records in a session recording. The meaning of the value fields depends on the type.
+ */
+public enum RecordType {
+    /**
+     * A matched ping probe. Flags: ping strategy ordinal. Value 0: round trip time in milliseconds.
+     */
+    PROBE(1),
+    /**
+     * A jitter update after a probe. Value 0: jitter in milliseconds, value 1: ping in milliseconds.
+     */
+    JITTER(2),
+    /**
+     * A knockback decision. Flags: the branch taken, see {@link SessionRecorder#BRANCH_ADJUSTED_ON_GROUND}.
+     * Int: compensated ticks. Values: distance to ground, velocity Y, vertical velocity, adjusted velocity Y.
+     * Values that were not evaluated before the decision was made are NaN.
+     */
+    KNOCKBACK(3);
+
+    public final byte id;
+
+    RecordType(int id) {
+        this.id = (byte) id;
+    }
+
+    public static RecordType fromId(byte id) {
+        for (RecordType type : values()) {
+            if (type.id == id)
+                return type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,296 @@
+package me.caseload.knockbacksync.recorder;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.event.KBSyncEventHandler;
+import me.caseload.knockbacksync.event.events.GeneralSettingsChangedEvent;
+import me.caseload.knockbacksync.player.PingStrategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Records probe round trip times, jitter updates and knockback decisions into rotating memory-mapped files
+ * for offline tuning. Read them back with {@link SessionRecordingReader}.
+ * <p>
+ * Every record is {@value #RECORD_SIZE} bytes. Writers reserve a slot in the current file with a single atomic
+ * increment and write straight into the mapping, so recording takes no locks and allocates nothing. A file is only
+ * flushed once the writers still inside it are done. The next
+ * file is created, mapped and paged in ahead of time on a background thread, the writer that fills a file only
+ * swaps a reference. If the background thread ever falls behind, records are dropped rather than waited for.
+ * <p>
+ * File layout: slot 0 is a header (magic, format version, record size, wall clock and {@link System#nanoTime()}
+ * when the file was created), every following slot is a record whose first byte is its {@link RecordType} id,
+ * or 0 if the slot was never written.
+ */
+public class SessionRecorder {
+
+    public static final long MAGIC = 0x4B4253524543_3031L; // "KBSREC01"
+    public static final int VERSION = 1;
+    public static final int RECORD_SIZE = 64;
+
+    public static final byte BRANCH_ADJUSTED_ON_GROUND = 0;
+    public static final byte BRANCH_ADJUSTED_OFF_GROUND = 1;
+    /**
+     * Skipped knockback is recorded as this plus the ordinal of its
+     * {@link me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason}.
+     */
+    public static final byte BRANCH_SKIPPED = 2;
+
+    private final AtomicReference<Segment> next = new AtomicReference<>();
+    private final LongAdder droppedRecords = new LongAdder();
+    private volatile Segment current;
+    private volatile boolean running;
+
+    private ExecutorService executor;
+    private File directory;
+    private int slotsPerFile;
+    private int maxFiles;
+    private int fileSequence;
+
+    public synchronized void start() {
+        KbSyncSettings settings = Base.INSTANCE.getConfigManager().getSettings();
+        if (running || !settings.isRecorderEnabled())
+            return;
+
+        directory = new File(Base.INSTANCE.getDataFolder(), "recordings");
+        long fileSize = Math.max(settings.getRecorderFileSizeMb(), 1L) * 1024L * 1024L;
+        slotsPerFile = (int) Math.min(fileSize / RECORD_SIZE, Integer.MAX_VALUE / RECORD_SIZE);
+        maxFiles = Math.max(settings.getRecorderMaxFiles(), 2);
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "KnockbackSync-Recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        running = true;
+        executor.execute(this::advance);
+    }
+
+    public void stop() {
+        ExecutorService executor;
+        synchronized (this) {
+            if (!running)
+                return;
+
+            running = false;
+            Segment last = current;
+            current = null;
+            Segment unused = next.getAndSet(null);
+            executor = this.executor;
+            this.executor = null;
+            executor.execute(() -> {
+                if (last != null)
+                    retire(last);
+                if (unused != null)
+                    deleteQuietly(unused.path);
+            });
+            executor.shutdown();
+        }
+
+        // Outside the lock, the recorder thread may still need it to publish or rotate
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @KBSyncEventHandler
+    public void onGeneralSettingsChanged(GeneralSettingsChangedEvent event) {
+        if (event.getChangedPaths().stream().anyMatch(path -> path.equals("recorder") || path.startsWith("recorder."))) {
+            stop();
+            start();
+        }
+    }
+
+    public boolean isRecording() {
+        return current != null;
+    }
+
+    public long getDroppedRecords() {
+        return droppedRecords.sum();
+    }
+
+    public void recordProbe(UUID uuid, PingStrategy strategy, long rttNanos) {
+        write(RecordType.PROBE, (byte) strategy.ordinal(), 0, uuid, rttNanos / 1_000_000.0, Double.NaN, Double.NaN, Double.NaN);
+    }
+
+    public void recordJitter(UUID uuid, double jitter, double ping) {
+        write(RecordType.JITTER, (byte) 0, 0, uuid, jitter, ping, Double.NaN, Double.NaN);
+    }
+
+    public void recordKnockback(UUID uuid, byte branch, int compensatedTicks, double distanceToGround,
+                                double velocityY, double verticalVelocity, double adjustedVelocityY) {
+        write(RecordType.KNOCKBACK, branch, compensatedTicks, uuid, distanceToGround, velocityY, verticalVelocity, adjustedVelocityY);
+    }
+
+    private void write(RecordType type, byte flags, int intValue, UUID uuid, double v0, double v1, double v2, double v3) {
+        // Two attempts, the second one lands in the next file if the first found the current one full
+        for (int attempt = 0; attempt < 2; attempt++) {
+            Segment segment = current;
+            if (segment == null)
+                break;
+
+            int slot;
+            // Registered before checking the segment is still current, so retire() waits for this write
+            segment.writers.incrementAndGet();
+            try {
+                if (segment != current)
+                    continue; // Rotated or stopped in between, the segment may already be forced
+                slot = segment.nextSlot.getAndIncrement();
+                if (slot < segment.slots) {
+                    segment.write(slot, type, flags, intValue, uuid, v0, v1, v2, v3);
+                    return;
+                }
+            } finally {
+                segment.writers.decrementAndGet();
+            }
+
+            // Exactly one writer sees the first slot past the end and rotates
+            if (slot == segment.slots)
+                rotate(segment);
+        }
+        if (running)
+            droppedRecords.increment();
+    }
+
+    // Synchronized with stop(), so a stopped recorder is never given a new current file and the executor is still open
+    private synchronized void rotate(Segment full) {
+        if (!running || current != full)
+            return;
+
+        current = next.getAndSet(null); // Null if the background thread fell behind, advance() fills it in
+        executor.execute(() -> {
+            retire(full);
+            advance();
+        });
+    }
+
+    // Runs on the recorder thread: makes sure there is a current and a pre-mapped next file, then prunes old files
+    private void advance() {
+        if (!running)
+            return;
+
+        try {
+            if (current == null) {
+                Segment ready = next.getAndSet(null);
+                publish(ready != null ? ready : createSegment(), true);
+            }
+            if (next.get() == null)
+                publish(createSegment(), false);
+            pruneOldFiles();
+        } catch (IOException e) {
+            Base.LOGGER.log(Level.WARNING, "Failed to create a session recording file, records will be dropped", e);
+        }
+    }
+
+    // Files are created without the lock, only handing them to the writers is synchronized with stop()
+    private void publish(Segment segment, boolean asCurrent) {
+        synchronized (this) {
+            if (running) {
+                if (asCurrent)
+                    current = segment;
+                else
+                    next.set(segment);
+                return;
+            }
+        }
+        deleteQuietly(segment.path);
+    }
+
+    // Runs on the recorder thread once the segment is no longer current: waits out writes already in it, then flushes
+    private static void retire(Segment segment) {
+        while (segment.writers.get() > 0)
+            Thread.yield();
+        segment.buffer.force();
+    }
+
+    private Segment createSegment() throws IOException {
+        Files.createDirectories(directory.toPath());
+        String name = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date())
+                + String.format("-%05d.kbsrec", fileSequence++);
+        Path path = directory.toPath().resolve(name);
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slotsPerFile * RECORD_SIZE);
+        }
+        buffer.putLong(0, MAGIC);
+        buffer.putInt(8, VERSION);
+        buffer.putInt(12, RECORD_SIZE);
+        buffer.putLong(16, System.currentTimeMillis());
+        buffer.putLong(24, System.nanoTime());
+        buffer.load(); // Fault the pages in now rather than on a netty or main thread later
+        return new Segment(path, buffer, slotsPerFile);
+    }
+
+    private void pruneOldFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.toPath(), "session-*.kbsrec")) {
+            for (Path file : stream)
+                files.add(file);
+        }
+        // Names sort chronologically
+        Collections.sort(files);
+        for (int i = 0; i < files.size() - maxFiles; i++)
+            deleteQuietly(files.get(i));
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            Base.LOGGER.warning("Failed to delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        final int slots;
+        final AtomicInteger nextSlot = new AtomicInteger(1); // Slot 0 is the header
+        final AtomicInteger writers = new AtomicInteger();
+
+        Segment(Path path, MappedByteBuffer buffer, int slots) {
+            this.path = path;
+            this.buffer = buffer;
+            this.slots = slots;
+        }
+
+        // Only absolute puts to this writer's own slot, which never touch the buffer's shared position
+        void write(int slot, RecordType type, byte flags, int intValue, UUID uuid, double v0, double v1, double v2, double v3) {
+            int offset = slot * RECORD_SIZE;
+            buffer.put(offset + 1, flags);
+            buffer.putInt(offset + 4, intValue);
+            buffer.putLong(offset + 8, System.nanoTime());
+            buffer.putLong(offset + 16, uuid.getMostSignificantBits());
+            buffer.putLong(offset + 24, uuid.getLeastSignificantBits());
+            buffer.putDouble(offset + 32, v0);
+            buffer.putDouble(offset + 40, v1);
+            buffer.putDouble(offset + 48, v2);
+            buffer.putDouble(offset + 56, v3);
+            buffer.put(offset, type.id); // Written last, a slot with a type is complete
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package me.caseload.knockbacksync.recorder;
+
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+
+/**
+ * Reads a file written by {@link SessionRecorder}. Cursor style, call {@link #next()} and read the
+ * current record through the getters:
+ * <pre>{@code
+ * try (SessionRecordingReader reader = new SessionRecordingReader(path)) {
+ *     while (reader.next()) {
+ *         if (reader.getType() == RecordType.PROBE)
+ *             System.out.println(reader.getUuid() + " " + reader.getValue(0) + "ms");
+ *     }
+ * }
+ * }</pre>
+ */
+public class SessionRecordingReader implements Closeable {
+
+    private final MappedByteBuffer buffer;
+    private final int slots;
+    @Getter private final long startEpochMillis;
+    @Getter private final long startNanoTime;
+
+    private int slot; // Slot 0 is the header
+    private int offset;
+
+    public SessionRecordingReader(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < SessionRecorder.RECORD_SIZE || buffer.getLong(0) != SessionRecorder.MAGIC)
+            throw new IOException(path + " is not a KnockbackSync session recording");
+        int version = buffer.getInt(8);
+        if (version != SessionRecorder.VERSION || buffer.getInt(12) != SessionRecorder.RECORD_SIZE)
+            throw new IOException("Unsupported session recording version " + version + " in " + path);
+
+        slots = buffer.capacity() / SessionRecorder.RECORD_SIZE;
+        startEpochMillis = buffer.getLong(16);
+        startNanoTime = buffer.getLong(24);
+    }
+
+    /**
+     * Moves to the next written record, skipping slots that were never written.
+     *
+     * @return false once the end of the file is reached.
+     */
+    public boolean next() {
+        while (++slot < slots) {
+            offset = slot * SessionRecorder.RECORD_SIZE;
+            if (buffer.get(offset) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    public RecordType getType() {
+        return RecordType.fromId(buffer.get(offset));
+    }
+
+    /**
+     * @return The ping strategy ordinal for probes, the branch for knockback decisions.
+     */
+    public byte getFlags() {
+        return buffer.get(offset + 1);
+    }
+
+    public int getIntValue() {
+        return buffer.getInt(offset + 4);
+    }
+
+    public long getNanoTime() {
+        return buffer.getLong(offset + 8);
+    }
+
+    public long getEpochMillis() {
+        return startEpochMillis + (getNanoTime() - startNanoTime) / 1_000_000L;
+    }
+
+    public long getUuidMostSignificantBits() {
+        return buffer.getLong(offset + 16);
+    }
+
+    public long getUuidLeastSignificantBits() {
+        return buffer.getLong(offset + 24);
+    }
+
+    public UUID getUuid() {
+        return new UUID(getUuidMostSignificantBits(), getUuidLeastSignificantBits());
+    }
+
+    /**
+     * @param index 0 to 3, see {@link RecordType} for what each value holds.
+     */
+    public double getValue(int index) {
+        if (index < 0 || index > 3)
+            throw new IndexOutOfBoundsException("Value index " + index);
+        return buffer.getDouble(offset + 32 + index * 8);
+    }
+
+    @Override
+    public void close() {
+        // Mapped buffers are released by the garbage collector, there is no portable way to unmap them on Java 8
+    }
+}
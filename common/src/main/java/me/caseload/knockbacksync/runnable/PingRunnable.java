@@ -1,6 +1,7 @@
 package me.caseload.knockbacksync.runnable;
 
 import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.load.LoadLevel;
 import me.caseload.knockbacksync.manager.CombatManager;
 import me.caseload.knockbacksync.manager.PlayerDataManager;
 import me.caseload.knockbacksync.player.PlayerData;
@@ -9,14 +10,23 @@ import java.util.UUID;
 
 public class PingRunnable implements Runnable {
 
+    private int skippedRuns;
+
     @Override
     public void run() {
         if (!Base.INSTANCE.getConfigManager().isToggled())
             return;
 
+        // While overloaded only every probe_interval_multiplier-th run sends probes
+        if (Base.INSTANCE.getLoadGovernor().getLevel().isAtLeast(LoadLevel.REDUCED_PROBES)
+                && ++skippedRuns < Base.INSTANCE.getConfigManager().getSettings().getLoadProbeIntervalMultiplier())
+            return;
+        skippedRuns = 0;
+
         for (UUID uuid : CombatManager.getPlayers()) {
             PlayerData playerData = PlayerDataManager.getPlayerData(uuid);
-            playerData.sendPing(true);
+            if (playerData != null)
+                playerData.sendPing(true);
         }
     }
 }
@@ -0,0 +1,21 @@
+package me.caseload.knockbacksync.runnable;
+
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires probes that were never answered, so a player whose connection stalls does not keep them forever.
+ */
+public class ProbeTimeoutRunnable implements Runnable {
+
+    @Override
+    public void run() {
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(Base.INSTANCE.getConfigManager().getSettings().getProbeTimeoutMillis());
+        long cutoffNanos = System.nanoTime() - timeoutNanos;
+        for (PlayerData playerData : PlayerDataManager.getAllPlayerData())
+            playerData.expireProbes(cutoffNanos);
+    }
+}
@@ -0,0 +1,130 @@
+package me.caseload.knockbacksync.scheduler;
+
+import me.caseload.knockbacksync.Base;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * A millisecond resolution timer that runs on its own thread instead of the server's tick loop.
+ * Used for ping probes so their spacing stays constant even while the main thread is lagging.
+ */
+public class PingClock {
+
+    private ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Schedules a repeating task.
+     *
+     * @param task          The task to run.
+     * @param delayMillis   The delay before the first run, in milliseconds.
+     * @param periodMillis  The time between runs, in milliseconds.
+     * @param jitterMillis  A random offset of up to +/- this value applied to every run, capped at half the period.
+     * @return A handle that can be used to cancel the task.
+     */
+    public synchronized AbstractTaskHandle schedule(Runnable task, long delayMillis, long periodMillis, long jitterMillis) {
+        if (periodMillis <= 0)
+            throw new IllegalArgumentException("Period must be positive, got " + periodMillis);
+
+        if (executor == null || executor.isShutdown())
+            executor = createExecutor();
+
+        long periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        long jitterNanos = Math.min(TimeUnit.MILLISECONDS.toNanos(Math.max(jitterMillis, 0)), periodNanos / 2);
+        ClockTask clockTask = new ClockTask(executor, task, periodNanos, jitterNanos);
+        clockTask.start(TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0)));
+        return clockTask;
+    }
+
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "KnockbackSync-PingClock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    private static final class ClockTask implements Runnable, AbstractTaskHandle {
+        private final ScheduledThreadPoolExecutor executor;
+        private final Runnable task;
+        private final long periodNanos;
+        private final long jitterNanos;
+
+        // Only touched by the clock thread after start()
+        private long nextRunNanos;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        private ClockTask(ScheduledThreadPoolExecutor executor, Runnable task, long periodNanos, long jitterNanos) {
+            this.executor = executor;
+            this.task = task;
+            this.periodNanos = periodNanos;
+            this.jitterNanos = jitterNanos;
+        }
+
+        private void start(long delayNanos) {
+            nextRunNanos = System.nanoTime() + delayNanos;
+            scheduleNext();
+        }
+
+        @Override
+        public void run() {
+            if (cancelled)
+                return;
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Base.LOGGER.log(Level.WARNING, "Exception in ping clock task", t);
+            }
+
+            nextRunNanos += periodNanos;
+            scheduleNext();
+        }
+
+        // Each run is rescheduled against the ideal timeline rather than the end of the previous run,
+        // so jitter and task duration do not accumulate into drift
+        private void scheduleNext() {
+            if (cancelled)
+                return;
+
+            long now = System.nanoTime();
+            if (now - nextRunNanos > periodNanos)
+                nextRunNanos = now; // We fell more than a period behind, skip ahead instead of bursting
+
+            long offset = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1) : 0;
+            try {
+                future = executor.schedule(this, Math.max(0, nextRunNanos + offset - now), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                cancelled = true; // Clock was shut down
+            }
+        }
+
+        @Override
+        public boolean getCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null)
+                scheduled.cancel(false);
+        }
+    }
+}
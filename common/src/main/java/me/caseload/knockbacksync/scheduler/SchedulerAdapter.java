@@ -13,5 +13,11 @@ public interface SchedulerAdapter {
 
     AbstractTaskHandle runTaskTimerAsynchronously(Runnable task, long delay, long period);
 
+    /**
+     * Runs a repeating task off the server thread on a millisecond timer that is independent of the tick loop.
+     * Tasks scheduled this way are stopped by {@link #shutdown()}.
+     */
+    AbstractTaskHandle runTaskTimerMillis(Runnable task, long delayMillis, long periodMillis, long jitterMillis);
+
     void shutdown();
 }
\ No newline at end of file
@@ -1,30 +1,22 @@
 package me.caseload.knockbacksync.stats.custom;
 
-import com.github.retrooper.packetevents.protocol.player.ClientVersion;
-import com.github.retrooper.packetevents.protocol.player.User;
 import me.caseload.knockbacksync.Base;
-import me.caseload.knockbacksync.manager.PlayerDataManager;
-import me.caseload.knockbacksync.player.PlatformPlayer;
-import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.manager.ClientBrandManager;
 import me.caseload.knockbacksync.stats.AdvancedPie;
 
-import java.util.HashMap;
 import java.util.Map;
 
 public class ClientBrandsPie extends AdvancedPie {
 
-    // Gets the client versions of players online
+    // Gets the client brands of players online
     public ClientBrandsPie() {
         super("client_brands", () -> {
-            Map<String, Integer> valueMap = new HashMap<>();
-            for (PlatformPlayer player : Base.INSTANCE.getPlatformServer().getOnlinePlayers()) {
-                User user = player.getUser();
-                if (user == null || user.getClientVersion() == null) {
-                    valueMap.put("vanilla", valueMap.getOrDefault("vanilla", 0) + 1);
-                } else {
-                    valueMap.put(player.getClientBrand(), valueMap.getOrDefault(player.getClientBrand(), 0) + 1);
-                }
-            }
+            Map<String, Integer> valueMap = ClientBrandManager.getPlayerCounts();
+            // Players whose client did not send a brand. Connections still logging in may already have one, hence the clamp
+            int branded = valueMap.values().stream().mapToInt(Integer::intValue).sum();
+            int unbranded = Base.INSTANCE.getPlatformServer().getOnlinePlayers().size() - branded;
+            if (unbranded > 0)
+                valueMap.merge("vanilla", unbranded, Integer::sum);
             return valueMap;
         });
     }
@@ -6,20 +6,21 @@ import java.util.UUID;
 
 public class FloodgateUtil {
 
-    private static boolean CHECKED_FOR_FLOODGATE;
-    private static boolean FLOODGATE_PRESENT;
-
-    public static boolean isFloodgatePlayer(UUID uuid) {
-        if (!CHECKED_FOR_FLOODGATE) {
-            try {
-                Class.forName("org.geysermc.floodgate.api.FloodgateApi");
-                FLOODGATE_PRESENT = true;
-            } catch (ClassNotFoundException e) {
-                FLOODGATE_PRESENT = false;
-            }
-            CHECKED_FOR_FLOODGATE = true;
+    private static volatile boolean FLOODGATE_PRESENT;
+
+    /**
+     * Checks once at startup whether Floodgate is installed.
+     */
+    public static void init() {
+        try {
+            Class.forName("org.geysermc.floodgate.api.FloodgateApi");
+            FLOODGATE_PRESENT = true;
+        } catch (ClassNotFoundException e) {
+            FLOODGATE_PRESENT = false;
         }
+    }
 
+    public static boolean isFloodgatePlayer(UUID uuid) {
         if (FLOODGATE_PRESENT) {
             return FloodgateApi.getInstance().isFloodgatePlayer(uuid);
         } else {
@@ -28,4 +29,3 @@ public class FloodgateUtil {
     }
 
 }
-
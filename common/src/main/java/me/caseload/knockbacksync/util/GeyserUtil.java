@@ -1,82 +1,58 @@
 package me.caseload.knockbacksync.util;
 
 import com.github.retrooper.packetevents.PacketEvents;
-import com.github.retrooper.packetevents.util.reflection.Reflection;
 import me.caseload.knockbacksync.Base;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.UUID;
 
 public class GeyserUtil {
-    private static boolean CHECKED_FOR_GEYSER = false;
-    private static boolean GEYSER_PRESENT = false;
-    private static Class<?> GEYSER_CLASS;
-    private static Class<?> GEYSER_API_CLASS;
-    private static Method GEYSER_API_METHOD;
-    private static Method CONNECTION_BY_UUID_METHOD;
+    // Both null while Geyser is not installed
+    private static volatile MethodHandle GEYSER_API_HANDLE;
+    private static volatile MethodHandle CONNECTION_BY_UUID_HANDLE;
+
+    /**
+     * Resolves Geyser's API once at startup, so checking a player needs no reflection.
+     */
+    public static void init() {
+        try {
+            Class<?> geyserClass = loadClass("org.geysermc.api.Geyser");
+            Class<?> geyserApiClass = loadClass("org.geysermc.api.GeyserApiBase");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            GEYSER_API_HANDLE = lookup.unreflect(geyserClass.getMethod("api"))
+                    .asType(MethodType.methodType(Object.class));
+            CONNECTION_BY_UUID_HANDLE = lookup.unreflect(geyserApiClass.getMethod("connectionByUuid", UUID.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, UUID.class));
+        } catch (ClassNotFoundException e) {
+            // Geyser is not installed
+        } catch (ReflectiveOperationException e) {
+            e.printStackTrace();
+        }
+    }
 
     public static boolean isGeyserPlayer(UUID uuid) {
-        if (!CHECKED_FOR_GEYSER) {
-            try {
-                switch (Base.INSTANCE.getPlatform()) {
-                    case BUKKIT:
-                    case FOLIA:
-                        ClassLoader classLoader = PacketEvents.getAPI().getPlugin().getClass().getClassLoader();
-                        GEYSER_CLASS = classLoader.loadClass("org.geysermc.api.Geyser");
-                        break;
-                    case FABRIC:
-                        GEYSER_CLASS = Class.forName("org.geysermc.api.Geyser");
-                        GEYSER_PRESENT = true;
-                        break;
-                }
+        MethodHandle connectionByUuid = CONNECTION_BY_UUID_HANDLE;
+        if (connectionByUuid == null)
+            return false;
 
-            } catch (ClassNotFoundException e) {
-                GEYSER_PRESENT = false;
-            }
-            CHECKED_FOR_GEYSER = true;
+        try {
+            Object apiInstance = (Object) GEYSER_API_HANDLE.invokeExact();
+            return apiInstance != null && (Object) connectionByUuid.invokeExact(apiInstance, uuid) != null;
+        } catch (Throwable t) {
+            // Geyser is installed but its API is not registered yet
+            return false;
         }
+    }
 
-        if (GEYSER_PRESENT) {
-            if (GEYSER_API_CLASS == null) {
-                try {
-                    switch (Base.INSTANCE.getPlatform()) {
-                        case BUKKIT:
-                        case FOLIA:
-                            ClassLoader classLoader = PacketEvents.getAPI().getPlugin().getClass().getClassLoader();
-                            GEYSER_API_CLASS = classLoader.loadClass("org.geysermc.api.GeyserApiBase");
-                            break;
-                        case FABRIC:
-                            GEYSER_CLASS = Class.forName("org.geysermc.api.GeyserApiBase");
-                            GEYSER_PRESENT = true;
-                            break;
-                    }
-                } catch (ClassNotFoundException e) {
-                    e.printStackTrace();
-                }
-            }
-            if (GEYSER_API_METHOD == null) {
-                GEYSER_API_METHOD = Reflection.getMethodExact(GEYSER_CLASS, "api", null);
-            }
-            if (CONNECTION_BY_UUID_METHOD == null) {
-                CONNECTION_BY_UUID_METHOD = Reflection.getMethod(GEYSER_API_CLASS, "connectionByUuid", 0);
-            }
-            Object apiInstance = null;
-            try {
-                apiInstance = GEYSER_API_METHOD.invoke(null);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-            }
-            Object connection = null;
-            try {
-                if (apiInstance != null) {
-                    connection = CONNECTION_BY_UUID_METHOD.invoke(apiInstance, uuid);
-                }
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                e.printStackTrace();
-            }
-            return connection != null;
+    private static Class<?> loadClass(String name) throws ClassNotFoundException {
+        switch (Base.INSTANCE.getPlatform()) {
+            case BUKKIT:
+            case FOLIA:
+                return PacketEvents.getAPI().getPlugin().getClass().getClassLoader().loadClass(name);
+            default:
+                return Class.forName(name);
         }
-        return false;
     }
 }
@@ -16,6 +16,19 @@ public class NumberConversions {
         }
     }
 
+    public static double toDouble(@Nullable Object object, double defaultValue) {
+        if (object instanceof Number) {
+            return ((Number) object).doubleValue();
+        } else {
+            try {
+                return Double.parseDouble(object.toString());
+            } catch (NumberFormatException | NullPointerException ignored) {
+            }
+
+            return defaultValue;
+        }
+    }
+
     public static int toInt(@Nullable Object object, int def) {
         if (object instanceof Number) {
             return ((Number) object).intValue();
@@ -0,0 +1,86 @@
+package me.caseload.knockbacksync.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YamlConfigurationTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void unchangedFileIsWrittenBackAsIs() throws IOException {
+        String contents = "# Header\n"
+                + "enabled: true # toggle\n"
+                + "servers:\n"
+                + "  - lobby # main\n"
+                + "  - survival\n"
+                + "motd: |\n"
+                + "  Hello\n"
+                + "\n"
+                + "  world\n"
+                + "\n"
+                + "# Pings\n"
+                + "ping:\n"
+                + "  interval: 20\n";
+        YamlConfiguration config = load(contents);
+
+        config.save();
+        assertEquals(contents, read());
+    }
+
+    @Test
+    void changedBlockListIsWrittenAgain() throws IOException {
+        YamlConfiguration config = load("servers: # worlds\n"
+                + "- lobby\n"
+                + "- survival\n"
+                + "after: 1\n");
+        config.getData().put("servers", Arrays.asList("lobby", "creative", "skyblock"));
+
+        config.save();
+        Map<String, Object> saved = reload();
+        assertEquals(Arrays.asList("lobby", "creative", "skyblock"), saved.get("servers"));
+        assertEquals(1, saved.get("after"));
+        assertTrue(read().startsWith("servers: # worlds\n"));
+    }
+
+    @Test
+    void changedBlockScalarIsWrittenAgain() throws IOException {
+        YamlConfiguration config = load("section:\n"
+                + "  motd: >-\n"
+                + "    Hello\n"
+                + "    world\n"
+                + "  after: 1\n");
+        ((Map<String, Object>) config.getData().get("section")).put("motd", "Bye\nnow");
+
+        config.save();
+        Map<?, ?> section = (Map<?, ?>) reload().get("section");
+        assertEquals("Bye\nnow", section.get("motd"));
+        assertEquals(1, section.get("after"));
+    }
+
+    private YamlConfiguration load(String contents) throws IOException {
+        Files.write(new File(folder, "config.yml").toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        YamlConfiguration config = new YamlConfiguration(new File(folder, "config.yml"));
+        config.load();
+        return config;
+    }
+
+    private String read() throws IOException {
+        return new String(Files.readAllBytes(new File(folder, "config.yml").toPath()), StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> reload() throws IOException {
+        return new Yaml().load(read());
+    }
+}
@@ -0,0 +1,99 @@
+package me.caseload.knockbacksync.latency;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyProfileTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        LatencyProfile profile = new LatencyProfile(1234L, new int[]{40_000, 42_000, 45_000}, 42_000, 90_000, 2.5f);
+        LatencyProfile read = read(write(profile));
+
+        assertEquals(1234L, read.getSavedAtMillis());
+        assertArrayEquals(new int[]{40_000, 42_000, 45_000}, read.getRecentRttMicros());
+        assertEquals(42_000, read.getMedianRttMicros());
+        assertEquals(90_000, read.getP99RttMicros());
+        assertEquals(2.5f, read.getJitterMillis(), 0);
+        assertEquals(42, read.getMedianRttMillis(), 1e-9);
+    }
+
+    @Test
+    void acceptsTheLimits() throws IOException {
+        int max = LatencyProfile.MAX_RTT_MICROS;
+        int[] samples = new int[LatencyProfile.MAX_RECENT_SAMPLES];
+        LatencyProfile read = read(profileBytes(1, 0, max, LatencyProfile.MAX_RTT_MICROS / 1000f, samples));
+        assertEquals(LatencyProfile.MAX_RECENT_SAMPLES, read.getRecentRttMicros().length);
+    }
+
+    @Test
+    void rejectsOutOfRangeRoundTripTimes() {
+        int tooLong = LatencyProfile.MAX_RTT_MICROS + 1;
+        assertThrows(IOException.class, () -> read(profileBytes(1, -1, 0, 0, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, tooLong, 0, 0, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, -1, 0, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, tooLong, 0, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, 0, new int[]{40_000, -5})));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, 0, new int[]{tooLong})));
+    }
+
+    @Test
+    void rejectsOutOfRangeJitter() {
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, Float.NaN, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, -1f, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, Float.POSITIVE_INFINITY, new int[0])));
+    }
+
+    @Test
+    void rejectsMalformedProfiles() {
+        assertThrows(IOException.class, () -> read(profileBytes(2, 0, 0, 0, new int[0])));
+        assertThrows(IOException.class, () -> read(profileBytes(1, 0, 0, 0, new int[LatencyProfile.MAX_RECENT_SAMPLES + 1])));
+        // Cut off in the middle of the samples
+        byte[] truncated = profileBytes(1, 0, 0, 0, new int[]{40_000, 41_000});
+        byte[] cut = new byte[truncated.length - 2];
+        System.arraycopy(truncated, 0, cut, 0, cut.length);
+        assertThrows(IOException.class, () -> read(cut));
+    }
+
+    @Test
+    void constructorRejectsTooManySamples() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LatencyProfile(0, new int[LatencyProfile.MAX_RECENT_SAMPLES + 1], 0, 0, 0));
+    }
+
+    private static byte[] write(LatencyProfile profile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        profile.write(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+    private static LatencyProfile read(byte[] bytes) throws IOException {
+        return LatencyProfile.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    // Written by hand, the constructor would not let most of these through
+    private static byte[] profileBytes(int version, int medianRttMicros, int p99RttMicros, float jitterMillis, int[] samples) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(version);
+            out.writeLong(0);
+            out.writeInt(medianRttMicros);
+            out.writeInt(p99RttMicros);
+            out.writeFloat(jitterMillis);
+            out.writeByte(samples.length);
+            for (int sample : samples)
+                out.writeInt(sample);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package me.caseload.knockbacksync.manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientBrandManagerTest {
+
+    // The manager is static, every connection a test opens is closed again after it
+    private final List<Object> connections = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        connections.forEach(ClientBrandManager::removeBrand);
+        assertTrue(ClientBrandManager.getPlayerCounts().isEmpty());
+    }
+
+    @Test
+    void keepsTheFirstBrandOfAConnection() {
+        Object connection = connect("vanilla");
+        ClientBrandManager.setBrand(connection, "fabric");
+
+        assertEquals("vanilla", ClientBrandManager.getBrand(connection));
+        assertEquals(1, (int) ClientBrandManager.getPlayerCounts().get("vanilla"));
+        assertFalse(ClientBrandManager.getPlayerCounts().containsKey("fabric"));
+    }
+
+    @Test
+    void connectionsShareABrandUntilTheLastOneCloses() {
+        Object first = connect("fabric");
+        Object second = connect(new String("fabric"));
+
+        assertSame(ClientBrandManager.getBrand(first), ClientBrandManager.getBrand(second));
+        assertEquals(2, (int) ClientBrandManager.getPlayerCounts().get("fabric"));
+
+        ClientBrandManager.removeBrand(first);
+        assertNull(ClientBrandManager.getBrand(first));
+        assertEquals(1, (int) ClientBrandManager.getPlayerCounts().get("fabric"));
+
+        ClientBrandManager.removeBrand(second);
+        assertFalse(ClientBrandManager.getPlayerCounts().containsKey("fabric"));
+    }
+
+    @Test
+    void closingAnOldConnectionKeepsTheBrandOfTheNewOne() {
+        // A player reconnecting before their old connection is closed
+        Object old = connect("vanilla");
+        Object reconnected = connect("fabric");
+
+        ClientBrandManager.removeBrand(old);
+        assertEquals("fabric", ClientBrandManager.getBrand(reconnected));
+        assertFalse(ClientBrandManager.getPlayerCounts().containsKey("vanilla"));
+    }
+
+    @Test
+    void brandsPastTheLimitCountAsOther() {
+        for (int i = 0; i < 64; i++)
+            connect("client-" + i);
+
+        Object extra = connect("one-too-many");
+        assertEquals(ClientBrandManager.OTHER, ClientBrandManager.getBrand(extra));
+        // Brands already in use are still counted as themselves
+        assertEquals("client-0", ClientBrandManager.getBrand(connect("client-0")));
+
+        Map<String, Integer> counts = ClientBrandManager.getPlayerCounts();
+        assertEquals(65, counts.size());
+        assertEquals(1, (int) counts.get(ClientBrandManager.OTHER));
+        assertEquals(2, (int) counts.get("client-0"));
+    }
+
+    @Test
+    void closedConnectionsFreeRoomForNewBrands() {
+        List<Object> clients = new ArrayList<>();
+        for (int i = 0; i < 64; i++)
+            clients.add(connect("client-" + i));
+
+        ClientBrandManager.removeBrand(clients.get(0));
+        assertEquals("newcomer", ClientBrandManager.getBrand(connect("newcomer")));
+    }
+
+    private Object connect(String brand) {
+        Object connection = new Object();
+        connections.add(connection);
+        ClientBrandManager.setBrand(connection, brand);
+        return connection;
+    }
+}
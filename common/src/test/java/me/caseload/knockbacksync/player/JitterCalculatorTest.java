@@ -0,0 +1,85 @@
+package me.caseload.knockbacksync.player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JitterCalculatorTest {
+
+    @Test
+    void keepsTheLatestFifteenSamplesOldestFirst() {
+        JitterCalculator calculator = new JitterCalculator();
+        for (long ping = 1; ping <= 20; ping++)
+            calculator.addPing(ping);
+
+        long[] expected = new long[15];
+        for (int i = 0; i < expected.length; i++)
+            expected[i] = 6 + i;
+        assertArrayEquals(expected, calculator.getSamples());
+    }
+
+    @Test
+    void noJitterWithoutVariation() {
+        JitterCalculator calculator = new JitterCalculator();
+        assertEquals(0, calculator.calculateJitter());
+        calculator.addPing(50_000_000L);
+        assertEquals(0, calculator.calculateJitter());
+
+        for (int i = 0; i < 15; i++)
+            calculator.addPing(50_000_000L);
+        assertEquals(0, calculator.calculateJitter());
+    }
+
+    @Test
+    void jitterIsTheStandardDeviationInMillis() {
+        JitterCalculator calculator = new JitterCalculator();
+        for (int i = 0; i < 8; i++) {
+            calculator.addPing(40_000_000L);
+            calculator.addPing(60_000_000L);
+        }
+        // The last 15 samples: eight of 60ms and seven of 40ms
+        double mean = (8 * 60 + 7 * 40) / 15.0;
+        double expected = Math.sqrt((8 * Math.pow(60 - mean, 2) + 7 * Math.pow(40 - mean, 2)) / 15);
+        assertEquals(expected, calculator.calculateJitter(), 1e-9);
+    }
+
+    @Test
+    void readersSeeConsistentSamplesWhileWritten() throws InterruptedException {
+        JitterCalculator calculator = new JitterCalculator();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        long[] samples = calculator.getSamples();
+                        assertTrue(samples.length <= 15, "More than 15 samples");
+                        // Written in increasing order by one thread, a snapshot must be a run without gaps
+                        for (int j = 1; j < samples.length; j++)
+                            assertEquals(samples[j - 1] + 1, samples[j], "Samples out of order");
+                        assertTrue(calculator.calculateJitter() >= 0);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            }, "Jitter reader " + i);
+            readers.add(reader);
+            reader.start();
+        }
+
+        for (long ping = 1; ping <= 200_000; ping++)
+            calculator.addPing(ping);
+
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+        assertNull(failure.get());
+    }
+}
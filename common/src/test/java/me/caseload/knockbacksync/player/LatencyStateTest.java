@@ -0,0 +1,34 @@
+package me.caseload.knockbacksync.player;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyStateTest {
+
+    @Test
+    void unmeasuredHasNoPing() {
+        assertFalse(LatencyState.UNMEASURED.isMeasured());
+        assertTrue(Double.isNaN(LatencyState.UNMEASURED.getPing()));
+        assertTrue(Double.isNaN(LatencyState.UNMEASURED.getPreviousPing()));
+    }
+
+    @Test
+    void sampleMovesPingToPrevious() {
+        LatencyState first = LatencyState.UNMEASURED.withSample(40, 1, 41, 2, 100);
+        assertTrue(first.isMeasured());
+        assertEquals(40, first.getPing());
+        assertTrue(Double.isNaN(first.getPreviousPing()));
+
+        LatencyState second = first.withSample(60, 3, 45, 4, 200);
+        assertEquals(60, second.getPing());
+        assertEquals(40, second.getPreviousPing());
+        assertEquals(3, second.getJitter());
+        assertEquals(45, second.getEstimatedPing());
+        assertEquals(4, second.getEstimatedDeviation());
+        assertEquals(200, second.getSampleNanos());
+
+        // Immutable, the old state is unchanged
+        assertEquals(40, first.getPing());
+    }
+}
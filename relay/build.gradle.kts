@@ -0,0 +1,16 @@
+plugins {
+    application
+}
+
+base {
+    archivesName.set("${rootProject.property("archives_base_name")}-relay")
+}
+
+application {
+    mainClass.set("me.caseload.knockbacksync.relay.HandoffRelay")
+}
+
+dependencies {
+    // Only for the frame format shared with RelayHandoffTransport
+    implementation(project(":common"))
+}
@@ -0,0 +1,80 @@
+package me.caseload.knockbacksync.relay;
+
+import me.caseload.knockbacksync.handoff.RelayFrames;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.logging.Logger;
+
+/**
+ * A stand-in for the proxy when testing the latency hand-off on one machine: every payload a backend sends is
+ * forwarded to every other connected backend. Only listens on the loopback address.
+ * <p>
+ * Run it with {@code ./gradlew :relay:run --args="[port]"} and set {@code proxy_handoff.transport} to RELAY on
+ * each backend.
+ */
+public class HandoffRelay {
+
+    private static final Logger LOGGER = Logger.getLogger("KnockbackSync-HandoffRelay");
+
+    private final Set<DataOutputStream> backends = new CopyOnWriteArraySet<>();
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 25590;
+        new HandoffRelay().run(port);
+    }
+
+    public void run(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            LOGGER.info("Hand-off relay listening on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                Thread thread = new Thread(() -> serve(socket), "HandoffRelay-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        DataOutputStream out;
+        try {
+            out = new DataOutputStream(socket.getOutputStream());
+        } catch (IOException e) {
+            return;
+        }
+
+        backends.add(out);
+        LOGGER.info("Backend connected from " + socket.getRemoteSocketAddress() + ", " + backends.size() + " connected");
+        try (Socket ignored = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                byte[] payload = RelayFrames.readFrame(in);
+                for (DataOutputStream backend : backends) {
+                    if (backend == out)
+                        continue;
+                    try {
+                        synchronized (backend) {
+                            RelayFrames.writeFrame(backend, payload);
+                        }
+                    } catch (IOException e) {
+                        backends.remove(backend);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Backend disconnected
+        } finally {
+            backends.remove(out);
+            LOGGER.info("Backend " + socket.getRemoteSocketAddress() + " disconnected, " + backends.size() + " connected");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+plugins {
+    application
+}
+
+base {
+    archivesName.set("${rootProject.property("archives_base_name")}-replay")
+}
+
+application {
+    mainClass.set("me.caseload.knockbacksync.replay.ReplayMain")
+}
+
+dependencies {
+    implementation(project(":common"))
+
+    // Provided by the server for the plugin, but the replay tool runs standalone
+    implementation("com.github.retrooper:packetevents-api:2.8.1-SNAPSHOT")
+
+    compileOnly("org.projectlombok:lombok:1.18.38")
+    annotationProcessor("org.projectlombok:lombok:1.18.38")
+}
@@ -0,0 +1,66 @@
+package me.caseload.knockbacksync.replay;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+
+/**
+ * What the plugin did with one velocity: either adjusted its Y to a value, or skipped it for a reason.
+ */
+@Getter
+public final class Decision {
+
+    private static final double EPSILON = 1e-9;
+
+    @Nullable private final SkipReason skipReason;
+    private final double velocityY;
+
+    private Decision(@Nullable SkipReason skipReason, double velocityY) {
+        this.skipReason = skipReason;
+        this.velocityY = velocityY;
+    }
+
+    public static Decision adjusted(double velocityY) {
+        return new Decision(null, velocityY);
+    }
+
+    public static Decision skipped(SkipReason skipReason) {
+        return new Decision(skipReason, Double.NaN);
+    }
+
+    /**
+     * @param token A skip reason name, or the adjusted velocity Y.
+     * @throws IllegalArgumentException if the token is neither.
+     */
+    public static Decision parse(String token) {
+        try {
+            return adjusted(Double.parseDouble(token));
+        } catch (NumberFormatException e) {
+            return skipped(SkipReason.valueOf(token.toUpperCase(Locale.ROOT)));
+        }
+    }
+
+    public boolean isAdjusted() {
+        return skipReason == null;
+    }
+
+    public boolean matches(Decision other) {
+        return matches(other, EPSILON);
+    }
+
+    /**
+     * @param tolerance How far apart adjusted velocities may be.
+     */
+    public boolean matches(Decision other, double tolerance) {
+        if (isAdjusted() != other.isAdjusted())
+            return false;
+        return isAdjusted() ? Math.abs(velocityY - other.velocityY) <= tolerance : skipReason == other.skipReason;
+    }
+
+    @Override
+    public String toString() {
+        return isAdjusted() ? Double.toString(velocityY) : skipReason.name();
+    }
+}
@@ -0,0 +1,117 @@
+package me.caseload.knockbacksync.replay;
+
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.latency.LatencyEstimator;
+import me.caseload.knockbacksync.latency.LatencyEstimatorType;
+import me.caseload.knockbacksync.recorder.RecordType;
+import me.caseload.knockbacksync.recorder.SessionRecordingReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs recorded ping traces through every {@link LatencyEstimatorType}. Before each sample the estimate is what
+ * knockback would have been compensated for, so its distance to the sample is the compensation error.
+ * Also measures what each estimator costs per sample.
+ */
+final class EstimatorComparison {
+
+    private final List<double[]> traces;
+
+    private EstimatorComparison(List<double[]> traces) {
+        this.traces = traces;
+    }
+
+    static EstimatorComparison of(ReplayFile file) {
+        List<List<Double>> samples = new ArrayList<>();
+        for (int i = 0; i < file.getPlayerNames().size(); i++)
+            samples.add(new ArrayList<>());
+        for (ReplayFile.Entry entry : file.getEntries()) {
+            if (entry instanceof ReplayFile.PingEntry) {
+                ReplayFile.PingEntry ping = (ReplayFile.PingEntry) entry;
+                samples.get(ping.player).add(ping.rttMillis);
+            }
+        }
+        return new EstimatorComparison(toArrays(samples));
+    }
+
+    /**
+     * Reads the probes of a session recording, one trace per player.
+     */
+    static EstimatorComparison of(Path recording) throws IOException {
+        Map<UUID, List<Double>> samples = new LinkedHashMap<>();
+        try (SessionRecordingReader reader = new SessionRecordingReader(recording)) {
+            while (reader.next()) {
+                if (reader.getType() == RecordType.PROBE)
+                    samples.computeIfAbsent(reader.getUuid(), uuid -> new ArrayList<>()).add(reader.getValue(0));
+            }
+        }
+        return new EstimatorComparison(toArrays(samples.values()));
+    }
+
+    void report(KbSyncSettings settings, int iterations) {
+        int sampleCount = traces.stream().mapToInt(trace -> trace.length).sum();
+        System.out.println("Comparing latency estimators on " + traces.size() + " ping traces, " + sampleCount + " samples");
+        if (sampleCount == 0)
+            return;
+
+        System.out.printf("  %-16s %10s %10s %10s %10s %12s%n", "estimator", "estimates", "mean err", "p95 err", "max err", "ns/sample");
+        for (LatencyEstimatorType type : LatencyEstimatorType.values()) {
+            double[] errors = new double[sampleCount];
+            int estimates = 0;
+            for (double[] trace : traces) {
+                LatencyEstimator estimator = type.create(settings);
+                for (double sample : trace) {
+                    double estimate = estimator.getEstimateMillis();
+                    if (!Double.isNaN(estimate))
+                        errors[estimates++] = Math.abs(estimate - sample);
+                    estimator.addSample(sample);
+                }
+            }
+
+            double[] sorted = Arrays.copyOf(errors, estimates);
+            Arrays.sort(sorted);
+            double mean = estimates == 0 ? Double.NaN : Arrays.stream(sorted).sum() / estimates;
+            double p95 = estimates == 0 ? Double.NaN : sorted[Math.min(estimates - 1, (int) Math.ceil(estimates * 0.95) - 1)];
+            double max = estimates == 0 ? Double.NaN : sorted[estimates - 1];
+            System.out.printf("  %-16s %10d %10.3f %10.3f %10.3f %12.1f%n", type.name(), estimates, mean, p95, max,
+                    nanosPerSample(type, settings, Math.max(iterations, 1), sampleCount));
+        }
+        System.out.println("Errors are in ms, between the estimate before each sample and the sample itself");
+    }
+
+    private double nanosPerSample(LatencyEstimatorType type, KbSyncSettings settings, int iterations, int sampleCount) {
+        double sink = 0;
+        long elapsed = 0;
+        // The first round only warms up
+        for (int round = 0; round <= iterations; round++) {
+            long start = System.nanoTime();
+            for (double[] trace : traces) {
+                LatencyEstimator estimator = type.create(settings);
+                for (double sample : trace)
+                    estimator.addSample(sample);
+                sink += estimator.getEstimateMillis();
+            }
+            if (round > 0)
+                elapsed += System.nanoTime() - start;
+        }
+        if (sink == 42) // Keeps the loop from being optimized away
+            System.out.print("");
+        return (double) elapsed / ((long) iterations * sampleCount);
+    }
+
+    private static List<double[]> toArrays(Iterable<List<Double>> samples) {
+        List<double[]> traces = new ArrayList<>();
+        for (List<Double> trace : samples) {
+            if (!trace.isEmpty())
+                traces.add(trace.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+        return traces;
+    }
+}
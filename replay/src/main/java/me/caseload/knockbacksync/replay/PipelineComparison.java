@@ -0,0 +1,67 @@
+package me.caseload.knockbacksync.replay;
+
+import me.caseload.knockbacksync.listener.KnockbackPipeline;
+
+import java.util.List;
+
+/**
+ * Replays a file through both {@link KnockbackPipeline}s, reports every velocity they decide differently and
+ * measures what each costs the main thread and the Netty threads per knockback.
+ */
+final class PipelineComparison {
+
+    private static final int MAX_PRINTED_DIFFERENCES = 20;
+    // Both pipelines' velocities are sent at this resolution, closer than that they are the same knockback
+    private static final double PACKET_RESOLUTION = 1 / 8000.0;
+
+    private final ReplayBase base;
+    private final ReplayFile file;
+
+    PipelineComparison(ReplayBase base, ReplayFile file) {
+        this.base = base;
+        this.file = file;
+    }
+
+    void report(int iterations) {
+        Replayer eventReplayer = new Replayer(base, file, KnockbackPipeline.EVENT);
+        Replayer packetReplayer = new Replayer(base, file, KnockbackPipeline.PACKET);
+        Decision[] eventDecisions = eventReplayer.run();
+        Decision[] packetDecisions = packetReplayer.run();
+
+        List<ReplayFile.VelocityEntry> entries = file.getVelocityEntries();
+        System.out.println("Comparing knockback pipelines on " + entries.size() + " velocities");
+        int differences = 0;
+        int unprepared = 0;
+        for (ReplayFile.VelocityEntry entry : entries) {
+            Decision eventDecision = eventDecisions[entry.index];
+            Decision packetDecision = packetDecisions[entry.index];
+            if (packetDecision == null) {
+                unprepared++;
+            } else if (!eventDecision.matches(packetDecision, PACKET_RESOLUTION)) {
+                if (differences++ < MAX_PRINTED_DIFFERENCES)
+                    System.out.println("  Line " + (entry.line + 1) + ": EVENT " + eventDecision + ", PACKET " + packetDecision);
+            }
+        }
+        if (differences > MAX_PRINTED_DIFFERENCES)
+            System.out.println("  ... and " + (differences - MAX_PRINTED_DIFFERENCES) + " more");
+        System.out.println("  " + differences + " decided differently, " + unprepared + " had no hit before them and were left alone by PACKET");
+
+        if (iterations <= 0 || entries.isEmpty())
+            return;
+
+        System.out.printf("  %-8s %16s %16s%n", "pipeline", "main ns/kb", "netty ns/kb");
+        for (Replayer replayer : new Replayer[]{eventReplayer, packetReplayer}) {
+            long mainThreadNanos = 0;
+            long nettyThreadNanos = 0;
+            for (int i = 0; i < iterations; i++) {
+                replayer.run();
+                mainThreadNanos += replayer.getMainThreadNanos();
+                nettyThreadNanos += replayer.getNettyThreadNanos();
+            }
+            long knockbacks = (long) entries.size() * iterations;
+            System.out.printf("  %-8s %16.1f %16.1f%n", replayer == eventReplayer ? "EVENT" : "PACKET",
+                    (double) mainThreadNanos / knockbacks, (double) nettyThreadNanos / knockbacks);
+        }
+        System.out.println("  Main thread time includes the damage listener, EVENT also sends a second velocity update per adjusted hit");
+    }
+}
@@ -0,0 +1,136 @@
+package me.caseload.knockbacksync.replay;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.Base;
+import me.caseload.knockbacksync.Platform;
+import me.caseload.knockbacksync.event.Event;
+import me.caseload.knockbacksync.manager.ConfigManager;
+import me.caseload.knockbacksync.permission.PermissionChecker;
+import me.caseload.knockbacksync.player.PlatformPlayer;
+import me.caseload.knockbacksync.sender.Sender;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the common plugin code without a server. There is no packetevents instance, no commands and no
+ * platform listeners, {@link Replayer} calls the listeners directly.
+ */
+public class ReplayBase extends Base {
+
+    private final Logger logger = Logger.getLogger("KnockbackSync-Replay");
+    private final File dataFolder;
+    private final float tickRate;
+    @Getter private final ReplayScheduler replayScheduler = new ReplayScheduler();
+    @Getter private final ReplayServer replayServer = new ReplayServer();
+
+    private final PermissionChecker permissionChecker = new PermissionChecker() {
+        @Override
+        public boolean hasPermission(Object nativeType, String s, boolean defaultIfUnset) {
+            return defaultIfUnset;
+        }
+
+        @Override
+        public boolean hasPermission(Sender source, String s, boolean defaultIfUnset) {
+            return defaultIfUnset;
+        }
+
+        @Override
+        public boolean hasPermission(PlatformPlayer platform, String s) {
+            return true;
+        }
+    };
+
+    public ReplayBase(File dataFolder, float tickRate) {
+        super(Platform.HEADLESS);
+        this.dataFolder = dataFolder;
+        this.tickRate = tickRate;
+        super.platformServer = replayServer;
+        super.configManager = new ConfigManager();
+    }
+
+    @Override
+    public Logger getLogger() {
+        return logger;
+    }
+
+    @Override
+    public File getDataFolder() {
+        return dataFolder;
+    }
+
+    @Override
+    public InputStream getResource(String filename) {
+        return getClass().getClassLoader().getResourceAsStream(filename);
+    }
+
+    @Override
+    public void load() {
+    }
+
+    @Override
+    public void enable() {
+        LOGGER = getLogger();
+        saveDefaultConfig();
+        initializeScheduler();
+        configManager.loadConfig(false);
+        Event.setEventBus(eventBus);
+        updateTickRate(tickRate);
+    }
+
+    @Override
+    public void initializeScheduler() {
+        scheduler = replayScheduler;
+    }
+
+    @Override
+    protected void registerPlatformListeners() {
+    }
+
+    @Override
+    protected String getVersion() {
+        String version = getClass().getPackage().getImplementationVersion();
+        return version != null ? version : "unknown";
+    }
+
+    @Override
+    public void saveDefaultConfig() {
+        File configFile = new File(dataFolder, "config.yml");
+        if (configFile.exists())
+            return;
+
+        try (InputStream in = getResource("config.yml")) {
+            if (in == null)
+                throw new IllegalStateException("config.yml is missing from the classpath");
+            Files.createDirectories(dataFolder.toPath());
+            Files.copy(in, configFile.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the default config.yml", e);
+        }
+    }
+
+    @Override
+    public PermissionChecker getPermissionChecker() {
+        return permissionChecker;
+    }
+
+    @Override
+    public URL getJarURL() {
+        return getClass().getProtectionDomain().getCodeSource().getLocation();
+    }
+
+    @Override
+    public void restartServer() {
+        LOGGER.info("Ignoring a server restart, there is no server to restart");
+    }
+
+    @Override
+    public boolean hasRestartScript() {
+        return false;
+    }
+}
@@ -0,0 +1,272 @@
+package me.caseload.knockbacksync.replay;
+
+import com.github.retrooper.packetevents.protocol.world.states.type.StateType;
+import com.github.retrooper.packetevents.protocol.world.states.type.StateTypes;
+import com.github.retrooper.packetevents.util.Vector3d;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A recorded fight. Plain text, one entry per line, fields separated by whitespace, {@code #} starts a comment.
+ * <pre>
+ * floor &lt;y&gt;                                   Top of the solid ground, 0 if omitted
+ * block &lt;x&gt; &lt;y&gt; &lt;z&gt; &lt;type&gt;                   Places a block, e.g. block 2 1 0 water
+ * player &lt;name&gt; [uuid]                         Declares a player, before any entry that uses it
+ * tick &lt;tick&gt;                                  Advances time, running any task that became due
+ * ping &lt;player&gt; &lt;rtt ms&gt;                       A matched ping probe
+ * move &lt;player&gt; &lt;x&gt; &lt;y&gt; &lt;z&gt; &lt;vx&gt; &lt;vy&gt; &lt;vz&gt; &lt;on ground&gt;
+ * hit &lt;victim&gt; &lt;attacker&gt; &lt;sprinting&gt; &lt;attack cooldown&gt; &lt;knockback level&gt; &lt;no damage ticks&gt;
+ * velocity &lt;player&gt; &lt;vx&gt; &lt;vy&gt; &lt;vz&gt; [expected]   The knockback the server is about to apply
+ * </pre>
+ * The optional expectation of a velocity entry is either the adjusted velocity Y or the name of the
+ * {@link me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason} it was left alone for.
+ */
+@Getter
+public class ReplayFile {
+
+    private final List<String> lines;
+    private final int floorY;
+    private final List<BlockEntry> blocks;
+    private final List<String> playerNames;
+    private final List<UUID> playerIds;
+    private final List<Entry> entries;
+    private final List<VelocityEntry> velocityEntries;
+
+    private ReplayFile(List<String> lines, int floorY, List<BlockEntry> blocks, List<String> playerNames,
+                       List<UUID> playerIds, List<Entry> entries, List<VelocityEntry> velocityEntries) {
+        this.lines = lines;
+        this.floorY = floorY;
+        this.blocks = blocks;
+        this.playerNames = playerNames;
+        this.playerIds = playerIds;
+        this.entries = entries;
+        this.velocityEntries = velocityEntries;
+    }
+
+    public static ReplayFile read(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        int floorY = 0;
+        List<BlockEntry> blocks = new ArrayList<>();
+        List<String> playerNames = new ArrayList<>();
+        List<UUID> playerIds = new ArrayList<>();
+        Map<String, Integer> playerIndexes = new HashMap<>();
+        List<Entry> entries = new ArrayList<>();
+        List<VelocityEntry> velocityEntries = new ArrayList<>();
+
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (fields[0].isEmpty())
+                continue;
+
+            try {
+                switch (fields[0].toLowerCase(Locale.ROOT)) {
+                    case "floor":
+                        expect(fields, 2);
+                        floorY = Integer.parseInt(fields[1]);
+                        break;
+                    case "block":
+                        expect(fields, 5);
+                        StateType type = StateTypes.getByName(fields[4].toLowerCase(Locale.ROOT));
+                        if (type == null)
+                            throw new IllegalArgumentException("Unknown block type " + fields[4]);
+                        blocks.add(new BlockEntry(Integer.parseInt(fields[1]), Integer.parseInt(fields[2]), Integer.parseInt(fields[3]), type));
+                        break;
+                    case "player":
+                        if (fields.length != 2 && fields.length != 3)
+                            throw new IllegalArgumentException("Expected player <name> [uuid]");
+                        if (playerIndexes.containsKey(fields[1]))
+                            throw new IllegalArgumentException("Player " + fields[1] + " is declared twice");
+                        playerIndexes.put(fields[1], playerNames.size());
+                        playerNames.add(fields[1]);
+                        playerIds.add(fields.length == 3 ? UUID.fromString(fields[2])
+                                : UUID.nameUUIDFromBytes(("OfflinePlayer:" + fields[1]).getBytes(StandardCharsets.UTF_8)));
+                        break;
+                    case "tick":
+                        expect(fields, 2);
+                        entries.add(new TickEntry(Long.parseLong(fields[1])));
+                        break;
+                    case "ping":
+                        expect(fields, 3);
+                        entries.add(new PingEntry(player(playerIndexes, fields[1]), Double.parseDouble(fields[2])));
+                        break;
+                    case "move":
+                        expect(fields, 9);
+                        entries.add(new MoveEntry(player(playerIndexes, fields[1]), vector(fields, 2), vector(fields, 5),
+                                Boolean.parseBoolean(fields[8])));
+                        break;
+                    case "hit":
+                        expect(fields, 7);
+                        entries.add(new HitEntry(player(playerIndexes, fields[1]), player(playerIndexes, fields[2]),
+                                Boolean.parseBoolean(fields[3]), Double.parseDouble(fields[4]), Integer.parseInt(fields[5]),
+                                Integer.parseInt(fields[6])));
+                        break;
+                    case "velocity":
+                        if (fields.length != 5 && fields.length != 6)
+                            throw new IllegalArgumentException("Expected velocity <player> <vx> <vy> <vz> [expected]");
+                        VelocityEntry velocity = new VelocityEntry(velocityEntries.size(), i, player(playerIndexes, fields[1]),
+                                vector(fields, 2), fields.length == 6 ? Decision.parse(fields[5]) : null);
+                        entries.add(velocity);
+                        velocityEntries.add(velocity);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown entry " + fields[0]);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(path + ":" + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new ReplayFile(lines, floorY, blocks, playerNames, playerIds, entries, velocityEntries);
+    }
+
+    /**
+     * Writes this file back out with the given decisions as the expectations of its velocity entries.
+     */
+    public void writeWithExpectations(Path path, Decision[] decisions) throws IOException {
+        List<String> output = new ArrayList<>(lines);
+        for (VelocityEntry entry : velocityEntries) {
+            String line = output.get(entry.line);
+            int comment = line.indexOf('#');
+            String[] fields = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < 5; i++)
+                builder.append(fields[i]).append(' ');
+            builder.append(decisions[entry.index]);
+            if (comment >= 0)
+                builder.append(' ').append(line.substring(comment));
+            output.set(entry.line, builder.toString());
+        }
+        Files.write(path, output, StandardCharsets.UTF_8);
+    }
+
+    private static void expect(String[] fields, int count) {
+        if (fields.length != count)
+            throw new IllegalArgumentException("Expected " + (count - 1) + " values after " + fields[0] + ", found " + (fields.length - 1));
+    }
+
+    private static int player(Map<String, Integer> playerIndexes, String name) {
+        Integer index = playerIndexes.get(name);
+        if (index == null)
+            throw new IllegalArgumentException("Player " + name + " is used before it is declared");
+        return index;
+    }
+
+    private static Vector3d vector(String[] fields, int offset) {
+        return new Vector3d(Double.parseDouble(fields[offset]), Double.parseDouble(fields[offset + 1]), Double.parseDouble(fields[offset + 2]));
+    }
+
+    @Getter
+    public static final class BlockEntry {
+        private final int x, y, z;
+        private final StateType type;
+
+        BlockEntry(int x, int y, int z, StateType type) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.type = type;
+        }
+    }
+
+    abstract static class Entry {
+        abstract void apply(Replayer replayer);
+    }
+
+    static final class TickEntry extends Entry {
+        final long tick;
+
+        TickEntry(long tick) {
+            this.tick = tick;
+        }
+
+        @Override
+        void apply(Replayer replayer) {
+            replayer.advanceTo(tick);
+        }
+    }
+
+    static final class PingEntry extends Entry {
+        final int player;
+        final double rttMillis;
+
+        PingEntry(int player, double rttMillis) {
+            this.player = player;
+            this.rttMillis = rttMillis;
+        }
+
+        @Override
+        void apply(Replayer replayer) {
+            replayer.ping(player, rttMillis);
+        }
+    }
+
+    static final class MoveEntry extends Entry {
+        final int player;
+        final Vector3d position, velocity;
+        final boolean onGround;
+
+        MoveEntry(int player, Vector3d position, Vector3d velocity, boolean onGround) {
+            this.player = player;
+            this.position = position;
+            this.velocity = velocity;
+            this.onGround = onGround;
+        }
+
+        @Override
+        void apply(Replayer replayer) {
+            replayer.move(player, position, velocity, onGround);
+        }
+    }
+
+    static final class HitEntry extends Entry {
+        final int victim, attacker;
+        final boolean sprinting;
+        final double attackCooldown;
+        final int knockbackLevel, noDamageTicks;
+
+        HitEntry(int victim, int attacker, boolean sprinting, double attackCooldown, int knockbackLevel, int noDamageTicks) {
+            this.victim = victim;
+            this.attacker = attacker;
+            this.sprinting = sprinting;
+            this.attackCooldown = attackCooldown;
+            this.knockbackLevel = knockbackLevel;
+            this.noDamageTicks = noDamageTicks;
+        }
+
+        @Override
+        void apply(Replayer replayer) {
+            replayer.hit(this);
+        }
+    }
+
+    static final class VelocityEntry extends Entry {
+        final int index, line, player;
+        final Vector3d velocity;
+        final Decision expected;
+
+        VelocityEntry(int index, int line, int player, Vector3d velocity, Decision expected) {
+            this.index = index;
+            this.line = line;
+            this.player = player;
+            this.velocity = velocity;
+            this.expected = expected;
+        }
+
+        @Override
+        void apply(Replayer replayer) {
+            replayer.velocity(index, player, velocity);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package me.caseload.knockbacksync.replay;
+
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replays a recorded fight through the knockback logic, reports every decision that differs from the
+ * expectations in the file and measures how many decisions per second the logic can make.
+ * <p>
+ * Exits with 1 if any decision differs, so it can gate changes to the knockback logic.
+ * <p>
+ * With {@code --compare-pipelines} it also replays the file through both knockback pipelines and compares their
+ * decisions and cost.
+ * <p>
+ * With {@code --compare-estimators} it also compares the latency estimators on the file's ping samples. Given a
+ * session recording ({@code .kbsrec}) instead, it only compares the estimators on the recorded probes.
+ */
+public class ReplayMain {
+
+    private static final int MAX_PRINTED_DIFFERENCES = 20;
+
+    public static void main(String[] args) throws IOException {
+        Path replayPath = null;
+        Path configPath = null;
+        Path expectationsPath = null;
+        int iterations = 10;
+        float tickRate = 20.0f;
+        boolean compareEstimators = false;
+        boolean comparePipelines = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--config":
+                    configPath = Paths.get(value(args, ++i));
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(value(args, ++i));
+                    break;
+                case "--tick-rate":
+                    tickRate = Float.parseFloat(value(args, ++i));
+                    break;
+                case "--compare-estimators":
+                    compareEstimators = true;
+                    break;
+                case "--compare-pipelines":
+                    comparePipelines = true;
+                    break;
+                case "--write-expectations":
+                    expectationsPath = Paths.get(value(args, ++i));
+                    break;
+                default:
+                    if (replayPath != null || args[i].startsWith("--"))
+                        usage();
+                    replayPath = Paths.get(args[i]);
+            }
+        }
+        if (replayPath == null)
+            usage();
+
+        // Always work on a copy, config migration may rewrite the file
+        File dataFolder = Files.createTempDirectory("knockbacksync-replay").toFile();
+        dataFolder.deleteOnExit();
+        if (configPath != null)
+            Files.copy(configPath, dataFolder.toPath().resolve("config.yml"), StandardCopyOption.REPLACE_EXISTING);
+        dataFolder.toPath().resolve("config.yml").toFile().deleteOnExit();
+
+        ReplayBase base = new ReplayBase(dataFolder, tickRate);
+        base.enable();
+
+        if (replayPath.getFileName().toString().endsWith(".kbsrec")) {
+            EstimatorComparison.of(replayPath).report(base.getConfigManager().getSettings(), iterations);
+            base.disable();
+            System.exit(0);
+        }
+
+        ReplayFile file = ReplayFile.read(replayPath);
+        Replayer replayer = new Replayer(base, file);
+        Decision[] decisions = replayer.run();
+
+        int differences = report(file, decisions);
+
+        if (iterations > 0 && decisions.length > 0) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                replayer.run();
+            long elapsed = System.nanoTime() - start;
+
+            long total = (long) decisions.length * iterations;
+            System.out.printf("Replayed %d knockback decisions in %.1f ms (%.0f decisions/s)%n",
+                    total, elapsed / 1_000_000.0, total / (elapsed / 1_000_000_000.0));
+        }
+
+        if (comparePipelines)
+            new PipelineComparison(base, file).report(iterations);
+
+        if (compareEstimators)
+            EstimatorComparison.of(file).report(base.getConfigManager().getSettings(), iterations);
+
+        if (expectationsPath != null) {
+            file.writeWithExpectations(expectationsPath, decisions);
+            System.out.println("Wrote the current decisions as expectations to " + expectationsPath);
+        }
+
+        base.disable();
+        System.exit(differences > 0 && expectationsPath == null ? 1 : 0);
+    }
+
+    private static int report(ReplayFile file, Decision[] decisions) {
+        int adjusted = 0;
+        Map<SkipReason, Integer> skipped = new EnumMap<>(SkipReason.class);
+        int differences = 0;
+        int unchecked = 0;
+
+        List<ReplayFile.VelocityEntry> entries = file.getVelocityEntries();
+        for (ReplayFile.VelocityEntry entry : entries) {
+            Decision decision = decisions[entry.index];
+            if (decision.isAdjusted())
+                adjusted++;
+            else
+                skipped.merge(decision.getSkipReason(), 1, Integer::sum);
+
+            if (entry.expected == null) {
+                unchecked++;
+            } else if (!entry.expected.matches(decision)) {
+                if (differences++ < MAX_PRINTED_DIFFERENCES)
+                    System.out.println("Line " + (entry.line + 1) + ": expected " + entry.expected + ", got " + decision);
+            }
+        }
+        if (differences > MAX_PRINTED_DIFFERENCES)
+            System.out.println("... and " + (differences - MAX_PRINTED_DIFFERENCES) + " more");
+
+        System.out.println(entries.size() + " knockback decisions: " + adjusted + " adjusted, " + skipped.values().stream().mapToInt(Integer::intValue).sum() + " skipped");
+        skipped.forEach((reason, count) -> System.out.println("  " + reason + ": " + count));
+        System.out.println(differences + " differ from the expectations, " + unchecked + " had no expectation");
+        return differences;
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length)
+            usage();
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println("Usage: replay <file> [--config <config.yml>] [--iterations <n>] [--tick-rate <tps>] [--write-expectations <file>] [--compare-estimators] [--compare-pipelines]");
+        System.err.println("       replay <recording.kbsrec> [--config <config.yml>] [--iterations <n>]");
+        System.exit(2);
+    }
+}
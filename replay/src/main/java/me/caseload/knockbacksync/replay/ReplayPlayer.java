@@ -0,0 +1,167 @@
+package me.caseload.knockbacksync.replay;
+
+import com.github.retrooper.packetevents.protocol.player.User;
+import com.github.retrooper.packetevents.protocol.world.BoundingBox;
+import com.github.retrooper.packetevents.util.Vector3d;
+import lombok.Getter;
+import lombok.Setter;
+import me.caseload.knockbacksync.player.PlatformPlayer;
+import me.caseload.knockbacksync.world.PlatformWorld;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A player whose whole state comes from the replay file. It has no connection, so {@link #getUser()} is null
+ * and the plugin never sends it packets.
+ */
+@Setter
+public class ReplayPlayer implements PlatformPlayer {
+
+    private static final double HALF_WIDTH = 0.3;
+    private static final double HEIGHT = 1.8;
+
+    private final UUID uuid;
+    private final String name;
+    private final PlatformWorld world;
+
+    private double x, y, z;
+    private boolean onGround;
+    private int ping;
+    private boolean gliding;
+    private boolean sprinting;
+    private double attackCooldown = 1.0;
+    private int mainHandKnockbackLevel;
+    @Nullable private Integer noDamageTicks;
+    @Getter @Setter(lombok.AccessLevel.NONE) private Vector3d velocity = new Vector3d(0, 0, 0);
+
+    /**
+     * The velocity the plugin set during the last knockback, null if it left it unchanged.
+     */
+    @Getter @Nullable private Vector3d adjustedVelocity;
+
+    public ReplayPlayer(UUID uuid, String name, PlatformWorld world) {
+        this.uuid = uuid;
+        this.name = name;
+        this.world = world;
+    }
+
+    public void setPosition(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Sets the velocity the server would have, without counting it as an adjustment by the plugin.
+     */
+    public void applyVelocity(Vector3d velocity) {
+        this.velocity = velocity;
+    }
+
+    @Override
+    public UUID getUUID() {
+        return uuid;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public double getX() {
+        return x;
+    }
+
+    @Override
+    public double getY() {
+        return y;
+    }
+
+    @Override
+    public double getZ() {
+        return z;
+    }
+
+    @Override
+    public float getPitch() {
+        return 0;
+    }
+
+    @Override
+    public float getYaw() {
+        return 0;
+    }
+
+    @Override
+    public boolean isOnGround() {
+        return onGround;
+    }
+
+    @Override
+    public int getPing() {
+        return ping;
+    }
+
+    @Override
+    public boolean isGliding() {
+        return gliding;
+    }
+
+    @Override
+    public PlatformWorld getWorld() {
+        return world;
+    }
+
+    @Override
+    public Vector3d getLocation() {
+        return new Vector3d(x, y, z);
+    }
+
+    @Override
+    public void sendMessage(@NotNull String s) {
+    }
+
+    @Override
+    public double getAttackCooldown() {
+        return attackCooldown;
+    }
+
+    @Override
+    public boolean isSprinting() {
+        return sprinting;
+    }
+
+    @Override
+    public int getMainHandKnockbackLevel() {
+        return mainHandKnockbackLevel;
+    }
+
+    @Override
+    public @Nullable Integer getNoDamageTicks() {
+        return noDamageTicks;
+    }
+
+    @Override
+    public void setVelocity(Vector3d adjustedVelocity) {
+        this.adjustedVelocity = adjustedVelocity;
+        this.velocity = adjustedVelocity;
+    }
+
+    @Override
+    public double getJumpPower() {
+        return 0.42;
+    }
+
+    @Override
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(x - HALF_WIDTH, y, z - HALF_WIDTH, x + HALF_WIDTH, y + HEIGHT, z + HALF_WIDTH);
+    }
+
+    @Override
+    public User getUser() {
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+package me.caseload.knockbacksync.replay;
+
+import lombok.Getter;
+import me.caseload.knockbacksync.scheduler.AbstractTaskHandle;
+import me.caseload.knockbacksync.scheduler.SchedulerAdapter;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Runs tasks in virtual time. Nothing runs until the replay advances the clock with {@link #advanceTo(long)},
+ * and "async" tasks run on the replay thread like every other task, so a replay is fully deterministic.
+ */
+public class ReplayScheduler implements SchedulerAdapter {
+
+    private static final long MILLIS_PER_TICK = 50;
+
+    private final PriorityQueue<ScheduledTask> queue = new PriorityQueue<>(
+            Comparator.comparingLong((ScheduledTask task) -> task.runAt).thenComparingLong(task -> task.sequence));
+    @Getter private long currentTick;
+    private long sequence;
+
+    @Override
+    public AbstractTaskHandle runTask(Runnable task) {
+        return schedule(task, 0, 0);
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskAsynchronously(Runnable task) {
+        return schedule(task, 0, 0);
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskLater(Runnable task, long delayTicks) {
+        return schedule(task, delayTicks, 0);
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskTimer(Runnable task, long delayTicks, long periodTicks) {
+        return schedule(task, delayTicks, Math.max(periodTicks, 1));
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskLaterAsynchronously(Runnable task, long delay) {
+        return schedule(task, delay, 0);
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskTimerAsynchronously(Runnable task, long delay, long period) {
+        return schedule(task, delay, Math.max(period, 1));
+    }
+
+    @Override
+    public AbstractTaskHandle runTaskTimerMillis(Runnable task, long delayMillis, long periodMillis, long jitterMillis) {
+        // Virtual time only has tick resolution and no jitter
+        return schedule(task, toTicks(delayMillis), Math.max(toTicks(periodMillis), 1));
+    }
+
+    @Override
+    public void shutdown() {
+        reset();
+    }
+
+    /**
+     * Runs every task due at or before the given tick, in order, then moves the clock to it.
+     */
+    public void advanceTo(long tick) {
+        ScheduledTask task;
+        while ((task = queue.peek()) != null && task.runAt <= tick) {
+            queue.poll();
+            if (task.cancelled)
+                continue;
+
+            currentTick = task.runAt;
+            task.runnable.run();
+            if (task.period > 0 && !task.cancelled) {
+                task.runAt += task.period;
+                task.sequence = sequence++;
+                queue.add(task);
+            }
+        }
+        currentTick = Math.max(currentTick, tick);
+    }
+
+    /**
+     * Drops every pending task and moves the clock back to 0.
+     */
+    public void reset() {
+        for (ScheduledTask task : queue)
+            task.cancelled = true;
+        queue.clear();
+        currentTick = 0;
+    }
+
+    private ScheduledTask schedule(Runnable runnable, long delay, long period) {
+        ScheduledTask task = new ScheduledTask(runnable, currentTick + Math.max(delay, 0), period, sequence++);
+        queue.add(task);
+        return task;
+    }
+
+    private static long toTicks(long millis) {
+        return (millis + MILLIS_PER_TICK - 1) / MILLIS_PER_TICK;
+    }
+
+    private static final class ScheduledTask implements AbstractTaskHandle {
+        final Runnable runnable;
+        final long period;
+        long runAt;
+        long sequence;
+        boolean cancelled;
+
+        ScheduledTask(Runnable runnable, long runAt, long period, long sequence) {
+            this.runnable = runnable;
+            this.runAt = runAt;
+            this.period = period;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public boolean getCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package me.caseload.knockbacksync.replay;
+
+import me.caseload.knockbacksync.player.PlatformPlayer;
+import me.caseload.knockbacksync.world.PlatformServer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+public class ReplayServer implements PlatformServer {
+
+    private final Map<UUID, PlatformPlayer> players = new LinkedHashMap<>();
+
+    public void addPlayer(PlatformPlayer player) {
+        players.put(player.getUUID(), player);
+    }
+
+    public void clear() {
+        players.clear();
+    }
+
+    @Override
+    public Collection<PlatformPlayer> getOnlinePlayers() {
+        return new ArrayList<>(players.values());
+    }
+
+    @Override
+    public PlatformPlayer getPlayer(UUID uuid) {
+        return players.get(uuid);
+    }
+}
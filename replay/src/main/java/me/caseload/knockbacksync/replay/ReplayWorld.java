@@ -0,0 +1,83 @@
+package me.caseload.knockbacksync.replay;
+
+import com.github.retrooper.packetevents.protocol.player.ClientVersion;
+import com.github.retrooper.packetevents.protocol.world.BlockFace;
+import com.github.retrooper.packetevents.protocol.world.states.WrappedBlockState;
+import com.github.retrooper.packetevents.protocol.world.states.type.StateType;
+import com.github.retrooper.packetevents.protocol.world.states.type.StateTypes;
+import com.github.retrooper.packetevents.util.Vector3d;
+import com.github.retrooper.packetevents.util.Vector3i;
+import me.caseload.knockbacksync.world.PlatformWorld;
+import me.caseload.knockbacksync.world.raytrace.FluidHandling;
+import me.caseload.knockbacksync.world.raytrace.RayTraceResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A flat world: solid ground up to and including {@code floorY}, air above it,
+ * plus any blocks placed explicitly by the replay file.
+ */
+public class ReplayWorld implements PlatformWorld {
+
+    // Block states are looked up without a running server, so pin the mappings to a version that has every type
+    private static final ClientVersion MAPPINGS_VERSION = ClientVersion.V_1_20_5;
+
+    private final Map<Long, WrappedBlockState> blocks = new HashMap<>();
+    private final Map<StateType, WrappedBlockState> defaultStates = new HashMap<>();
+    private final int floorY;
+
+    public ReplayWorld(int floorY) {
+        this.floorY = floorY;
+    }
+
+    public void setBlock(int x, int y, int z, StateType type) {
+        blocks.put(key(x, y, z), defaultState(type));
+    }
+
+    @Override
+    public WrappedBlockState getBlockStateAt(int x, int y, int z) {
+        WrappedBlockState state = blocks.get(key(x, y, z));
+        if (state != null)
+            return state;
+
+        return defaultState(y <= floorY ? StateTypes.STONE : StateTypes.AIR);
+    }
+
+    @Override
+    public WrappedBlockState getBlockStateAt(Vector3d loc) {
+        return getBlockStateAt((int) Math.floor(loc.getX()), (int) Math.floor(loc.getY()), (int) Math.floor(loc.getZ()));
+    }
+
+    /**
+     * Only traces straight down, which is all the plugin needs to measure the distance to the ground.
+     * Fluids and other blocks that are not solid are always passed through.
+     */
+    @Override
+    public RayTraceResult rayTraceBlocks(Vector3d start, Vector3d direction, double maxDistance, FluidHandling fluidHandling, boolean ignorePassableBlocks) {
+        if (direction.getX() != 0 || direction.getZ() != 0 || direction.getY() >= 0)
+            throw new UnsupportedOperationException("The replay world can only trace straight down");
+
+        int x = (int) Math.floor(start.getX());
+        int z = (int) Math.floor(start.getZ());
+        int bottom = (int) Math.floor(start.getY() - maxDistance);
+        for (int y = (int) Math.floor(start.getY()); y >= bottom; y--) {
+            WrappedBlockState state = getBlockStateAt(x, y, z);
+            if (!state.getType().isSolid())
+                continue;
+
+            Vector3d hitPosition = new Vector3d(start.getX(), Math.min(start.getY(), y + 1), start.getZ());
+            return new RayTraceResult(hitPosition, BlockFace.UP, new Vector3i(x, y, z), state);
+        }
+
+        return null;
+    }
+
+    private WrappedBlockState defaultState(StateType type) {
+        return defaultStates.computeIfAbsent(type, t -> WrappedBlockState.getDefaultState(MAPPINGS_VERSION, t));
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFF) << 38 | ((long) z & 0x3FFFFFF) << 12 | (y & 0xFFF);
+    }
+}
@@ -0,0 +1,166 @@
+package me.caseload.knockbacksync.replay;
+
+import com.github.retrooper.packetevents.util.Vector3d;
+import lombok.Getter;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.listener.KnockbackPipeline;
+import me.caseload.knockbacksync.listener.PlayerDamageListener;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.PreparedKnockback;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.util.UUID;
+
+/**
+ * Feeds a {@link ReplayFile} through the plugin's damage and knockback listeners.
+ * Every {@link #run()} starts from fresh players and a reset clock, so runs are independent and repeatable.
+ * <p>
+ * With the {@link KnockbackPipeline#PACKET} pipeline hits prepare the knockback and velocities go through the
+ * packet listener's half of the decision, seeing the velocity as the packet encodes it.
+ */
+public class Replayer {
+
+    private final ReplayBase base;
+    private final ReplayFile file;
+    private final ReplayWorld world;
+    private final KnockbackPipeline pipeline;
+    private final PlayerDamageListener damageListener = new PlayerDamageListener() {
+        @Override
+        protected boolean preparesKnockback(KbSyncSettings settings) {
+            return pipeline == KnockbackPipeline.PACKET;
+        }
+    };
+    private final PlayerKnockbackListener knockbackListener = new PlayerKnockbackListener() {};
+
+    private ReplayPlayer[] players;
+    private PlayerData[] playerData;
+    private Decision[] decisions;
+    // Time spent in the listeners during the last run, what the server's main thread and Netty threads would spend
+    @Getter private long mainThreadNanos;
+    @Getter private long nettyThreadNanos;
+
+    public Replayer(ReplayBase base, ReplayFile file) {
+        this(base, file, KnockbackPipeline.EVENT);
+    }
+
+    public Replayer(ReplayBase base, ReplayFile file, KnockbackPipeline pipeline) {
+        this.base = base;
+        this.file = file;
+        this.pipeline = pipeline;
+        this.world = new ReplayWorld(file.getFloorY());
+        for (ReplayFile.BlockEntry block : file.getBlocks())
+            world.setBlock(block.getX(), block.getY(), block.getZ(), block.getType());
+    }
+
+    /**
+     * @return The decision for every velocity entry, in file order. With the {@link KnockbackPipeline#PACKET}
+     * pipeline, null for velocities that no hit prepared, which the packet listener leaves alone.
+     */
+    public Decision[] run() {
+        mainThreadNanos = 0;
+        nettyThreadNanos = 0;
+        int playerCount = file.getPlayerIds().size();
+        players = new ReplayPlayer[playerCount];
+        playerData = new PlayerData[playerCount];
+        decisions = new Decision[file.getVelocityEntries().size()];
+
+        base.getReplayScheduler().reset();
+        for (int i = 0; i < playerCount; i++) {
+            UUID uuid = file.getPlayerIds().get(i);
+            players[i] = new ReplayPlayer(uuid, file.getPlayerNames().get(i), world);
+            base.getReplayServer().addPlayer(players[i]);
+            playerData[i] = new PlayerData(players[i]);
+            PlayerDataManager.addPlayerData(uuid, playerData[i]);
+        }
+
+        try {
+            for (ReplayFile.Entry entry : file.getEntries())
+                entry.apply(this);
+        } finally {
+            for (ReplayPlayer player : players)
+                PlayerDataManager.removePlayerData(player.getUUID());
+            base.getReplayServer().clear();
+            base.getReplayScheduler().reset();
+        }
+
+        return decisions;
+    }
+
+    void advanceTo(long tick) {
+        base.getReplayScheduler().advanceTo(tick);
+    }
+
+    // Same bookkeeping as PingReceiveListener does for a matched probe
+    void ping(int player, double rttMillis) {
+        PlayerData data = playerData[player];
+        data.getJitterCalculator().addPing((long) (rttMillis * 1_000_000));
+        data.recordLatencySample(rttMillis, data.getJitterCalculator().calculateJitter(), System.nanoTime());
+        players[player].setPing((int) rttMillis);
+    }
+
+    void move(int player, Vector3d position, Vector3d velocity, boolean onGround) {
+        ReplayPlayer replayPlayer = players[player];
+        replayPlayer.setPosition(position.getX(), position.getY(), position.getZ());
+        replayPlayer.applyVelocity(velocity);
+        replayPlayer.setOnGround(onGround);
+    }
+
+    void hit(ReplayFile.HitEntry hit) {
+        ReplayPlayer attacker = players[hit.attacker];
+        attacker.setSprinting(hit.sprinting);
+        attacker.setAttackCooldown(hit.attackCooldown);
+        attacker.setMainHandKnockbackLevel(hit.knockbackLevel);
+
+        ReplayPlayer victim = players[hit.victim];
+        victim.setNoDamageTicks(hit.noDamageTicks);
+        long start = System.nanoTime();
+        damageListener.onPlayerDamage(victim, attacker);
+        // Replayed hits are melee hits that went through
+        damageListener.onPlayerHitConfirmed(victim);
+        mainThreadNanos += System.nanoTime() - start;
+    }
+
+    void velocity(int index, int player, Vector3d velocity) {
+        if (pipeline == KnockbackPipeline.PACKET) {
+            packetVelocity(index, player, velocity);
+            return;
+        }
+
+        ReplayPlayer victim = players[player];
+        victim.setAdjustedVelocity(null);
+        long start = System.nanoTime();
+        SkipReason skipReason = knockbackListener.onPlayerVelocity(victim, velocity);
+        mainThreadNanos += System.nanoTime() - start;
+        if (skipReason == null) {
+            decisions[index] = Decision.adjusted(victim.getAdjustedVelocity().getY());
+        } else {
+            decisions[index] = Decision.skipped(skipReason);
+            victim.applyVelocity(velocity); // The server applies it unchanged
+        }
+    }
+
+    private void packetVelocity(int index, int player, Vector3d velocity) {
+        long start = System.nanoTime();
+        PreparedKnockback prepared = playerData[player].takePreparedKnockback(start);
+        Vector3d[] sent = {encode(velocity)};
+        if (prepared != null) {
+            SkipReason skipReason = knockbackListener.onPreparedVelocity(prepared, sent[0], adjusted -> sent[0] = encode(adjusted));
+            decisions[index] = skipReason == null ? Decision.adjusted(sent[0].getY()) : Decision.skipped(skipReason);
+        }
+        nettyThreadNanos += System.nanoTime() - start;
+        players[player].applyVelocity(sent[0]);
+    }
+
+    /**
+     * @return The velocity as the entity velocity packet carries it, in 1/8000 blocks per tick up to 3.9.
+     */
+    static Vector3d encode(Vector3d velocity) {
+        return new Vector3d(encode(velocity.getX()), encode(velocity.getY()), encode(velocity.getZ()));
+    }
+
+    private static double encode(double velocity) {
+        return (int) (Math.max(-3.9, Math.min(3.9, velocity)) * 8000) / 8000.0;
+    }
+}
@@ -0,0 +1,106 @@
+package me.caseload.knockbacksync.player;
+
+import me.caseload.knockbacksync.latency.LatencyProfile;
+import me.caseload.knockbacksync.replay.ReplayBase;
+import me.caseload.knockbacksync.replay.ReplayTestSupport;
+import me.caseload.knockbacksync.util.data.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayerDataLatencyTest {
+
+    private static final int SAMPLES = 200_000;
+    private static final int READERS = 3;
+
+    @TempDir
+    File dataFolder;
+
+    private ReplayBase base;
+    private PlayerData playerData;
+
+    @BeforeEach
+    void setUp() {
+        base = ReplayTestSupport.enableBase(dataFolder);
+        playerData = ReplayTestSupport.createPlayerData(base);
+    }
+
+    @AfterEach
+    void tearDown() {
+        base.disable();
+    }
+
+    @Test
+    void readersNeverSeeATornLatencyState() throws InterruptedException {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(READERS);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Thread reader = new Thread(() -> {
+                started.countDown();
+                while (!done.get() && failure.get() == null) {
+                    LatencyState state = playerData.getLatencyState();
+                    if (!state.isMeasured())
+                        continue;
+
+                    // Each sample n has ping n and jitter 2n, so the fields of one state must agree with each other
+                    double ping = state.getPing();
+                    boolean previousMatches = ping == 1 ? Double.isNaN(state.getPreviousPing()) : state.getPreviousPing() == ping - 1;
+                    if (!previousMatches || state.getJitter() != ping * 2 || state.getSampleNanos() != (long) ping)
+                        failure.compareAndSet(null, "Torn state: ping " + ping + ", previous " + state.getPreviousPing()
+                                + ", jitter " + state.getJitter() + ", sample " + state.getSampleNanos());
+                }
+            }, "LatencyState reader " + i);
+            readers.add(reader);
+            reader.start();
+        }
+
+        started.await();
+        // One writer, like the player's netty thread
+        for (int n = 1; n <= SAMPLES; n++)
+            playerData.recordLatencySample(n, n * 2, n);
+
+        done.set(true);
+        for (Thread reader : readers)
+            reader.join();
+
+        assertNull(failure.get());
+        LatencyState last = playerData.getLatencyState();
+        assertEquals(SAMPLES, last.getPing());
+        assertEquals(SAMPLES - 1, last.getPreviousPing());
+    }
+
+    @Test
+    void profileAfterAStallIsStillReadable() throws IOException {
+        // Answered after a minute, longer than any profile may claim
+        playerData.keepaliveMap.add(new Pair<>(1L, 0L));
+        assertTrue(playerData.handleProbeResponse(1, playerData.keepaliveMap, TimeUnit.SECONDS.toNanos(60)));
+
+        LatencyProfile profile = playerData.createLatencyProfile();
+        assertNotNull(profile);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        profile.write(new DataOutputStream(bytes));
+
+        LatencyProfile read = LatencyProfile.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(LatencyProfile.MAX_RTT_MICROS, read.getMedianRttMicros());
+        assertArrayEquals(new int[]{LatencyProfile.MAX_RTT_MICROS}, read.getRecentRttMicros());
+    }
+}
@@ -0,0 +1,151 @@
+package me.caseload.knockbacksync.player;
+
+import me.caseload.knockbacksync.replay.ReplayBase;
+import me.caseload.knockbacksync.replay.ReplayTestSupport;
+import me.caseload.knockbacksync.util.data.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * With the default config: at most 8 probes in flight, unanswered after 5 seconds they are lost.
+ */
+class PlayerDataProbeTest {
+
+    private static final int MAX_IN_FLIGHT = 8;
+    private static final long TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(5000);
+
+    @TempDir
+    File dataFolder;
+
+    private ReplayBase base;
+    private PlayerData playerData;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        base = ReplayTestSupport.enableBase(dataFolder);
+        playerData = ReplayTestSupport.createPlayerData(base);
+        playerData.pingStrategy = PingStrategy.KEEPALIVE;
+        now = System.nanoTime();
+    }
+
+    @AfterEach
+    void tearDown() {
+        base.disable();
+    }
+
+    @Test
+    void stopsAtMaxInFlight() {
+        for (long id = 1; id < MAX_IN_FLIGHT; id++)
+            playerData.keepaliveMap.add(new Pair<>(id, now));
+        assertTrue(playerData.canSendProbe(now));
+
+        playerData.keepaliveMap.add(new Pair<>((long) MAX_IN_FLIGHT, now));
+        assertFalse(playerData.canSendProbe(now));
+        assertEquals(MAX_IN_FLIGHT, playerData.keepaliveMap.size());
+    }
+
+    @Test
+    void timedOutProbesAreLostAndFreeTheirSlots() {
+        for (long id = 1; id <= MAX_IN_FLIGHT; id++)
+            playerData.keepaliveMap.add(new Pair<>(id, now));
+
+        assertTrue(playerData.canSendProbe(now + TIMEOUT_NANOS + 1));
+        assertTrue(playerData.keepaliveMap.isEmpty());
+        assertEquals(MAX_IN_FLIGHT, playerData.getLatencyStats().getLostProbeCount());
+    }
+
+    @Test
+    void onlyProbesPastTheCutoffExpire() {
+        playerData.keepaliveMap.add(new Pair<>(1L, now));
+        playerData.keepaliveMap.add(new Pair<>(2L, now + TimeUnit.SECONDS.toNanos(3)));
+        playerData.transactionsSent.add(new Pair<>(3, now));
+
+        playerData.expireProbes(now + TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, playerData.keepaliveMap.size());
+        assertEquals(2L, (long) playerData.keepaliveMap.peek().getFirst());
+        assertTrue(playerData.transactionsSent.isEmpty());
+        assertEquals(2, playerData.getLatencyStats().getLostProbeCount());
+    }
+
+    @Test
+    void limitAppliesToTheQueueOfTheStrategy() {
+        playerData.pingStrategy = PingStrategy.TRANSACTION;
+        for (int id = 1; id <= MAX_IN_FLIGHT; id++)
+            playerData.keepaliveMap.add(new Pair<>((long) id, now));
+        assertTrue(playerData.canSendProbe(now));
+
+        for (int id = 1; id <= MAX_IN_FLIGHT; id++)
+            playerData.transactionsSent.add(new Pair<>(id, now));
+        assertFalse(playerData.canSendProbe(now));
+    }
+
+    @Test
+    void responseUpdatesPingAndPrevious() {
+        playerData.keepaliveMap.add(new Pair<>(1L, now));
+        playerData.keepaliveMap.add(new Pair<>(2L, now));
+
+        assertTrue(playerData.handleProbeResponse(1, playerData.keepaliveMap, now + TimeUnit.MILLISECONDS.toNanos(40)));
+        assertTrue(playerData.handleProbeResponse(2, playerData.keepaliveMap, now + TimeUnit.MILLISECONDS.toNanos(70)));
+
+        LatencyState state = playerData.getLatencyState();
+        assertEquals(70, state.getPing(), 1e-9);
+        assertEquals(40, state.getPreviousPing(), 1e-9);
+        assertEquals(2, playerData.getLatencyStats().getSampleCount());
+    }
+
+    @Test
+    void responseCountsEarlierProbesAsLost() {
+        for (long id = 1; id <= 3; id++)
+            playerData.keepaliveMap.add(new Pair<>(id, now));
+
+        assertTrue(playerData.handleProbeResponse(2, playerData.keepaliveMap, now + TimeUnit.MILLISECONDS.toNanos(50)));
+        assertEquals(1, playerData.keepaliveMap.size());
+        assertEquals(3L, (long) playerData.keepaliveMap.peek().getFirst());
+        assertEquals(1, playerData.getLatencyStats().getLostProbeCount());
+    }
+
+    @Test
+    void responseWithoutProbeIsNotMatched() {
+        assertFalse(playerData.handleProbeResponse(1, playerData.keepaliveMap, now));
+        assertFalse(playerData.getLatencyState().isMeasured());
+    }
+
+    @Test
+    void vanillaKeepalivesAreTimedUnderTransaction() {
+        playerData.pingStrategy = PingStrategy.TRANSACTION;
+        assertTrue(playerData.isTrackingKeepalives());
+
+        // A keepalive the server sent on its own, answered while no transaction is in flight
+        long vanillaId = 123_456_789L;
+        playerData.keepaliveMap.add(new Pair<>(vanillaId, now));
+        assertFalse(playerData.didWeSendThatPacket(vanillaId));
+        assertTrue(playerData.handleProbeResponse(vanillaId, playerData.keepaliveMap, now + TimeUnit.MILLISECONDS.toNanos(60)));
+        assertEquals(60, playerData.getLatencyState().getPing(), 1e-9);
+    }
+
+    @Test
+    void passiveKeepalivesCanBeTurnedOff() throws IOException {
+        File folder = new File(dataFolder, "passive-off");
+        ReplayTestSupport.saveDefaultConfig(folder, "passive_keepalive_rtt: true", "passive_keepalive_rtt: false");
+        ReplayBase passiveOff = ReplayTestSupport.enableBase(folder);
+        try {
+            PlayerData data = ReplayTestSupport.createPlayerData(passiveOff);
+
+            data.pingStrategy = PingStrategy.TRANSACTION;
+            assertFalse(data.isTrackingKeepalives());
+            data.pingStrategy = PingStrategy.KEEPALIVE;
+            assertTrue(data.isTrackingKeepalives());
+        } finally {
+            passiveOff.disable();
+        }
+    }
+}
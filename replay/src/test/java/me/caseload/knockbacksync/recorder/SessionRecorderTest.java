@@ -0,0 +1,137 @@
+package me.caseload.knockbacksync.recorder;
+
+import me.caseload.knockbacksync.player.PingStrategy;
+import me.caseload.knockbacksync.replay.ReplayBase;
+import me.caseload.knockbacksync.replay.ReplayTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionRecorderTest {
+
+    private static final int WRITERS = 3;
+    // A 1 MB file holds 16383 records, so this rotates twice and stays below max_files
+    private static final int RECORDS_PER_WRITER = 15_000;
+
+    @TempDir
+    File dataFolder;
+
+    private ReplayBase base;
+    private SessionRecorder recorder;
+
+    @BeforeEach
+    void setUp() throws IOException, InterruptedException {
+        ReplayTestSupport.saveDefaultConfig(dataFolder,
+                "recorder:\n  enabled: false\n  file_size_mb: 64\n",
+                "recorder:\n  enabled: true\n  file_size_mb: 1\n");
+
+        base = ReplayTestSupport.enableBase(dataFolder);
+        recorder = base.getSessionRecorder();
+        recorder.start();
+
+        // The first file is created on the recorder thread
+        awaitRecording();
+    }
+
+    @AfterEach
+    void tearDown() {
+        // Also stops the recorder
+        base.disable();
+    }
+
+    @Test
+    void everyRecordIsWrittenOrCountedAsDropped() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int i = 0; i < WRITERS; i++) {
+            UUID uuid = new UUID(0, i);
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int n = 0; n < RECORDS_PER_WRITER; n++)
+                    recorder.recordProbe(uuid, PingStrategy.KEEPALIVE, n * 1_000_000L);
+            }, "Recorder writer " + i);
+            writers.add(writer);
+            writer.start();
+        }
+
+        start.countDown();
+        for (Thread writer : writers)
+            writer.join();
+        // If the writers outran the pre-mapped file, wait for its replacement so the rotation shows in the files
+        awaitRecording();
+        recorder.stop();
+
+        List<Path> files = recordingFiles();
+        assertTrue(files.size() > 1, "Expected the recorder to rotate, found " + files.size() + " file(s)");
+
+        long written = 0;
+        for (Path file : files) {
+            try (SessionRecordingReader reader = new SessionRecordingReader(file)) {
+                while (reader.next()) {
+                    assertEquals(RecordType.PROBE, reader.getType());
+                    assertEquals(0, reader.getUuidMostSignificantBits());
+                    long writer = reader.getUuidLeastSignificantBits();
+                    assertTrue(writer >= 0 && writer < WRITERS, "Record from unknown writer " + writer);
+                    written++;
+                }
+            }
+        }
+        assertEquals((long) WRITERS * RECORDS_PER_WRITER, written + recorder.getDroppedRecords(),
+                "Records neither written nor counted as dropped");
+    }
+
+    @Test
+    void stopLeavesNoUnusedFile() throws Exception {
+        recorder.recordProbe(new UUID(0, 0), PingStrategy.KEEPALIVE, 40_000_000L);
+        recorder.stop();
+        assertFalse(recorder.isRecording());
+
+        // Dropped silently, the recorder is off
+        recorder.recordProbe(new UUID(0, 0), PingStrategy.KEEPALIVE, 40_000_000L);
+        assertEquals(0, recorder.getDroppedRecords());
+
+        // Only the file that was being written remains, the pre-mapped next one is deleted
+        List<Path> files = recordingFiles();
+        assertEquals(1, files.size());
+        int records = 0;
+        try (SessionRecordingReader reader = new SessionRecordingReader(files.get(0))) {
+            while (reader.next())
+                records++;
+        }
+        assertEquals(1, records);
+    }
+
+    private void awaitRecording() throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!recorder.isRecording()) {
+            assertTrue(System.nanoTime() < deadline, "The recorder has no file to write to");
+            Thread.sleep(1);
+        }
+    }
+
+    private List<Path> recordingFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(new File(dataFolder, "recordings").toPath(), "session-*.kbsrec")) {
+            for (Path file : stream)
+                files.add(file);
+        }
+        return files;
+    }
+}
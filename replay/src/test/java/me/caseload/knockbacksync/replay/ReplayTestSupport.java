@@ -0,0 +1,59 @@
+package me.caseload.knockbacksync.replay;
+
+import me.caseload.knockbacksync.player.PlayerData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.UUID;
+
+/**
+ * Sets up the headless platform for tests of common code that needs {@link me.caseload.knockbacksync.Base#INSTANCE}.
+ */
+public final class ReplayTestSupport {
+
+    private ReplayTestSupport() {
+    }
+
+    /**
+     * @param dataFolder Where config.yml is read from, the default one is saved there if it does not exist.
+     */
+    public static ReplayBase enableBase(File dataFolder) {
+        ReplayBase base = new ReplayBase(dataFolder, 20);
+        base.enable();
+        return base;
+    }
+
+    public static PlayerData createPlayerData(ReplayBase base) {
+        ReplayPlayer player = new ReplayPlayer(UUID.randomUUID(), "Test", new ReplayWorld(64));
+        base.getReplayServer().addPlayer(player);
+        return new PlayerData(player);
+    }
+
+    /**
+     * Saves the default config.yml with one part of it replaced, before {@link #enableBase(File)}.
+     *
+     * @throws IllegalStateException If the default config no longer contains {@code target}.
+     */
+    public static void saveDefaultConfig(File dataFolder, String target, String replacement) throws IOException {
+        String config;
+        try (InputStream in = ReplayTestSupport.class.getClassLoader().getResourceAsStream("config.yml")) {
+            if (in == null)
+                throw new IllegalStateException("config.yml is missing from the classpath");
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+            config = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        if (!config.contains(target))
+            throw new IllegalStateException("The default config.yml no longer contains \"" + target + "\"");
+        Files.createDirectories(dataFolder.toPath());
+        Files.write(new File(dataFolder, "config.yml").toPath(), config.replace(target, replacement).getBytes(StandardCharsets.UTF_8));
+    }
+}
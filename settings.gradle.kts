@@ -7,6 +7,6 @@ pluginManagement {
     }
 }
 
-include("common", "bukkit")
+include("common", "bukkit", "replay", "simulation", "relay")
 
 rootProject.name = "KnockbackSync"
\ No newline at end of file
@@ -0,0 +1,31 @@
+plugins {
+    application
+}
+
+base {
+    archivesName.set("${rootProject.property("archives_base_name")}-simulation")
+}
+
+application {
+    mainClass.set("me.caseload.knockbacksync.simulation.SimulationMain")
+    applicationDefaultJvmArgs = listOf("-Xmx2G")
+}
+
+dependencies {
+    // Reuses the replay tool's headless platform
+    implementation(project(":replay"))
+    implementation(project(":common"))
+    implementation("com.github.retrooper:packetevents-api:2.8.1-SNAPSHOT")
+    implementation("org.yaml:snakeyaml:2.4")
+
+    compileOnly("org.projectlombok:lombok:1.18.38")
+    annotationProcessor("org.projectlombok:lombok:1.18.38")
+}
+
+// Before/after numbers for the config code, see ConfigBenchmark
+tasks.register<JavaExec>("configBenchmark") {
+    group = "application"
+    description = "Runs the config lookup and save benchmarks."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("me.caseload.knockbacksync.simulation.ConfigBenchmark")
+}
@@ -0,0 +1,293 @@
+package me.caseload.knockbacksync.simulation;
+
+import me.caseload.knockbacksync.ConfigWrapper;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.config.YamlConfiguration;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Before/after micro benchmark for the config code: the settings a knockback reads, looked up by path in the raw
+ * config map versus read from the {@link KbSyncSettings} snapshot, and saving the default config after a toggle with
+ * the old dump and merge versus {@link YamlConfiguration}'s in-place writer.
+ * <p>
+ * A plain warm up and measure loop rather than JMH, good enough to see the order of magnitude. Run it with
+ * {@code ./gradlew :simulation:configBenchmark}.
+ */
+public class ConfigBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // Written by every benchmark so the JIT cannot drop the work
+    private static long sink;
+
+    public static void main(String[] args) throws IOException {
+        long iterations = 5_000_000;
+        long saveIterations = 2_000;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--iterations": iterations = Long.parseLong(value(args, ++i)); break;
+                case "--save-iterations": saveIterations = Long.parseLong(value(args, ++i)); break;
+                default: usage();
+            }
+        }
+
+        Map<String, Object> config = loadDefaultConfig();
+        ConfigWrapper wrapper = new ConfigWrapper(config);
+        KbSyncSettings settings = KbSyncSettings.load(wrapper);
+
+        System.out.println("Settings lookup, the values read for one knockback:");
+        report("ConfigWrapper paths", measure(iterations, () -> lookupByPath(wrapper)));
+        report("KbSyncSettings snapshot", measure(iterations, () -> lookupSnapshot(settings)));
+
+        File dataFolder = Files.createTempDirectory("knockbacksync-benchmark").toFile();
+        try {
+            File legacyFile = copyDefaultConfig(new File(dataFolder, "legacy.yml"));
+            File currentFile = copyDefaultConfig(new File(dataFolder, "config.yml"));
+
+            LegacySave legacy = new LegacySave(legacyFile);
+            YamlConfiguration current = new YamlConfiguration(currentFile);
+            current.load();
+            Map<String, Object> currentData = current.getData();
+
+            System.out.println("Saving config.yml after /kbs toggle:");
+            report("Dump and merge (before)", measure(saveIterations, () -> {
+                legacy.data.put("enabled", !(Boolean) legacy.data.get("enabled"));
+                legacy.save();
+            }));
+            report("YamlConfiguration.save", measure(saveIterations, () -> {
+                currentData.put("enabled", !(Boolean) currentData.get("enabled"));
+                current.save(currentData);
+            }));
+        } finally {
+            File[] files = dataFolder.listFiles();
+            if (files != null)
+                for (File file : files)
+                    file.delete();
+            dataFolder.delete();
+        }
+
+        System.out.println("(sink " + sink + ")");
+    }
+
+    // What PlayerDamageListener and PlayerData read through ConfigManager before the snapshot existed
+    private static void lookupByPath(ConfigWrapper config) {
+        long value = 0;
+        if (config.getBoolean("enabled", true)) value++;
+        if (config.getBoolean("runnable.enabled", true)) value++;
+        if (config.getBoolean("enable_offground_synchronization", true)) value++;
+        value += config.getLong("spike_threshold", 20L);
+        value += config.getLong("runnable.timer", 30L);
+        value += config.getString("ping_strategy", "KEEPALIVE").length();
+        sink += value;
+    }
+
+    private static void lookupSnapshot(KbSyncSettings settings) {
+        long value = 0;
+        if (settings.isToggled()) value++;
+        if (settings.isRunnableEnabled()) value++;
+        if (settings.isOffGroundSyncEnabled()) value++;
+        value += settings.getSpikeThreshold();
+        value += settings.getCombatTimer();
+        value += settings.getPingStrategy().ordinal();
+        sink += value;
+    }
+
+    static Map<String, Object> loadDefaultConfig() throws IOException {
+        try (InputStream in = ConfigBenchmark.class.getResourceAsStream("/config.yml")) {
+            if (in == null)
+                throw new IOException("The default config.yml is not on the classpath");
+            return new Yaml().load(in);
+        }
+    }
+
+    private static File copyDefaultConfig(File target) throws IOException {
+        try (InputStream in = ConfigBenchmark.class.getResourceAsStream("/config.yml")) {
+            if (in == null)
+                throw new IOException("The default config.yml is not on the classpath");
+            Files.copy(in, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return target;
+    }
+
+    /**
+     * Runs the operation {@code iterations} times per round and returns the best round in nanoseconds per operation.
+     */
+    static double measure(long iterations, Operation operation) throws IOException {
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+            run(iterations, operation);
+
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            long start = System.nanoTime();
+            run(iterations, operation);
+            best = Math.min(best, (System.nanoTime() - start) / (double) iterations);
+        }
+        return best;
+    }
+
+    private static void run(long iterations, Operation operation) throws IOException {
+        for (long i = 0; i < iterations; i++)
+            operation.run();
+    }
+
+    static void report(String name, double nanosPerOp) {
+        if (nanosPerOp >= 1_000_000)
+            System.out.printf("  %-28s %10.2f ms/op%n", name, nanosPerOp / 1_000_000);
+        else if (nanosPerOp >= 1_000)
+            System.out.printf("  %-28s %10.2f us/op%n", name, nanosPerOp / 1_000);
+        else
+            System.out.printf("  %-28s %10.2f ns/op%n", name, nanosPerOp);
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length)
+            usage();
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println("Usage: configBenchmark [--iterations <n>] [--save-iterations <n>]");
+        System.exit(2);
+    }
+
+    @FunctionalInterface
+    interface Operation {
+        void run() throws IOException;
+    }
+
+    /**
+     * How YamlConfiguration saved before the in-place writer: dump the whole map, parse both the old file and the
+     * dump into line trees, and rebuild the file from the two. Kept here only as the baseline to compare against.
+     */
+    private static final class LegacySave {
+
+        private final File file;
+        private final Yaml yaml;
+        private final Map<String, Object> data;
+        private final String fileContents;
+
+        LegacySave(File file) throws IOException {
+            this.file = file;
+            DumperOptions options = new DumperOptions();
+            options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+            options.setPrettyFlow(true);
+            options.setWidth(Integer.MAX_VALUE);
+            this.yaml = new Yaml(options);
+            this.fileContents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            this.data = yaml.load(fileContents);
+        }
+
+        void save() throws IOException {
+            Map<String, Element> oldElements = parse(fileContents);
+            Map<String, Element> newElements = parse(yaml.dump(data));
+
+            StringBuilder result = new StringBuilder();
+            build(oldElements, newElements, result);
+
+            try (Writer writer = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+                writer.write(result.toString());
+            }
+        }
+
+        private static Map<String, Element> parse(String content) {
+            Map<String, Element> elements = new LinkedHashMap<>();
+            Deque<Element> stack = new ArrayDeque<>();
+
+            for (String line : content.split("\n")) {
+                if (line.trim().isEmpty()) continue;
+
+                Element element = new Element(line, indentation(line));
+                while (!stack.isEmpty() && stack.peek().indent >= element.indent)
+                    stack.pop();
+
+                if (!stack.isEmpty())
+                    stack.peek().children.add(element);
+                else if (element.comment)
+                    elements.put("comment" + elements.size(), element);
+                else
+                    elements.put(element.key, element);
+
+                if (!element.comment && element.value.isEmpty())
+                    stack.push(element);
+            }
+            return elements;
+        }
+
+        private static void build(Map<String, Element> oldElements, Map<String, Element> newElements, StringBuilder result) {
+            for (Element element : oldElements.values()) {
+                if (element.comment) {
+                    result.append(element.value).append('\n');
+                    continue;
+                }
+
+                Element newElement = newElements.get(element.key);
+                if (newElement == null)
+                    continue;
+
+                for (int i = 0; i < element.indent; i++)
+                    result.append(' ');
+                result.append(element.key).append(':');
+                if (!newElement.value.isEmpty())
+                    result.append(' ').append(newElement.value);
+                result.append('\n');
+
+                if (!element.children.isEmpty()) {
+                    Map<String, Element> oldChildren = new LinkedHashMap<>();
+                    Map<String, Element> newChildren = new LinkedHashMap<>();
+                    for (Element child : element.children)
+                        oldChildren.put(child.comment ? "comment" + oldChildren.size() : child.key, child);
+                    for (Element child : newElement.children)
+                        if (!child.comment)
+                            newChildren.put(child.key, child);
+                    build(oldChildren, newChildren, result);
+                }
+            }
+        }
+
+        private static int indentation(String line) {
+            int indent = 0;
+            while (indent < line.length() && line.charAt(indent) == ' ')
+                indent++;
+            return indent;
+        }
+
+        private static final class Element {
+            final int indent;
+            final boolean comment;
+            final String key;
+            final String value;
+            final List<Element> children = new ArrayList<>();
+
+            Element(String line, int indent) {
+                this.indent = indent;
+                this.comment = line.trim().startsWith("#");
+                if (comment) {
+                    this.key = null;
+                    this.value = line;
+                } else {
+                    String[] parts = line.split(":", 2);
+                    this.key = parts[0].trim();
+                    this.value = parts.length > 1 ? parts[1].trim() : "";
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package me.caseload.knockbacksync.simulation;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * How long a synthetic player's connection takes to answer a probe. Every player gets a base round trip time
+ * drawn uniformly between the minimum and maximum, every probe adds jitter on top of it and may be lost.
+ */
+public class LatencyModel {
+
+    public enum JitterDistribution {
+        /**
+         * Symmetric around the base round trip time, the standard deviation is the jitter.
+         */
+        NORMAL,
+        /**
+         * Only ever slower than the base round trip time with a long tail, the mean is the jitter.
+         * Closer to what congested connections look like.
+         */
+        EXPONENTIAL;
+
+        public static JitterDistribution parse(String name) {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final double minRttMillis;
+    private final double maxRttMillis;
+    private final double jitterMillis;
+    private final JitterDistribution jitterDistribution;
+    private final double lossRate;
+
+    public LatencyModel(double minRttMillis, double maxRttMillis, double jitterMillis, JitterDistribution jitterDistribution, double lossRate) {
+        if (minRttMillis < 0 || maxRttMillis < minRttMillis)
+            throw new IllegalArgumentException("Round trip time range " + minRttMillis + "-" + maxRttMillis + " is invalid");
+        if (lossRate < 0 || lossRate >= 1)
+            throw new IllegalArgumentException("Loss rate must be in [0, 1), got " + lossRate);
+
+        this.minRttMillis = minRttMillis;
+        this.maxRttMillis = maxRttMillis;
+        this.jitterMillis = jitterMillis;
+        this.jitterDistribution = jitterDistribution;
+        this.lossRate = lossRate;
+    }
+
+    public double sampleBaseRttMillis(Random random) {
+        return minRttMillis + random.nextDouble() * (maxRttMillis - minRttMillis);
+    }
+
+    /**
+     * @return The round trip time of one probe in nanoseconds, or -1 if it is lost.
+     */
+    public long sampleRttNanos(Random random, double baseRttMillis) {
+        if (lossRate > 0 && random.nextDouble() < lossRate)
+            return -1;
+
+        double jitter;
+        switch (jitterDistribution) {
+            case EXPONENTIAL:
+                jitter = -jitterMillis * Math.log(1 - random.nextDouble());
+                break;
+            case NORMAL:
+            default:
+                jitter = random.nextGaussian() * jitterMillis;
+                break;
+        }
+        return (long) (Math.max(baseRttMillis + jitter, 0.1) * 1_000_000);
+    }
+
+    public double getJitterMillis() {
+        return jitterMillis;
+    }
+}
@@ -0,0 +1,24 @@
+package me.caseload.knockbacksync.simulation;
+
+import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.replay.ReplayPlayer;
+
+/**
+ * A synthetic combatant: a headless player, its plugin state and the connection it sits behind.
+ */
+final class SimulatedPlayer {
+
+    final ReplayPlayer player;
+    final PlayerData playerData;
+    final double baseRttMillis;
+
+    long nextProbeId;
+    // Responses arrive in the order the probes were sent, like on a real TCP connection
+    long lastArrivalNanos;
+
+    SimulatedPlayer(ReplayPlayer player, PlayerData playerData, double baseRttMillis) {
+        this.player = player;
+        this.playerData = playerData;
+        this.baseRttMillis = baseRttMillis;
+    }
+}
@@ -0,0 +1,241 @@
+package me.caseload.knockbacksync.simulation;
+
+import com.github.retrooper.packetevents.util.Vector3d;
+import lombok.Getter;
+import me.caseload.knockbacksync.config.KbSyncSettings;
+import me.caseload.knockbacksync.latency.LatencyHistogram;
+import me.caseload.knockbacksync.listener.PlayerDamageListener;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener;
+import me.caseload.knockbacksync.listener.PlayerKnockbackListener.SkipReason;
+import me.caseload.knockbacksync.manager.CombatManager;
+import me.caseload.knockbacksync.manager.PlayerDataManager;
+import me.caseload.knockbacksync.metrics.PluginMetrics;
+import me.caseload.knockbacksync.player.PingStrategy;
+import me.caseload.knockbacksync.player.PlayerData;
+import me.caseload.knockbacksync.replay.ReplayBase;
+import me.caseload.knockbacksync.replay.ReplayPlayer;
+import me.caseload.knockbacksync.replay.ReplayWorld;
+import me.caseload.knockbacksync.util.data.Pair;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Pits synthetic players against each other in duels on virtual time. Network events are timed to the
+ * nanosecond, plugin tasks run on the headless scheduler as the clock crosses each tick.
+ * <p>
+ * Probes go through the same {@link PlayerData#handleProbeResponse} bookkeeping the packet listeners use,
+ * with the connection replaced by a {@link LatencyModel}. Hits go through the real damage and knockback
+ * listeners. Everything runs on the calling thread, so CPU time measured there is the plugin's cost.
+ */
+public class Simulation {
+
+    private static final long NANOS_PER_TICK = 50_000_000L;
+    private static final Vector3d KNOCKBACK = new Vector3d(0.4, 0.36080000519752503, 0);
+
+    private final ReplayBase base;
+    private final LatencyModel latencyModel;
+    private final double hitsPerSecond;
+    private final Random random;
+    private final ReplayWorld world = new ReplayWorld(0);
+    private final PlayerDamageListener damageListener = new PlayerDamageListener() {};
+    private final PlayerKnockbackListener knockbackListener = new PlayerKnockbackListener() {};
+    private final PriorityQueue<TimedEvent> events = new PriorityQueue<>(
+            Comparator.comparingLong((TimedEvent event) -> event.timeNanos).thenComparingLong(event -> event.sequence));
+    private final Map<UUID, SimulatedPlayer> playersByUuid = new HashMap<>();
+
+    private SimulatedPlayer[] players = new SimulatedPlayer[0];
+    @Getter private long nowNanos;
+    private long sequence;
+
+    @Getter private long probesSent;
+    @Getter private long probesAnswered;
+    @Getter private long probesDropped;
+    @Getter private long knockbacks;
+    @Getter private long knockbacksAdjusted;
+    // Difference between the ping the plugin compensates for and the player's true round trip time, in microseconds
+    @Getter private final LatencyHistogram pingError = new LatencyHistogram();
+    private double jitterEstimateSum;
+
+    public Simulation(ReplayBase base, LatencyModel latencyModel, double hitsPerSecond, long seed) {
+        this.base = base;
+        this.latencyModel = latencyModel;
+        this.hitsPerSecond = hitsPerSecond;
+        this.random = new Random(seed);
+    }
+
+    public void spawnPlayers(int count) {
+        players = new SimulatedPlayer[count];
+        for (int i = 0; i < count; i++) {
+            UUID uuid = new UUID(0x51L << 32, i); // Version bits 0, can never collide with a real player
+            ReplayPlayer player = new ReplayPlayer(uuid, "Sim" + i, world);
+            // Duel partners stand next to each other, every duel gets its own spot
+            player.setPosition((i / 2) * 8 + (i % 2) * 2 + 0.5, 1, 0.5);
+            player.setOnGround(true);
+
+            double baseRtt = latencyModel.sampleBaseRttMillis(random);
+            player.setPing((int) baseRtt); // What vanilla reports before our own probes come back
+
+            base.getReplayServer().addPlayer(player);
+            PlayerData playerData = new PlayerData(player);
+            PlayerDataManager.addPlayerData(uuid, playerData);
+
+            players[i] = new SimulatedPlayer(player, playerData, baseRtt);
+            playersByUuid.put(uuid, players[i]);
+        }
+    }
+
+    public void despawnPlayers() {
+        for (SimulatedPlayer player : players)
+            PlayerDataManager.removePlayerData(player.player.getUUID());
+        playersByUuid.clear();
+        base.getReplayServer().clear();
+        players = new SimulatedPlayer[0];
+    }
+
+    public void run(long durationNanos) {
+        long end = nowNanos + durationNanos;
+        for (int i = 0; i < players.length; i++) {
+            int index = i;
+            schedule(nowNanos + nextHitDelay(), () -> hit(index));
+        }
+
+        KbSyncSettings settings = base.getConfigManager().getSettings();
+        if (settings.isRunnableEnabled()) {
+            long period = settings.getRunnableIntervalMillis() > 0
+                    ? settings.getRunnableIntervalMillis() * 1_000_000L
+                    : Math.max(settings.getRunnableInterval(), 1L) * NANOS_PER_TICK;
+            schedule(nowNanos, new Runnable() {
+                @Override
+                public void run() {
+                    probeCombatants();
+                    schedule(nowNanos + period, this);
+                }
+            });
+        }
+
+        TimedEvent event;
+        while ((event = events.peek()) != null && event.timeNanos <= end) {
+            events.poll();
+            advanceClock(event.timeNanos);
+            event.task.run();
+        }
+        advanceClock(end);
+        events.clear();
+    }
+
+    public int getPlayerCount() {
+        return players.length;
+    }
+
+    public double getMeanJitterEstimate() {
+        return knockbacks == 0 ? 0 : jitterEstimateSum / knockbacks;
+    }
+
+    private void advanceClock(long timeNanos) {
+        nowNanos = timeNanos;
+        base.getReplayScheduler().advanceTo(timeNanos / NANOS_PER_TICK);
+    }
+
+    // What PingRunnable does, except the probe goes to the latency model instead of a channel
+    private void probeCombatants() {
+        if (!base.getConfigManager().isToggled())
+            return;
+
+        for (UUID uuid : CombatManager.getPlayers()) {
+            SimulatedPlayer player = playersByUuid.get(uuid);
+            if (player != null)
+                sendProbe(player);
+        }
+    }
+
+    private void sendProbe(SimulatedPlayer player) {
+        PlayerData playerData = player.playerData;
+        if (!playerData.canSendProbe(nowNanos))
+            return;
+
+        long id = player.nextProbeId++;
+        boolean keepAlive = playerData.pingStrategy == PingStrategy.KEEPALIVE;
+        if (keepAlive)
+            playerData.keepaliveMap.add(new Pair<>(id, nowNanos));
+        else
+            playerData.transactionsSent.add(new Pair<>((int) id, nowNanos));
+        PluginMetrics.PROBES_SENT.increment();
+        probesSent++;
+
+        long rtt = latencyModel.sampleRttNanos(random, player.baseRttMillis);
+        if (rtt < 0) {
+            probesDropped++;
+            return;
+        }
+
+        long arrival = Math.max(nowNanos + rtt, player.lastArrivalNanos);
+        player.lastArrivalNanos = arrival;
+        schedule(arrival, () -> {
+            boolean matched = keepAlive
+                    ? playerData.handleProbeResponse(id, playerData.keepaliveMap, nowNanos)
+                    : playerData.handleProbeResponse((int) id, playerData.transactionsSent, nowNanos);
+            if (matched) {
+                PluginMetrics.PROBES_MATCHED.increment();
+                probesAnswered++;
+            } else {
+                PluginMetrics.ORPHANED_RESPONSES.increment();
+            }
+        });
+    }
+
+    private void hit(int index) {
+        SimulatedPlayer victim = players[index];
+        SimulatedPlayer attacker = players[(index ^ 1) < players.length ? index ^ 1 : 0];
+
+        // Mostly on the ground, sometimes still in the air from the previous hit
+        boolean airborne = random.nextDouble() < 0.4;
+        ReplayPlayer victimPlayer = victim.player;
+        victimPlayer.setPosition(victimPlayer.getX(), airborne ? 1 + random.nextDouble() * 1.5 : 1, victimPlayer.getZ());
+        victimPlayer.applyVelocity(new Vector3d(0, airborne ? random.nextDouble() * 0.8 - 0.4 : -0.0784000015258789, 0));
+        victimPlayer.setOnGround(!airborne);
+        victimPlayer.setNoDamageTicks(0);
+        attacker.player.setSprinting(random.nextBoolean());
+
+        damageListener.onPlayerDamage(victimPlayer, attacker.player);
+        damageListener.onPlayerHitConfirmed(victimPlayer);
+        if (!base.getConfigManager().getSettings().isRunnableEnabled())
+            sendProbe(victim);
+
+        SkipReason skipReason = knockbackListener.onPlayerVelocity(victimPlayer, KNOCKBACK);
+        knockbacks++;
+        if (skipReason == null)
+            knockbacksAdjusted++;
+
+        PlayerData playerData = victim.playerData;
+        pingError.record((long) (Math.abs(playerData.getNotNullPing() - victim.baseRttMillis) * 1000));
+        jitterEstimateSum += playerData.getJitter();
+
+        schedule(nowNanos + nextHitDelay(), () -> hit(index));
+    }
+
+    // Hits arrive as a Poisson process
+    private long nextHitDelay() {
+        return (long) (-Math.log(1 - random.nextDouble()) / hitsPerSecond * 1_000_000_000L);
+    }
+
+    private void schedule(long timeNanos, Runnable task) {
+        events.add(new TimedEvent(timeNanos, sequence++, task));
+    }
+
+    private static final class TimedEvent {
+        final long timeNanos;
+        final long sequence;
+        final Runnable task;
+
+        TimedEvent(long timeNanos, long sequence, Runnable task) {
+            this.timeNanos = timeNanos;
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+}
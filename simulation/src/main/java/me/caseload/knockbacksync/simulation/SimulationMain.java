@@ -0,0 +1,109 @@
+package me.caseload.knockbacksync.simulation;
+
+import me.caseload.knockbacksync.latency.LatencyHistogram;
+import me.caseload.knockbacksync.replay.ReplayBase;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Load test: runs thousands of synthetic combatants through the plugin on one machine and reports the CPU
+ * and memory they cost, along with how close the plugin's ping estimates get to the true round trip times.
+ */
+public class SimulationMain {
+
+    public static void main(String[] args) throws IOException {
+        int playerCount = 1000;
+        double durationSeconds = 60;
+        double minRtt = 20, maxRtt = 200, jitter = 5, loss = 0;
+        LatencyModel.JitterDistribution jitterDistribution = LatencyModel.JitterDistribution.NORMAL;
+        double hitsPerSecond = 2;
+        long seed = 1;
+        float tickRate = 20.0f;
+        String configPath = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--players": playerCount = Integer.parseInt(value(args, ++i)); break;
+                case "--duration": durationSeconds = Double.parseDouble(value(args, ++i)); break;
+                case "--min-rtt": minRtt = Double.parseDouble(value(args, ++i)); break;
+                case "--max-rtt": maxRtt = Double.parseDouble(value(args, ++i)); break;
+                case "--jitter": jitter = Double.parseDouble(value(args, ++i)); break;
+                case "--jitter-distribution": jitterDistribution = LatencyModel.JitterDistribution.parse(value(args, ++i)); break;
+                case "--loss": loss = Double.parseDouble(value(args, ++i)); break;
+                case "--hits-per-second": hitsPerSecond = Double.parseDouble(value(args, ++i)); break;
+                case "--seed": seed = Long.parseLong(value(args, ++i)); break;
+                case "--tick-rate": tickRate = Float.parseFloat(value(args, ++i)); break;
+                case "--config": configPath = value(args, ++i); break;
+                default: usage();
+            }
+        }
+
+        File dataFolder = Files.createTempDirectory("knockbacksync-simulation").toFile();
+        dataFolder.deleteOnExit();
+        if (configPath != null)
+            Files.copy(Paths.get(configPath), dataFolder.toPath().resolve("config.yml"), StandardCopyOption.REPLACE_EXISTING);
+        dataFolder.toPath().resolve("config.yml").toFile().deleteOnExit();
+
+        ReplayBase base = new ReplayBase(dataFolder, tickRate);
+        base.enable();
+
+        LatencyModel latencyModel = new LatencyModel(minRtt, maxRtt, jitter, jitterDistribution, loss);
+        Simulation simulation = new Simulation(base, latencyModel, hitsPerSecond, seed);
+
+        long heapBefore = usedHeap();
+        simulation.spawnPlayers(playerCount);
+        long heapAfter = usedHeap();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        simulation.run((long) (durationSeconds * 1_000_000_000L));
+        long wall = System.nanoTime() - wallStart;
+        long cpu = threads.getCurrentThreadCpuTime() - cpuStart;
+        long heapPeak = usedHeap();
+
+        double ticks = durationSeconds * tickRate;
+        System.out.printf("Simulated %d players for %.0f s in %.2f s (%.1fx real time)%n",
+                playerCount, durationSeconds, wall / 1e9, durationSeconds / (wall / 1e9));
+        System.out.printf("CPU: %.2f s, %.3f ms per simulated tick%n", cpu / 1e9, cpu / 1e6 / ticks);
+        System.out.printf("Heap: %.1f MB for the players (%.1f KB each), %.1f MB after the run%n",
+                (heapAfter - heapBefore) / 1048576.0, (heapAfter - heapBefore) / 1024.0 / Math.max(playerCount, 1), heapPeak / 1048576.0);
+        System.out.printf("Probes: %d sent, %d answered, %d dropped by the network%n",
+                simulation.getProbesSent(), simulation.getProbesAnswered(), simulation.getProbesDropped());
+        System.out.printf("Knockback: %d decisions, %d adjusted%n", simulation.getKnockbacks(), simulation.getKnockbacksAdjusted());
+
+        LatencyHistogram error = simulation.getPingError();
+        System.out.printf("Ping estimate error: p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                error.getValueAtPercentile(50) / 1000.0, error.getValueAtPercentile(99) / 1000.0, error.getMax() / 1000.0);
+        System.out.printf("Jitter estimate: %.1f ms on average, %.1f ms configured%n",
+                simulation.getMeanJitterEstimate(), latencyModel.getJitterMillis());
+
+        simulation.despawnPlayers();
+        base.disable();
+        System.exit(0);
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String value(String[] args, int index) {
+        if (index >= args.length)
+            usage();
+        return args[index];
+    }
+
+    private static void usage() {
+        System.err.println("Usage: simulation [--players <n>] [--duration <seconds>] [--min-rtt <ms>] [--max-rtt <ms>]"
+                + " [--jitter <ms>] [--jitter-distribution normal|exponential] [--loss <0-1>] [--hits-per-second <n>]"
+                + " [--seed <n>] [--tick-rate <tps>] [--config <config.yml>]");
+        System.exit(2);
+    }
+}